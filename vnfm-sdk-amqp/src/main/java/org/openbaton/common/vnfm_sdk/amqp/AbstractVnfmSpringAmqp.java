@@ -17,20 +17,39 @@
 package org.openbaton.common.vnfm_sdk.amqp;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
 import com.rabbitmq.client.*;
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.catalogue.nfvo.Action;
 import org.openbaton.catalogue.nfvo.messages.Interfaces.NFVMessage;
 import org.openbaton.common.vnfm_sdk.AbstractVnfm;
+import org.openbaton.common.vnfm_sdk.NFVMessageEnvelope;
 import org.openbaton.common.vnfm_sdk.VnfmHelper;
 import org.openbaton.common.vnfm_sdk.exception.BadFormatException;
 import org.openbaton.common.vnfm_sdk.exception.NotFoundException;
+import org.openbaton.common.vnfm_sdk.jfr.LifecycleEvent;
+import org.openbaton.common.vnfm_sdk.jfr.LifecycleEvent.Phase;
+import org.openbaton.common.vnfm_sdk.management.ConsumerTuning;
+import org.openbaton.common.vnfm_sdk.metrics.VnfmMetrics;
+import org.openbaton.common.vnfm_sdk.tracing.PhaseScope;
+import org.openbaton.common.vnfm_sdk.tracing.Span;
+import org.openbaton.common.vnfm_sdk.tracing.TraceContext;
+import org.openbaton.common.vnfm_sdk.tracing.Tracer;
+import org.openbaton.common.vnfm_sdk.utils.CompressionUtils;
+import org.openbaton.common.vnfm_sdk.utils.JsonMergePatch;
+import org.openbaton.common.vnfm_sdk.utils.PooledByteArrayOutputStream;
+import org.openbaton.common.vnfm_sdk.utils.VnfmUtils;
 import org.openbaton.registration.Registration;
 import org.springframework.amqp.AmqpAuthenticationException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -47,7 +66,20 @@ import org.springframework.context.event.EventListener;
 @SpringBootApplication
 @ComponentScan(basePackages = "org.openbaton")
 @ConfigurationProperties
-public abstract class AbstractVnfmSpringAmqp extends AbstractVnfm {
+public abstract class AbstractVnfmSpringAmqp extends AbstractVnfm implements ConsumerTuning {
+
+  /** Header listing the VNFR encodings the sender of a request accepts in the reply. */
+  public static final String ACCEPT_VNFR_ENCODING = "accept-vnfr-encoding";
+  /** Header set on replies whose VNFR is a merge patch against the VNFR of the request. */
+  public static final String VNFR_ENCODING = "vnfr-encoding";
+  /** Header carrying the hbVersion of the VNFR the merge patch applies to. */
+  public static final String VNFR_BASE_VERSION = "vnfr-base-version";
+
+  public static final String MERGE_PATCH = "merge-patch";
+
+  /** The arrays of the VNFR that are serialized sets, compared regardless of order. */
+  private static final Set<String> VNFR_SET_MEMBERS =
+      JsonMergePatch.setMembers(VirtualNetworkFunctionRecord.class);
 
   @Value("${spring.rabbitmq.host}")
   private String rabbitHost;
@@ -65,7 +97,10 @@ public abstract class AbstractVnfmSpringAmqp extends AbstractVnfm {
   private String virtualHost;
 
   @Value("${vnfm.consumers.num:5}")
-  private int consumers;
+  private volatile int consumers;
+
+  @Value("${vnfm.consumers.prefetch:1}")
+  private volatile int prefetch;
 
   @Value("${vnfm.connect.tries:20}")
   private int maxTries;
@@ -79,6 +114,15 @@ public abstract class AbstractVnfmSpringAmqp extends AbstractVnfm {
   @Value("${vnfm.connect.tries.authentication.retryPause:40000}")
   private int baseRetryPauseAuthenticationTries;
 
+  @Value("${vnfm.compression.threshold:-1}")
+  private int compressionThreshold;
+
+  @Value("${vnfm.compression.codec:gzip}")
+  private String compressionCodec;
+
+  @Value("${vnfm.reply.delta:false}")
+  private boolean deltaReplies;
+
   @Autowired
   @Qualifier("vnfmGson")
   private Gson gson;
@@ -87,15 +131,54 @@ public abstract class AbstractVnfmSpringAmqp extends AbstractVnfm {
   @Autowired private Registration registration;
 
   private ExecutorService executor;
+  // messages delivered to the consumers and not answered yet
+  private final AtomicInteger inFlight = new AtomicInteger();
+  // guards itself and listening
+  private final List<ConsumerRunnable> consumerRunnables = new ArrayList<>();
+  private boolean listening;
 
   @Override
   protected void setup() {
-    executor = Executors.newCachedThreadPool();
+    if (!CompressionUtils.isSupported(compressionCodec)) {
+      log.warn(
+          "Compression codec "
+              + compressionCodec
+              + " is not supported, using "
+              + CompressionUtils.GZIP);
+      compressionCodec = CompressionUtils.GZIP;
+    }
+    VnfmMetrics metrics = VnfmMetrics.get();
+    executor = metrics.monitor(Executors.newCachedThreadPool(), "vnfm-consumers");
+    metrics.gauge(
+        "vnfm.consumer.inflight",
+        "Messages received from the NFVO and not answered yet",
+        inFlight,
+        AtomicInteger::get);
+    metrics.gauge(
+        "vnfm.consumer.prefetch.utilization",
+        "Messages in flight per message the consumers prefetch, above 1 they wait for a thread",
+        inFlight,
+        count -> count.get() / (double) Math.max(consumers * prefetch, 1));
     vnfmHelper = (VnfmHelper) context.getBean("vnfmSpringHelperRabbit");
     super.setup();
   }
 
+  /**
+   * A consumer with a connection of its own. Once stopped it receives no new message, and it closes
+   * its connection once the broker confirmed the cancellation and the replies to the messages it
+   * received are published, so that no message is lost.
+   */
   private class ConsumerRunnable implements Runnable {
+
+    // messages received and not answered yet
+    private final AtomicInteger pending = new AtomicInteger();
+    // subscriptions whose cancellation the broker did not confirm yet, guarded by this
+    private int subscriptions;
+    private boolean stopped;
+    private Channel channel;
+    private DefaultConsumer consumer;
+    private String consumerTag;
+
     @Override
     public void run() {
       ConnectionFactory connectionFactory = new ConnectionFactory();
@@ -107,10 +190,19 @@ public abstract class AbstractVnfmSpringAmqp extends AbstractVnfm {
 
       try (Connection connection = connectionFactory.newConnection()) {
         final Channel channel = connection.createChannel();
-        channel.basicQos(1);
         DefaultConsumer consumer =
             new DefaultConsumer(channel) {
 
+              @Override
+              public void handleCancelOk(String consumerTag) {
+                unsubscribed();
+              }
+
+              @Override
+              public void handleCancel(String consumerTag) {
+                unsubscribed();
+              }
+
               @Override
               public void handleDelivery(
                   String consumerTag,
@@ -119,30 +211,87 @@ public abstract class AbstractVnfmSpringAmqp extends AbstractVnfm {
                   byte[] body)
                   throws IOException {
 
+                long receivedAt = System.currentTimeMillis();
+                pending.incrementAndGet();
+                inFlight.incrementAndGet();
+                VnfmMetrics.get().recordMessageSize("in", "amqp", body.length);
                 executor.execute(
                     () -> {
-                      AMQP.BasicProperties replyProps =
+                      AMQP.BasicProperties.Builder replyProps =
                           new AMQP.BasicProperties.Builder()
                               .correlationId(properties.getCorrelationId())
-                              .contentType("plain/text")
-                              .build();
+                              .contentType("plain/text");
+                      Span span =
+                          Tracer.get()
+                              .startSpan("amqp receive", extractTraceContext(properties))
+                              .setAttribute("correlation.id", properties.getCorrelationId())
+                              .setAttribute("message.size", body.length);
+                      Map<String, Object> replyHeaders = new HashMap<>();
+                      replyHeaders.put(
+                          TraceContext.TRACEPARENT, span.getContext().getTraceparent());
+                      LifecycleEvent event =
+                          LifecycleEvent.begin(Phase.RECEIVE).setPayloadSize(body.length);
 
                       NFVMessage answerMessage = null;
+                      NFVMessageEnvelope nfvMessage = null;
                       try {
-                        NFVMessage nfvMessage =
-                            gson.fromJson(
-                                getStringFromInputStream(new ByteArrayInputStream(body)),
-                                NFVMessage.class);
+                        nfvMessage =
+                            NFVMessageEnvelope.read(
+                                decompress(body, properties.getContentEncoding()), gson);
+                        nfvMessage.setCorrelationId(properties.getCorrelationId());
+                        nfvMessage.setReceivedAt(receivedAt);
+                        event
+                            .setAction(nfvMessage.getAction())
+                            .setVnfrId(nfvMessage.getVnfrId())
+                            .setNsrId(nfvMessage.getNsrId());
 
                         answerMessage = onAction(nfvMessage);
-                      } catch (NotFoundException | BadFormatException e) {
+                      } catch (NotFoundException | BadFormatException | IOException e) {
                         log.error("Error while processing message from NFVO");
+                        span.setError(e);
                         e.printStackTrace();
                       } finally {
-                        String answer = gson.toJson(answerMessage);
-                        try {
-                          channel.basicPublish(
-                              "", properties.getReplyTo(), replyProps, answer.getBytes("UTF-8"));
+                        try (PooledByteArrayOutputStream answer =
+                            PooledByteArrayOutputStream.acquire()) {
+                          VirtualNetworkFunctionRecord answerVnfr =
+                              answerMessage == null ? null : VnfmUtils.getVnfr(answerMessage);
+                          Action answerAction =
+                              answerMessage == null ? null : answerMessage.getAction();
+                          LifecycleEvent encodeEvent =
+                              LifecycleEvent.begin(Phase.ENCODE)
+                                  .setAction(answerAction)
+                                  .setVnfr(answerVnfr);
+                          if (!deltaReplies
+                              || !writeDeltaReply(
+                                  nfvMessage, properties, answerMessage, replyHeaders, answer)) {
+                            answer.writeJson(gson, answerMessage);
+                          }
+                          replyProps.headers(replyHeaders);
+                          byte[] answerBytes;
+                          if (CompressionUtils.shouldCompress(
+                              compressionThreshold, answer.size())) {
+                            answerBytes =
+                                CompressionUtils.compress(
+                                    compressionCodec, answer.getBuffer(), 0, answer.size());
+                            replyProps.contentEncoding(compressionCodec + ":UTF-8");
+                          } else {
+                            answerBytes = answer.toByteArray();
+                          }
+                          encodeEvent.setPayloadSize(answerBytes.length).close();
+                          VnfmMetrics.get().recordMessageSize("out", "amqp", answerBytes.length);
+                          try (PhaseScope publish =
+                              PhaseScope.begin(Phase.PUBLISH, "publish")
+                                  .setAction(answerAction)
+                                  .setVnfr(answerVnfr)
+                                  .setPayloadSize(answerBytes.length)) {
+                            try {
+                              channel.basicPublish(
+                                  "", properties.getReplyTo(), replyProps.build(), answerBytes);
+                            } catch (IOException e) {
+                              publish.setError(e);
+                              throw e;
+                            }
+                          }
 
                         } catch (IOException e) {
                           log.error(
@@ -150,48 +299,165 @@ public abstract class AbstractVnfmSpringAmqp extends AbstractVnfm {
                                   "Thread %s got an exception: %s",
                                   Thread.currentThread().getName(), e.getMessage()));
                           e.printStackTrace();
+                        } finally {
+                          inFlight.decrementAndGet();
+                          span.close();
+                          event.close();
+                          if (pending.decrementAndGet() == 0) {
+                            answered();
+                          }
                         }
                       }
                     });
                 channel.basicAck(envelope.getDeliveryTag(), false);
                 log.trace(String.format("Ack %d", envelope.getDeliveryTag()));
-
-                synchronized (this) {
-                  this.notify();
-                }
               }
             };
-        channel.basicConsume(vnfmHelper.getVnfmEndpoint(), false, consumer);
 
-        //loop to prevent reaching finally block
-        while (true) {
-          synchronized (consumer) {
+        synchronized (this) {
+          this.channel = channel;
+          this.consumer = consumer;
+          if (!stopped) {
+            subscribe();
+          }
+          //loop to prevent reaching finally block
+          while (!stopped || subscriptions > 0 || pending.get() > 0) {
             try {
-              consumer.wait();
+              wait();
             } catch (InterruptedException e) {
               log.info("Ctrl-c received");
               System.exit(0);
             }
           }
         }
+        log.debug("Consumer stopped");
       } catch (IOException | TimeoutException e) {
         e.printStackTrace();
       }
     }
+
+    /** Subscribes to the queue with the current prefetch, holding the lock. */
+    private void subscribe() throws IOException {
+      channel.basicQos(prefetch);
+      consumerTag = channel.basicConsume(vnfmHelper.getVnfmEndpoint(), false, consumer);
+      subscriptions++;
+    }
+
+    /** Cancels the subscription and subscribes again, to apply a new prefetch. */
+    private synchronized void resubscribe() {
+      if (channel == null || stopped) {
+        // the prefetch is applied when subscribing
+        return;
+      }
+      try {
+        channel.basicCancel(consumerTag);
+        subscribe();
+      } catch (IOException | ShutdownSignalException e) {
+        log.error("Not able to resubscribe consumer " + consumerTag + ": " + e.getMessage());
+      }
+    }
+
+    private synchronized void stop() {
+      stopped = true;
+      if (channel != null && subscriptions > 0) {
+        try {
+          channel.basicCancel(consumerTag);
+        } catch (IOException | ShutdownSignalException e) {
+          log.error("Not able to cancel consumer " + consumerTag + ": " + e.getMessage());
+          // the broker requeues what it did not deliver once the connection is closed
+          subscriptions = 0;
+        }
+      }
+      notifyAll();
+    }
+
+    private synchronized void unsubscribed() {
+      subscriptions--;
+      notifyAll();
+    }
+
+    private synchronized void answered() {
+      notifyAll();
+    }
   }
 
   private void listenOnQueues() {
     log.debug("Start listening on queues");
-
-    for (int i = 0; i < consumers; i++) {
-      Runnable listenerRunnable = new ConsumerRunnable();
-      Thread thread = new Thread(listenerRunnable);
-      thread.setDaemon(true);
-      thread.start();
+    synchronized (consumerRunnables) {
+      listening = true;
+      while (consumerRunnables.size() < consumers) {
+        startConsumer();
+      }
     }
     log.info("Started " + consumers + " consumers");
   }
 
+  private void startConsumer() {
+    ConsumerRunnable listenerRunnable = new ConsumerRunnable();
+    consumerRunnables.add(listenerRunnable);
+    Thread thread = new Thread(listenerRunnable);
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  @Override
+  public int getConsumers() {
+    return consumers;
+  }
+
+  @Override
+  public void setConsumers(int consumers) {
+    if (consumers < 0) {
+      throw new IllegalArgumentException("The number of consumers can not be negative");
+    }
+    synchronized (consumerRunnables) {
+      this.consumers = consumers;
+      if (!listening) {
+        return;
+      }
+      while (consumerRunnables.size() < consumers) {
+        startConsumer();
+      }
+      while (consumerRunnables.size() > consumers) {
+        consumerRunnables.remove(consumerRunnables.size() - 1).stop();
+      }
+    }
+    log.info("Running " + consumers + " consumers");
+  }
+
+  @Override
+  public int getPrefetch() {
+    return prefetch;
+  }
+
+  @Override
+  public void setPrefetch(int prefetch) {
+    if (prefetch < 0) {
+      throw new IllegalArgumentException("The prefetch count can not be negative");
+    }
+    synchronized (consumerRunnables) {
+      this.prefetch = prefetch;
+      for (ConsumerRunnable consumerRunnable : consumerRunnables) {
+        consumerRunnable.resubscribe();
+      }
+    }
+    log.info("Consumers prefetch " + prefetch + " messages");
+  }
+
+  @Override
+  public int getRpcTimeout() {
+    return ((VnfmSpringHelperRabbit) vnfmHelper).getTimeout();
+  }
+
+  @Override
+  public void setRpcTimeout(int rpcTimeout) {
+    if (rpcTimeout < 1) {
+      throw new IllegalArgumentException("The RPC timeout must be at least one second");
+    }
+    ((VnfmSpringHelperRabbit) vnfmHelper).setTimeout(rpcTimeout);
+    log.info("RPC timeout set to " + rpcTimeout + " seconds");
+  }
+
   /**
    * Deregisters the VNFM from the NFVO as soon as Spring sends its ContextClosedEvent.
    *
@@ -303,30 +569,72 @@ public abstract class AbstractVnfmSpringAmqp extends AbstractVnfm {
     listenOnQueues();
   }
 
-  private static String getStringFromInputStream(InputStream is) {
-
-    BufferedReader br = null;
-    StringBuilder sb = new StringBuilder();
+  /**
+   * Writes the reply with its VNFR encoded as a JSON merge patch against the VNFR of the request,
+   * if the sender of the request accepts it and if the result is smaller than the request, which
+   * carried the full record. The headers announcing the patch are added to the reply headers.
+   *
+   * @return true if the patch was written, false if the buffer is empty and the full reply must be
+   *     sent
+   */
+  private boolean writeDeltaReply(
+      NFVMessageEnvelope request,
+      AMQP.BasicProperties properties,
+      NFVMessage answerMessage,
+      Map<String, Object> replyHeaders,
+      PooledByteArrayOutputStream answer)
+      throws IOException {
+    if (request == null || answerMessage == null || !acceptsMergePatch(properties)) {
+      return false;
+    }
+    VirtualNetworkFunctionRecord vnfr = VnfmUtils.getVnfr(answerMessage);
+    if (vnfr == null || vnfr.getId() == null || !vnfr.getId().equals(request.getVnfrId())) {
+      return false;
+    }
+    JsonObject base = request.getRecordJson();
+    if (base == null || !base.has("hbVersion")) {
+      return false;
+    }
+    JsonObject reply = gson.toJsonTree(answerMessage).getAsJsonObject();
+    String field = reply.has("vnfr") ? "vnfr" : "virtualNetworkFunctionRecord";
+    JsonElement record = reply.get(field);
+    if (record == null) {
+      return false;
+    }
+    reply.add(field, JsonMergePatch.diff(base, record, VNFR_SET_MEMBERS));
+    answer.writeJson(reply);
+    if (answer.size() >= request.getSize()) {
+      answer.reset();
+      return false;
+    }
+    replyHeaders.put(VNFR_ENCODING, MERGE_PATCH);
+    replyHeaders.put(VNFR_BASE_VERSION, base.get("hbVersion").getAsInt());
+    return true;
+  }
 
-    String line;
-    try {
+  /** @return the trace context received with a message, null if there is none */
+  private static TraceContext extractTraceContext(AMQP.BasicProperties properties) {
+    if (properties.getHeaders() == null) {
+      return null;
+    }
+    Object traceparent = properties.getHeaders().get(TraceContext.TRACEPARENT);
+    Object tracestate = properties.getHeaders().get(TraceContext.TRACESTATE);
+    return TraceContext.parse(
+        traceparent == null ? null : traceparent.toString(),
+        tracestate == null ? null : tracestate.toString());
+  }
 
-      br = new BufferedReader(new InputStreamReader(is));
-      while ((line = br.readLine()) != null) {
-        sb.append(line);
-      }
-    } catch (IOException e) {
-      e.printStackTrace();
-    } finally {
-      if (br != null) {
-        try {
-          br.close();
-        } catch (IOException e) {
-          e.printStackTrace();
-        }
-      }
+  private static boolean acceptsMergePatch(AMQP.BasicProperties properties) {
+    if (properties.getHeaders() == null) {
+      return false;
     }
+    Object accepted = properties.getHeaders().get(ACCEPT_VNFR_ENCODING);
+    return accepted != null && accepted.toString().contains(MERGE_PATCH);
+  }
 
-    return sb.toString();
+  private static byte[] decompress(byte[] body, String contentEncoding) throws IOException {
+    String codec = CompressionUtils.getCodec(contentEncoding);
+    if (codec == null) return body;
+    return CompressionUtils.decompress(codec, body);
   }
 }
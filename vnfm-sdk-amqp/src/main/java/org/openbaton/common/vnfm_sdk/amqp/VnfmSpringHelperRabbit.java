@@ -20,14 +20,27 @@ import com.google.gson.Gson;
 import com.rabbitmq.client.Channel;
 import com.rabbitmq.client.Connection;
 import com.rabbitmq.client.ConnectionFactory;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
 import java.util.concurrent.TimeoutException;
 import javax.annotation.PostConstruct;
 import org.openbaton.catalogue.nfvo.EndpointType;
 import org.openbaton.catalogue.nfvo.messages.Interfaces.NFVMessage;
 import org.openbaton.common.vnfm_sdk.VnfmHelper;
 import org.openbaton.common.vnfm_sdk.amqp.configuration.RabbitConfiguration;
+import org.openbaton.common.vnfm_sdk.management.OperationRegistry;
+import org.openbaton.common.vnfm_sdk.metrics.VnfmMetrics;
+import org.openbaton.common.vnfm_sdk.tracing.Span;
+import org.openbaton.common.vnfm_sdk.tracing.TraceContext;
+import org.openbaton.common.vnfm_sdk.tracing.Tracer;
+import org.openbaton.common.vnfm_sdk.utils.CompressionUtils;
+import org.openbaton.common.vnfm_sdk.utils.LogPayload;
+import org.openbaton.common.vnfm_sdk.utils.PooledByteArrayOutputStream;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -109,7 +122,16 @@ public class VnfmSpringHelperRabbit extends VnfmHelper {
   @Autowired private RabbitTemplate rabbitTemplate;
 
   @Value("${vnfm.rabbitmq.sar.timeout:1000}")
-  private int timeout;
+  private volatile int timeout;
+
+  @Value("${vnfm.compression.threshold:-1}")
+  private int compressionThreshold;
+
+  @Value("${vnfm.compression.codec:gzip}")
+  private String compressionCodec;
+
+  @Value("${vnfm.compression.maxDecompressedSize:134217728}")
+  private int maxDecompressedSize;
 
   public boolean isExclusive() {
     return exclusive;
@@ -143,6 +165,22 @@ public class VnfmSpringHelperRabbit extends VnfmHelper {
     this.timeout = timeout;
   }
 
+  public int getCompressionThreshold() {
+    return compressionThreshold;
+  }
+
+  public void setCompressionThreshold(int compressionThreshold) {
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  public String getCompressionCodec() {
+    return compressionCodec;
+  }
+
+  public void setCompressionCodec(String compressionCodec) {
+    this.compressionCodec = compressionCodec;
+  }
+
   public RabbitTemplate getRabbitTemplate() {
     return rabbitTemplate;
   }
@@ -150,11 +188,75 @@ public class VnfmSpringHelperRabbit extends VnfmHelper {
   @PostConstruct
   private void init() {
     this.rabbitTemplate.setExchange("openbaton-exchange"); //TODO
+    if (!CompressionUtils.isSupported(compressionCodec)) {
+      log.warn(
+          "Compression codec "
+              + compressionCodec
+              + " is not supported, using "
+              + CompressionUtils.GZIP);
+      compressionCodec = CompressionUtils.GZIP;
+    }
+    CompressionUtils.setMaxDecompressedSize(maxDecompressedSize);
   }
 
   public void sendMessageToQueue(String sendToQueueName, final Serializable message) {
     log.debug("Sending message to Queue:  " + sendToQueueName);
-    rabbitTemplate.convertAndSend(sendToQueueName, gson.toJson(message));
+    rabbitTemplate.send(sendToQueueName, toMessage(message));
+  }
+
+  /**
+   * Serializes the payload into a pooled buffer and creates the AMQP message out of it, compressing
+   * it if it is bigger than the configured "vnfm.compression.threshold".
+   */
+  private Message toMessage(Object payload) {
+    MessageProperties messageProperties = new MessageProperties();
+    messageProperties.setContentType(MessageProperties.CONTENT_TYPE_TEXT_PLAIN);
+    injectTraceContext(messageProperties);
+    byte[] body;
+    try (PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire()) {
+      out.writeJson(gson, payload);
+      if (CompressionUtils.shouldCompress(compressionThreshold, out.size())) {
+        body = CompressionUtils.compress(compressionCodec, out.getBuffer(), 0, out.size());
+        messageProperties.setContentEncoding(compressionCodec + ":UTF-8");
+        log.trace("Compressed message from " + out.size() + " to " + body.length + " bytes");
+      } else {
+        body = out.toByteArray();
+        messageProperties.setContentEncoding("UTF-8");
+      }
+    } catch (IOException e) {
+      throw new AmqpException("Not able to encode message", e);
+    }
+    VnfmMetrics.get().recordMessageSize("out", "amqp", body.length);
+    return new Message(body, messageProperties);
+  }
+
+  /** Adds the trace context of the current span to the headers of an outgoing message. */
+  private static void injectTraceContext(MessageProperties messageProperties) {
+    TraceContext traceContext = Tracer.get().currentContext();
+    if (traceContext != null) {
+      messageProperties.setHeader(TraceContext.TRACEPARENT, traceContext.getTraceparent());
+      if (traceContext.getTraceState() != null) {
+        messageProperties.setHeader(TraceContext.TRACESTATE, traceContext.getTraceState());
+      }
+    }
+  }
+
+  private String fromMessage(Message message) {
+    if (message == null) return null;
+    String contentEncoding = message.getMessageProperties().getContentEncoding();
+    byte[] body = message.getBody();
+    VnfmMetrics.get().recordMessageSize("in", "amqp", body.length);
+    try {
+      String codec = CompressionUtils.getCodec(contentEncoding);
+      if (codec != null) {
+        body = CompressionUtils.decompress(codec, body);
+      }
+      return new String(body, CompressionUtils.getCharset(contentEncoding, "UTF-8"));
+    } catch (UnsupportedEncodingException e) {
+      throw new AmqpException("Unsupported content encoding " + contentEncoding, e);
+    } catch (IOException e) {
+      throw new AmqpException("Not able to decompress message", e);
+    }
   }
 
   @Override
@@ -197,10 +299,24 @@ public class VnfmSpringHelperRabbit extends VnfmHelper {
 
     rabbitTemplate.setReplyTimeout(timeout * 1000);
     rabbitTemplate.afterPropertiesSet();
-    String response =
-        (String)
-            this.rabbitTemplate.convertSendAndReceive(
-                RabbitConfiguration.queueName_vnfmCoreActionsReply, gson.toJson(message));
+    Timer.Sample sample = VnfmMetrics.get().start();
+    String response = null;
+    Span span =
+        Tracer.get().startSpan("nfvo " + message.getAction()).setAttribute("transport", "amqp");
+    OperationRegistry.Scope wait = OperationRegistry.get().awaitNfvo();
+    try {
+      response =
+          fromMessage(
+              this.rabbitTemplate.sendAndReceive(
+                  RabbitConfiguration.queueName_vnfmCoreActionsReply, toMessage(message)));
+    } finally {
+      wait.close();
+      VnfmMetrics.get().recordNfvoRequest(sample, message.getAction(), response != null);
+      if (response == null) {
+        span.setError("No answer from the NFVO");
+      }
+      span.close();
+    }
 
     return gson.fromJson(response, NFVMessage.class);
   }
@@ -212,9 +328,30 @@ public class VnfmSpringHelperRabbit extends VnfmHelper {
     rabbitTemplate.afterPropertiesSet();
 
     log.debug("Sending to: " + queueName);
-    String res =
-        (String) rabbitTemplate.convertSendAndReceive("openbaton-exchange", queueName, message);
-    log.trace("Received from EMS: " + res);
+    Timer.Sample sample = VnfmMetrics.get().start();
+    String res = null;
+    Span span = Tracer.get().startSpan("ems").setAttribute("queue", queueName);
+    OperationRegistry.Scope wait = OperationRegistry.get().awaitEms();
+    try {
+      res =
+          (String)
+              rabbitTemplate.convertSendAndReceive(
+                  "openbaton-exchange",
+                  queueName,
+                  message,
+                  request -> {
+                    injectTraceContext(request.getMessageProperties());
+                    return request;
+                  });
+    } finally {
+      wait.close();
+      VnfmMetrics.get().recordEmsRequest(sample, res != null);
+      if (res == null) {
+        span.setError("No answer from the EMS");
+      }
+      span.close();
+    }
+    log.trace("Received from EMS: {}", LogPayload.of(res));
     if (res == null) {
       log.error("After " + timeout + " seconds the ems did not answer.");
       throw new TimeoutException(
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.benchmarks;
+
+import com.google.gson.Gson;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.openbaton.catalogue.mano.descriptor.VNFComponent;
+import org.openbaton.catalogue.mano.descriptor.VirtualDeploymentUnit;
+import org.openbaton.catalogue.mano.record.VNFCInstance;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.catalogue.nfvo.Action;
+import org.openbaton.catalogue.nfvo.EndpointType;
+import org.openbaton.catalogue.nfvo.messages.Interfaces.NFVMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmGenericMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmGrantLifecycleOperationMessage;
+import org.openbaton.catalogue.nfvo.messages.VnfmOrAllocateResourcesMessage;
+import org.openbaton.catalogue.nfvo.messages.VnfmOrScalingMessage;
+import org.openbaton.catalogue.nfvo.viminstances.BaseVimInstance;
+import org.openbaton.common.vnfm_sdk.VnfmHelper;
+import org.openbaton.common.vnfm_sdk.utils.VnfmUtils;
+
+/**
+ * An NFVO stand-in answering the requests a VNFM sends while handling a lifecycle operation:
+ * GRANT_OPERATION, ALLOCATE_RESOURCES and SCALING. Resources are "allocated" by adding an active
+ * VNFC instance for every VNF component that has none.
+ *
+ * <p>Messages can go through the same JSON encoding as over AMQP, the NFVO decoding what the VNFM
+ * sends with its own configuration, and every answer can be delayed to simulate the NFVO and VIM
+ * processing time.
+ */
+public class FakeNfvo extends VnfmHelper {
+
+  private final Gson vnfmGson = SyntheticDescriptors.vnfmGson();
+  private final Gson nfvoGson = SyntheticDescriptors.nfvoGson();
+  private final boolean serialize;
+  private final long delayNanos;
+
+  private final Map<String, BaseVimInstance> vimInstances = new ConcurrentHashMap<>();
+  private final AtomicInteger ids = new AtomicInteger();
+  private final AtomicLong grants = new AtomicLong();
+  private final AtomicLong allocations = new AtomicLong();
+  private final AtomicLong scalings = new AtomicLong();
+  private final AtomicLong notifications = new AtomicLong();
+
+  private String vnfmType = "stub";
+  private String vnfmEndpoint = "stub";
+  private EndpointType vnfmEndpointType = EndpointType.RABBIT;
+
+  /**
+   * @param serialize whether requests and answers are encoded to JSON and decoded again
+   * @param delay the time the NFVO takes to answer a request
+   * @param unit the unit of the delay
+   */
+  public FakeNfvo(boolean serialize, long delay, TimeUnit unit) {
+    this.serialize = serialize;
+    this.delayNanos = unit.toNanos(delay);
+  }
+
+  @Override
+  public void sendToNfvo(NFVMessage nfvMessage) {
+    if (serialize) {
+      transfer(nfvMessage, vnfmGson, nfvoGson);
+    }
+    notifications.incrementAndGet();
+  }
+
+  @Override
+  public NFVMessage sendAndReceive(NFVMessage nfvMessage) throws Exception {
+    long start = System.nanoTime();
+    NFVMessage answer = answer(serialize ? transfer(nfvMessage, vnfmGson, nfvoGson) : nfvMessage);
+    pause(start);
+    return serialize ? transfer(answer, nfvoGson, vnfmGson) : answer;
+  }
+
+  /** Answers the EMS commands sent to a VNFC instance with a successful, empty output. */
+  @Override
+  public String sendAndReceive(String message, String queueName) throws Exception {
+    long start = System.nanoTime();
+    pause(start);
+    return "{\"output\":\"\",\"status\":0}";
+  }
+
+  private NFVMessage answer(NFVMessage request) {
+    VirtualNetworkFunctionRecord vnfr = VnfmUtils.getVnfr(request);
+    if (request instanceof VnfmOrAllocateResourcesMessage) {
+      allocations.incrementAndGet();
+      deploy(vnfr);
+      return new OrVnfmGenericMessage(vnfr, Action.ALLOCATE_RESOURCES);
+    } else if (request instanceof VnfmOrScalingMessage) {
+      scalings.incrementAndGet();
+      deploy(vnfr);
+      // not SCALING, which the VNFM would decode as an OrVnfmScalingMessage
+      return new OrVnfmGenericMessage(vnfr, Action.SCALED);
+    } else if (request.getAction() == Action.GRANT_OPERATION) {
+      grants.incrementAndGet();
+      save(vnfr);
+      Map<String, BaseVimInstance> vduVim = new HashMap<>();
+      for (VirtualDeploymentUnit virtualDeploymentUnit : vnfr.getVdu()) {
+        String vimName = virtualDeploymentUnit.getVimInstanceName().iterator().next();
+        vduVim.put(
+            virtualDeploymentUnit.getId(),
+            vimInstances.computeIfAbsent(vimName, SyntheticDescriptors::vimInstance));
+      }
+      OrVnfmGrantLifecycleOperationMessage grant = new OrVnfmGrantLifecycleOperationMessage();
+      grant.setAction(Action.GRANT_OPERATION);
+      grant.setGrantAllowed(true);
+      grant.setVirtualNetworkFunctionRecord(vnfr);
+      grant.setVduVim(vduVim);
+      return grant;
+    }
+    throw new UnsupportedOperationException("Not answering " + request.getAction());
+  }
+
+  /** Gives ids to what the VNFM created, as the NFVO does when it saves a record. */
+  private void save(VirtualNetworkFunctionRecord vnfr) {
+    if (vnfr.getId() == null) {
+      vnfr.setId("vnfr-" + ids.incrementAndGet());
+    }
+    vnfr.setHbVersion(vnfr.getHbVersion() == null ? 1 : vnfr.getHbVersion() + 1);
+    for (VirtualDeploymentUnit virtualDeploymentUnit : vnfr.getVdu()) {
+      if (virtualDeploymentUnit.getId() == null) {
+        virtualDeploymentUnit.setId("vdu-" + ids.incrementAndGet());
+      }
+      for (VNFComponent component : virtualDeploymentUnit.getVnfc()) {
+        if (component.getId() == null) {
+          component.setId("vnfc-" + ids.incrementAndGet());
+        }
+      }
+    }
+  }
+
+  /** Adds an active VNFC instance for every component without one. */
+  private void deploy(VirtualNetworkFunctionRecord vnfr) {
+    save(vnfr);
+    for (VirtualDeploymentUnit virtualDeploymentUnit : vnfr.getVdu()) {
+      Set<String> deployed = new HashSet<>();
+      for (VNFCInstance vnfcInstance : virtualDeploymentUnit.getVnfc_instance()) {
+        deployed.add(vnfcInstance.getVnfComponent().getId());
+      }
+      String vimId = virtualDeploymentUnit.getVimInstanceName().iterator().next() + "-id";
+      for (VNFComponent component : virtualDeploymentUnit.getVnfc()) {
+        if (!deployed.contains(component.getId())) {
+          virtualDeploymentUnit
+              .getVnfc_instance()
+              .add(SyntheticDescriptors.vnfcInstance(component, vimId, ids.incrementAndGet()));
+        }
+      }
+    }
+  }
+
+  private static NFVMessage transfer(NFVMessage nfvMessage, Gson sender, Gson receiver) {
+    return receiver.fromJson(sender.toJson(nfvMessage), NFVMessage.class);
+  }
+
+  private void pause(long start) {
+    long remaining = delayNanos - (System.nanoTime() - start);
+    while (remaining > 0) {
+      LockSupport.parkNanos(remaining);
+      remaining = delayNanos - (System.nanoTime() - start);
+    }
+  }
+
+  public long getGrants() {
+    return grants.get();
+  }
+
+  public long getAllocations() {
+    return allocations.get();
+  }
+
+  public long getScalings() {
+    return scalings.get();
+  }
+
+  public long getNotifications() {
+    return notifications.get();
+  }
+
+  @Override
+  public String getVnfmType() {
+    return vnfmType;
+  }
+
+  @Override
+  public void setVnfmType(String vnfmType) {
+    this.vnfmType = vnfmType;
+  }
+
+  @Override
+  public String getVnfmEndpoint() {
+    return vnfmEndpoint;
+  }
+
+  @Override
+  public void setVnfmEndpoint(String vnfmEndpoint) {
+    this.vnfmEndpoint = vnfmEndpoint;
+  }
+
+  @Override
+  public EndpointType getVnfmEndpointType() {
+    return vnfmEndpointType;
+  }
+
+  @Override
+  public void setVnfmEndpointType(EndpointType vnfmEndpointType) {
+    this.vnfmEndpointType = vnfmEndpointType;
+  }
+
+  @Override
+  public String getVnfmDescription() {
+    return "Load generator VNFM";
+  }
+
+  @Override
+  public boolean isVnfmEnabled() {
+    return true;
+  }
+}
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.benchmarks;
+
+import com.google.gson.Gson;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.openbaton.catalogue.mano.descriptor.VNFComponent;
+import org.openbaton.catalogue.mano.descriptor.VNFDConnectionPoint;
+import org.openbaton.catalogue.mano.descriptor.VirtualDeploymentUnit;
+import org.openbaton.catalogue.mano.record.VNFCInstance;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.catalogue.nfvo.Action;
+import org.openbaton.catalogue.nfvo.messages.Interfaces.NFVMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmGenericMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmHealVNFRequestMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmScalingMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmStartStopMessage;
+import org.openbaton.common.vnfm_sdk.NFVMessageEnvelope;
+import org.openbaton.common.vnfm_sdk.utils.PooledByteArrayOutputStream;
+
+/**
+ * Drives a VNFM with a mix of lifecycle operations and reports the throughput and the latency
+ * percentiles per operation. The VNFM is a {@link StubVnfm} talking to a {@link FakeNfvo}, so the
+ * figures are those of the SDK: decoding, dispatch, the grant, allocate and scaling round trips
+ * with the NFVO, and encoding the reply.
+ *
+ * <p>With a rate, operations are started on a fixed schedule whatever the latency, and the latency
+ * is measured from the scheduled start, queueing included. Without a rate, every thread starts a
+ * new operation as soon as the previous one is done. Options are given as key=value arguments:
+ *
+ * <ul>
+ *   <li>mix: the weight of each operation, default INSTANTIATE:1,SCALE_OUT:2,HEAL:1,CONFIGURE:4
+ *   <li>rate: operations per second, default 0 (as fast as possible)
+ *   <li>threads: the number of dispatching threads, default 8
+ *   <li>duration and warmup: in seconds, default 30 and 5
+ *   <li>size: the number of VDUs of the records, default 10
+ *   <li>nfvo-delay: the time in milliseconds the NFVO takes to answer, default 0
+ *   <li>serialize: whether the NFVO round trips go through JSON, default true
+ *   <li>any other key is passed to the VNFM as a conf.properties entry, like concurrency
+ * </ul>
+ */
+public class LoadGenerator {
+
+  private final Gson gson = SyntheticDescriptors.vnfmGson();
+  private final StubVnfm vnfm;
+  private final FakeNfvo nfvo;
+  private final int threads;
+  private final double rate;
+  private final long durationNanos;
+  private final long warmupNanos;
+  private final Action[] schedule;
+  private final Map<Action, byte[]> bodies = new EnumMap<>(Action.class);
+  private final Map<Action, Recorder> recorders = new EnumMap<>(Action.class);
+  private final AtomicLong next = new AtomicLong();
+  private volatile long measureFrom;
+
+  public LoadGenerator(Map<String, String> options) throws Throwable {
+    threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+    rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+    durationNanos =
+        TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "30")));
+    warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("warmup", "5")));
+    nfvo =
+        new FakeNfvo(
+            Boolean.parseBoolean(options.getOrDefault("serialize", "true")),
+            Long.parseLong(options.getOrDefault("nfvo-delay", "0")),
+            TimeUnit.MILLISECONDS);
+    Properties configuration = new Properties();
+    // let the NFVO stand-in allocate the resources, as most VNFMs do
+    configuration.setProperty("allocate", "false");
+    configuration.putAll(options);
+    vnfm = new StubVnfm(nfvo, configuration).start();
+
+    int size = Integer.parseInt(options.getOrDefault("size", "10"));
+    List<Action> weighted = new ArrayList<>();
+    for (String entry :
+        options.getOrDefault("mix", "INSTANTIATE:1,SCALE_OUT:2,HEAL:1,CONFIGURE:4").split(",")) {
+      String[] actionAndWeight = entry.trim().split(":");
+      Action action = Action.valueOf(actionAndWeight[0]);
+      int weight = actionAndWeight.length > 1 ? Integer.parseInt(actionAndWeight[1]) : 1;
+      for (int i = 0; i < weight; i++) {
+        weighted.add(action);
+      }
+      if (!bodies.containsKey(action)) {
+        bodies.put(action, encode(message(action, size)));
+        recorders.put(action, new Recorder());
+      }
+    }
+    // interleave the operations instead of running them in bursts
+    Collections.shuffle(weighted, new Random(0));
+    schedule = weighted.toArray(new Action[0]);
+  }
+
+  /** @return the message the NFVO sends for the action, on records of size VDUs */
+  private static NFVMessage message(Action action, int size) throws Throwable {
+    Map<String, String> extension = new HashMap<>();
+    extension.put("nsr-id", "nsr-id");
+    VirtualNetworkFunctionRecord vnfr = SyntheticDescriptors.vnfr(size, 1);
+    VirtualDeploymentUnit vdu = vnfr.getVdu().iterator().next();
+    VNFCInstance vnfcInstance = vdu.getVnfc_instance().iterator().next();
+    switch (action) {
+      case INSTANTIATE:
+        return SyntheticDescriptors.instantiateMessage(SyntheticDescriptors.vnfd(size, size, 1), 1);
+      case SCALE_OUT:
+      case SCALE_IN:
+        OrVnfmScalingMessage scalingMessage = new OrVnfmScalingMessage();
+        scalingMessage.setAction(action);
+        scalingMessage.setExtension(extension);
+        scalingMessage.setVirtualNetworkFunctionRecord(vnfr);
+        scalingMessage.setVimInstance(SyntheticDescriptors.vimInstance("vim-0"));
+        if (action == Action.SCALE_OUT) {
+          // the NFVO adds the component to the VDU before asking to scale out
+          VNFDConnectionPoint connectionPoint = new VNFDConnectionPoint();
+          connectionPoint.setVirtual_link_reference(
+              vnfcInstance.getConnection_point().iterator().next().getVirtual_link_reference());
+          VNFComponent component = new VNFComponent();
+          component.setId("vnfc-scaled");
+          component.setConnection_point(new HashSet<>(Arrays.asList(connectionPoint)));
+          vdu.getVnfc().add(component);
+          scalingMessage.setComponent(component);
+        } else {
+          scalingMessage.setVnfcInstance(vnfcInstance);
+        }
+        return scalingMessage;
+      case HEAL:
+        OrVnfmHealVNFRequestMessage healMessage = new OrVnfmHealVNFRequestMessage();
+        healMessage.setAction(Action.HEAL);
+        healMessage.setVirtualNetworkFunctionRecord(vnfr);
+        healMessage.setVnfcInstance(vnfcInstance);
+        healMessage.setCause("heartbeat lost");
+        return healMessage;
+      case START:
+      case STOP:
+        return new OrVnfmStartStopMessage(vnfr, null, action);
+      default:
+        return new OrVnfmGenericMessage(vnfr, action);
+    }
+  }
+
+  private byte[] encode(NFVMessage nfvMessage) throws Exception {
+    try (PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire()) {
+      out.writeJson(gson, nfvMessage);
+      return out.toByteArray();
+    }
+  }
+
+  /** Runs the load and prints the report. */
+  public void run() throws InterruptedException {
+    ExecutorService workers = Executors.newFixedThreadPool(threads);
+    long start = System.nanoTime();
+    measureFrom = start + warmupNanos;
+    long end = measureFrom + durationNanos;
+    if (rate > 0) {
+      double interval = TimeUnit.SECONDS.toNanos(1) / rate;
+      for (long i = 0; ; i++) {
+        long scheduled = start + (long) (i * interval);
+        if (scheduled >= end) {
+          break;
+        }
+        long wait;
+        while ((wait = scheduled - System.nanoTime()) > 0) {
+          LockSupport.parkNanos(wait);
+        }
+        Action action = nextAction();
+        workers.execute(() -> execute(action, scheduled));
+      }
+    } else {
+      for (int i = 0; i < threads; i++) {
+        workers.execute(
+            () -> {
+              long now;
+              while ((now = System.nanoTime()) < end) {
+                execute(nextAction(), now);
+              }
+            });
+      }
+    }
+    workers.shutdown();
+    workers.awaitTermination(1, TimeUnit.HOURS);
+    report((System.nanoTime() - measureFrom) / 1e9);
+  }
+
+  private Action nextAction() {
+    return schedule[(int) (next.getAndIncrement() % schedule.length)];
+  }
+
+  private void execute(Action action, long scheduled) {
+    boolean success;
+    try {
+      NFVMessage reply = vnfm.dispatch(NFVMessageEnvelope.read(bodies.get(action), gson));
+      if (reply != null) {
+        encode(reply);
+      }
+      success = reply == null || reply.getAction() != Action.ERROR;
+    } catch (Throwable e) {
+      success = false;
+    }
+    if (scheduled >= measureFrom) {
+      recorders.get(action).record(System.nanoTime() - scheduled, success);
+    }
+  }
+
+  private void report(double seconds) {
+    System.out.println(
+        String.format(
+            "%-12s %8s %7s %9s %9s %9s %9s %9s %9s",
+            "action",
+            "count",
+            "errors",
+            "ops/s",
+            "p50 ms",
+            "p90 ms",
+            "p99 ms",
+            "p99.9 ms",
+            "max ms"));
+    Recorder total = new Recorder();
+    for (Map.Entry<Action, Recorder> entry : recorders.entrySet()) {
+      print(entry.getKey().name(), entry.getValue(), seconds);
+      total.addAll(entry.getValue());
+    }
+    print("total", total, seconds);
+    System.out.println(
+        "NFVO requests: "
+            + nfvo.getGrants()
+            + " grants, "
+            + nfvo.getAllocations()
+            + " allocations, "
+            + nfvo.getScalings()
+            + " scalings, "
+            + nfvo.getNotifications()
+            + " notifications");
+  }
+
+  private static void print(String name, Recorder recorder, double seconds) {
+    long[] latencies = recorder.sorted();
+    System.out.println(
+        String.format(
+            "%-12s %8d %7d %9.1f %9.3f %9.3f %9.3f %9.3f %9.3f",
+            name,
+            latencies.length,
+            recorder.errors,
+            latencies.length / seconds,
+            percentile(latencies, 50),
+            percentile(latencies, 90),
+            percentile(latencies, 99),
+            percentile(latencies, 99.9),
+            percentile(latencies, 100)));
+  }
+
+  /** @return the nearest-rank percentile, in milliseconds */
+  private static double percentile(long[] sorted, double percentile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+    return sorted[Math.max(rank, 1) - 1] / 1e6;
+  }
+
+  /** The latencies of one kind of operation, in nanoseconds. */
+  private static class Recorder {
+    private long[] latencies = new long[1024];
+    private int count;
+    private long errors;
+
+    private synchronized void record(long latency, boolean success) {
+      if (count == latencies.length) {
+        latencies = Arrays.copyOf(latencies, count * 2);
+      }
+      latencies[count++] = latency;
+      if (!success) {
+        errors++;
+      }
+    }
+
+    private synchronized void addAll(Recorder other) {
+      for (long latency : other.sorted()) {
+        record(latency, true);
+      }
+      errors += other.errors;
+    }
+
+    private synchronized long[] sorted() {
+      long[] sorted = Arrays.copyOf(latencies, count);
+      Arrays.sort(sorted);
+      return sorted;
+    }
+  }
+
+  public static void main(String[] args) throws Throwable {
+    Map<String, String> options = new HashMap<>();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (separator < 0) {
+        throw new IllegalArgumentException("Expected key=value, got " + arg);
+      }
+      options.put(arg.substring(0, separator), arg.substring(separator + 1));
+    }
+    new LoadGenerator(options).run();
+    // the VNFM executor is never shut down
+    System.exit(0);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.benchmarks;
+
+import com.google.gson.Gson;
+import java.util.concurrent.TimeUnit;
+import org.openbaton.catalogue.nfvo.Action;
+import org.openbaton.catalogue.nfvo.messages.Interfaces.NFVMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmGenericMessage;
+import org.openbaton.common.vnfm_sdk.NFVMessageEnvelope;
+import org.openbaton.common.vnfm_sdk.utils.PooledByteArrayOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding and encoding of messages through the "vnfmGson" configuration: INSTANTIATE carries a
+ * descriptor and the VIM instances, CONFIGURE a deployed record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MessageCodecBenchmark {
+
+  @Param({"10", "100", "1000"})
+  public int size;
+
+  @Param({"INSTANTIATE", "CONFIGURE"})
+  public String action;
+
+  private Gson gson;
+  private NFVMessage message;
+  private byte[] body;
+
+  @Setup
+  public void setup() throws Throwable {
+    gson = SyntheticDescriptors.vnfmGson();
+    if (Action.valueOf(action) == Action.INSTANTIATE) {
+      message =
+          SyntheticDescriptors.instantiateMessage(SyntheticDescriptors.vnfd(size, size, 2), 2);
+    } else {
+      message = new OrVnfmGenericMessage(SyntheticDescriptors.vnfr(size, 1), Action.CONFIGURE);
+    }
+    try (PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire()) {
+      out.writeJson(gson, message);
+      body = out.toByteArray();
+    }
+  }
+
+  @Benchmark
+  public NFVMessage decode() throws Exception {
+    return NFVMessageEnvelope.read(body, gson).getMessage();
+  }
+
+  /** Only the envelope, what is read of the messages whose payload is not needed. */
+  @Benchmark
+  public NFVMessageEnvelope readEnvelope() throws Exception {
+    return NFVMessageEnvelope.read(body, gson);
+  }
+
+  @Benchmark
+  public int encode() throws Exception {
+    try (PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire()) {
+      out.writeJson(gson, message);
+      return out.size();
+    }
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.benchmarks;
+
+import com.google.gson.Gson;
+import java.util.concurrent.TimeUnit;
+import org.openbaton.catalogue.mano.descriptor.VirtualNetworkFunctionDescriptor;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.catalogue.nfvo.Action;
+import org.openbaton.catalogue.nfvo.messages.Interfaces.NFVMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmGenericMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmInstantiateMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmStartStopMessage;
+import org.openbaton.common.vnfm_sdk.NFVMessageEnvelope;
+import org.openbaton.common.vnfm_sdk.utils.PooledByteArrayOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dispatch of a received message by {@link StubVnfm}, from the bytes to the reply: decoding,
+ * bookkeeping and the switch on the action. INSTANTIATE carries the record already, so that no
+ * grant is requested from an NFVO.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class OnActionBenchmark {
+
+  @Param({"10", "100"})
+  public int size;
+
+  @Param({"INSTANTIATE", "CONFIGURE", "START", "INSTANTIATE_FINISH"})
+  public String action;
+
+  private final StubVnfm vnfm = new StubVnfm();
+  private Gson gson;
+  private byte[] body;
+
+  @Setup
+  public void setup() throws Throwable {
+    gson = SyntheticDescriptors.vnfmGson();
+    VirtualNetworkFunctionRecord vnfr = SyntheticDescriptors.vnfr(size, 1);
+    NFVMessage message;
+    switch (Action.valueOf(action)) {
+      case INSTANTIATE:
+        VirtualNetworkFunctionDescriptor vnfd = SyntheticDescriptors.vnfd(size, size, 2);
+        OrVnfmInstantiateMessage instantiateMessage =
+            SyntheticDescriptors.instantiateMessage(vnfd, 2);
+        instantiateMessage.setVnfr(vnfr);
+        message = instantiateMessage;
+        break;
+      case START:
+        message = new OrVnfmStartStopMessage(vnfr, null, Action.START);
+        break;
+      default:
+        message = new OrVnfmGenericMessage(vnfr, Action.valueOf(action));
+    }
+    try (PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire()) {
+      out.writeJson(gson, message);
+      body = out.toByteArray();
+    }
+  }
+
+  @Benchmark
+  public NFVMessage onAction() throws Throwable {
+    return vnfm.dispatch(NFVMessageEnvelope.read(body, gson));
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Properties;
+import javax.annotation.PostConstruct;
+import org.openbaton.catalogue.mano.descriptor.VNFComponent;
+import org.openbaton.catalogue.mano.record.VNFCInstance;
+import org.openbaton.catalogue.mano.record.VNFRecordDependency;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.catalogue.nfvo.Action;
+import org.openbaton.catalogue.nfvo.Script;
+import org.openbaton.catalogue.nfvo.messages.Interfaces.NFVMessage;
+import org.openbaton.catalogue.nfvo.viminstances.BaseVimInstance;
+import org.openbaton.common.vnfm_sdk.AbstractVnfm;
+import org.openbaton.common.vnfm_sdk.NFVMessageEnvelope;
+import org.openbaton.common.vnfm_sdk.VnfmHelper;
+import org.openbaton.common.vnfm_sdk.exception.BadFormatException;
+import org.openbaton.common.vnfm_sdk.exception.NotFoundException;
+
+/**
+ * A VNFM whose lifecycle operations return the record unchanged, so that only the work done by the
+ * SDK around them is measured. It is not registered and has no broker.
+ */
+public class StubVnfm extends AbstractVnfm {
+
+  private final Properties configuration;
+
+  /** A VNFM that is not started, enough to dispatch messages that need no NFVO. */
+  public StubVnfm() {
+    this(null, new Properties());
+  }
+
+  /**
+   * @param vnfmHelper the transport to the NFVO
+   * @param configuration what the VNFM would read from conf.properties
+   */
+  public StubVnfm(VnfmHelper vnfmHelper, Properties configuration) {
+    this.vnfmHelper = vnfmHelper;
+    this.configuration = configuration;
+  }
+
+  /** Initialises the VNFM the way the Spring container does, through its PostConstruct method. */
+  public StubVnfm start() throws Exception {
+    for (Method method : AbstractVnfm.class.getDeclaredMethods()) {
+      if (method.isAnnotationPresent(PostConstruct.class)) {
+        method.setAccessible(true);
+        method.invoke(this);
+      }
+    }
+    return this;
+  }
+
+  @Override
+  protected void loadProperties() {
+    setProperties(configuration);
+    type = configuration.getProperty("type", "stub");
+    endpoint = configuration.getProperty("endpoint", "stub");
+    endpointType = configuration.getProperty("endpoint-type", "RABBIT");
+  }
+
+  /** Dispatches a received message the way the AMQP and REST VNFMs do. */
+  public NFVMessage dispatch(NFVMessageEnvelope envelope)
+      throws NotFoundException, BadFormatException {
+    return onAction(envelope);
+  }
+
+  @Override
+  public VirtualNetworkFunctionRecord instantiate(
+      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord,
+      Object scripts,
+      Map<String, Collection<BaseVimInstance>> vimInstances) {
+    return virtualNetworkFunctionRecord;
+  }
+
+  @Override
+  public void query() {}
+
+  @Override
+  public VirtualNetworkFunctionRecord scale(
+      Action scaleOut,
+      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord,
+      VNFComponent component,
+      Object scripts,
+      VNFRecordDependency dependency) {
+    return virtualNetworkFunctionRecord;
+  }
+
+  @Override
+  public void checkInstantiationFeasibility() {}
+
+  @Override
+  public VirtualNetworkFunctionRecord heal(
+      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord,
+      VNFCInstance component,
+      String cause) {
+    return virtualNetworkFunctionRecord;
+  }
+
+  @Override
+  public VirtualNetworkFunctionRecord updateSoftware(
+      Script script, VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
+    return virtualNetworkFunctionRecord;
+  }
+
+  @Override
+  public VirtualNetworkFunctionRecord modify(
+      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord, VNFRecordDependency dependency) {
+    return virtualNetworkFunctionRecord;
+  }
+
+  @Override
+  public void upgradeSoftware() {}
+
+  @Override
+  public VirtualNetworkFunctionRecord terminate(
+      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
+    return virtualNetworkFunctionRecord;
+  }
+
+  @Override
+  public void handleError(VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {}
+
+  @Override
+  public VirtualNetworkFunctionRecord start(
+      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
+    return virtualNetworkFunctionRecord;
+  }
+
+  @Override
+  public VirtualNetworkFunctionRecord stop(
+      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
+    return virtualNetworkFunctionRecord;
+  }
+
+  @Override
+  public VirtualNetworkFunctionRecord startVNFCInstance(
+      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord, VNFCInstance vnfcInstance) {
+    return virtualNetworkFunctionRecord;
+  }
+
+  @Override
+  public VirtualNetworkFunctionRecord stopVNFCInstance(
+      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord, VNFCInstance vnfcInstance) {
+    return virtualNetworkFunctionRecord;
+  }
+
+  @Override
+  public VirtualNetworkFunctionRecord configure(
+      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
+    return virtualNetworkFunctionRecord;
+  }
+
+  @Override
+  public VirtualNetworkFunctionRecord resume(
+      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord,
+      VNFCInstance vnfcInstance,
+      VNFRecordDependency dependency) {
+    return virtualNetworkFunctionRecord;
+  }
+
+  @Override
+  public VirtualNetworkFunctionRecord executeScript(
+      VirtualNetworkFunctionRecord vnfr, Script script) {
+    return vnfr;
+  }
+
+  @Override
+  public void NotifyChange() {}
+
+  @Override
+  protected void unregister() {}
+
+  @Override
+  protected void register() {}
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.openbaton.catalogue.mano.common.DeploymentFlavour;
+import org.openbaton.catalogue.mano.common.Event;
+import org.openbaton.catalogue.mano.common.Ip;
+import org.openbaton.catalogue.mano.common.LifecycleEvent;
+import org.openbaton.catalogue.mano.common.VNFDeploymentFlavour;
+import org.openbaton.catalogue.mano.descriptor.InternalVirtualLink;
+import org.openbaton.catalogue.mano.descriptor.VNFComponent;
+import org.openbaton.catalogue.mano.descriptor.VNFDConnectionPoint;
+import org.openbaton.catalogue.mano.descriptor.VirtualDeploymentUnit;
+import org.openbaton.catalogue.mano.descriptor.VirtualNetworkFunctionDescriptor;
+import org.openbaton.catalogue.mano.record.VNFCInstance;
+import org.openbaton.catalogue.mano.record.VirtualLinkRecord;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.catalogue.nfvo.messages.Interfaces.NFVMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmInstantiateMessage;
+import org.openbaton.catalogue.nfvo.viminstances.BaseVimInstance;
+import org.openbaton.catalogue.nfvo.viminstances.OpenstackVimInstance;
+import org.openbaton.common.vnfm_sdk.utils.VNFRUtils;
+import org.openbaton.nfvo.common.configuration.NfvoGsonDeserializerNFVMessage;
+import org.openbaton.nfvo.common.configuration.NfvoGsonDeserializerVimInstance;
+import org.openbaton.nfvo.common.configuration.NfvoGsonSerializerVimInstance;
+import org.openbaton.nfvo.common.configuration.VnfmGsonDeserializerNFVMessage;
+
+/**
+ * Generates descriptors of a given size, with every collection initialised the way the NFVO sends
+ * them. All the generated data is deterministic.
+ */
+public class SyntheticDescriptors {
+
+  public static final String FLAVOUR = "m1.small";
+
+  private SyntheticDescriptors() {}
+
+  public static VirtualNetworkFunctionDescriptor vnfd(int vdus, int links, int vims) {
+    return vnfd(vdus, links, vims, 1);
+  }
+
+  /**
+   * @param vdus the number of VDUs
+   * @param links the number of internal virtual links, the VNFCs are spread over them
+   * @param vims the number of VIM instances every VDU can be deployed on
+   * @param vnfcs the number of VNFCs of every VDU
+   * @return the descriptor
+   */
+  public static VirtualNetworkFunctionDescriptor vnfd(int vdus, int links, int vims, int vnfcs) {
+    VirtualNetworkFunctionDescriptor vnfd = new VirtualNetworkFunctionDescriptor();
+    vnfd.setId("vnfd-" + vdus + "-" + links + "-" + vims + "-" + vnfcs);
+    vnfd.setHbVersion(1);
+    vnfd.setName("synthetic");
+    vnfd.setType("synthetic");
+    vnfd.setVendor("openbaton");
+    vnfd.setVersion("1.0");
+    vnfd.setEndpoint("generic");
+    vnfd.setVnfPackageLocation("package-" + vdus);
+    vnfd.setProvides(new HashSet<>(Arrays.asList("ip", "port")));
+    vnfd.setRequires(new HashMap<>());
+    vnfd.setMonitoring_parameter(new HashSet<>(Arrays.asList("cpu", "memory")));
+    vnfd.setAuto_scale_policy(new HashSet<>());
+    vnfd.setConnection_point(new HashSet<>());
+    vnfd.setLifecycle_event(lifecycleEvents(Event.INSTANTIATE, Event.CONFIGURE, Event.START));
+
+    Set<String> vimNames = new LinkedHashSet<>();
+    for (int i = 0; i < vims; i++) {
+      vimNames.add("vim-" + i);
+    }
+
+    Set<InternalVirtualLink> virtualLinks = new HashSet<>();
+    for (int i = 0; i < links; i++) {
+      InternalVirtualLink virtualLink = new InternalVirtualLink();
+      virtualLink.setId("link-id-" + i);
+      virtualLink.setName("net-" + i);
+      virtualLink.setCidr("10." + (i / 256 % 256) + "." + (i % 256) + ".0/24");
+      virtualLink.setConnection_points_references(new HashSet<>());
+      virtualLink.setQos(new HashSet<>());
+      virtualLink.setTest_access(new HashSet<>());
+      virtualLinks.add(virtualLink);
+    }
+    vnfd.setVirtual_link(virtualLinks);
+
+    Set<VirtualDeploymentUnit> vdu = new HashSet<>();
+    for (int i = 0; i < vdus; i++) {
+      VirtualDeploymentUnit virtualDeploymentUnit = new VirtualDeploymentUnit();
+      virtualDeploymentUnit.setId("vdu-id-" + i);
+      virtualDeploymentUnit.setName("vdu-" + i);
+      virtualDeploymentUnit.setMetadata(new HashMap<>());
+      virtualDeploymentUnit.setVimInstanceName(vimNames);
+      virtualDeploymentUnit.setVm_image(new HashSet<>(Arrays.asList("ubuntu-16.04")));
+      virtualDeploymentUnit.setMonitoring_parameter(new HashSet<>(Arrays.asList("cpu")));
+      virtualDeploymentUnit.setFault_management_policy(new HashSet<>());
+      virtualDeploymentUnit.setLifecycle_event(lifecycleEvents(Event.START));
+      virtualDeploymentUnit.setScale_in_out(2);
+
+      Set<VNFComponent> components = new HashSet<>();
+      for (int j = 0; j < vnfcs; j++) {
+        VNFDConnectionPoint connectionPoint = new VNFDConnectionPoint();
+        connectionPoint.setVirtual_link_reference("net-" + (links == 0 ? 0 : (i + j) % links));
+        connectionPoint.setFloatingIp("random");
+        connectionPoint.setInterfaceId(0);
+        VNFComponent component = new VNFComponent();
+        component.setId("vnfc-id-" + i + "-" + j);
+        component.setConnection_point(new HashSet<>(Arrays.asList(connectionPoint)));
+        components.add(component);
+      }
+      virtualDeploymentUnit.setVnfc(components);
+      virtualDeploymentUnit.setVnfc_instance(new HashSet<>());
+      vdu.add(virtualDeploymentUnit);
+    }
+    vnfd.setVdu(vdu);
+    return vnfd;
+  }
+
+  /** @return one record per internal virtual link of the descriptor */
+  public static Set<VirtualLinkRecord> vlrs(VirtualNetworkFunctionDescriptor vnfd) {
+    Set<VirtualLinkRecord> virtualLinkRecords = new HashSet<>();
+    for (InternalVirtualLink virtualLink : vnfd.getVirtual_link()) {
+      VirtualLinkRecord virtualLinkRecord = new VirtualLinkRecord();
+      virtualLinkRecord.setId("vlr-" + virtualLink.getId());
+      virtualLinkRecord.setName(virtualLink.getName());
+      virtualLinkRecord.setExtId("ext-" + virtualLink.getName());
+      virtualLinkRecord.setConnectivity_type("E-LAN");
+      virtualLinkRecords.add(virtualLinkRecord);
+    }
+    return virtualLinkRecords;
+  }
+
+  /** @return the VIM instances of every VDU, keyed by VDU id as the NFVO sends them */
+  public static Map<String, Collection<BaseVimInstance>> vimInstances(
+      VirtualNetworkFunctionDescriptor vnfd, int vims) {
+    List<BaseVimInstance> vimInstances = new ArrayList<>();
+    for (int i = 0; i < vims; i++) {
+      vimInstances.add(vimInstance("vim-" + i));
+    }
+    Map<String, Collection<BaseVimInstance>> result = new HashMap<>();
+    for (VirtualDeploymentUnit virtualDeploymentUnit : vnfd.getVdu()) {
+      result.put(virtualDeploymentUnit.getId(), vimInstances);
+    }
+    return result;
+  }
+
+  public static OpenstackVimInstance vimInstance(String name) {
+    OpenstackVimInstance vimInstance = new OpenstackVimInstance();
+    vimInstance.setId(name + "-id");
+    vimInstance.setHbVersion(1);
+    vimInstance.setName(name);
+    vimInstance.setType("openstack");
+    vimInstance.setActive(true);
+    Set<DeploymentFlavour> flavours = new HashSet<>();
+    for (String key : Arrays.asList("m1.tiny", FLAVOUR, "m1.medium", "m1.large")) {
+      DeploymentFlavour flavour = new DeploymentFlavour();
+      flavour.setId(name + "-" + key);
+      flavour.setExtId("ext-" + key);
+      flavour.setFlavour_key(key);
+      flavours.add(flavour);
+    }
+    vimInstance.setFlavours(flavours);
+    vimInstance.setImages(new HashSet<>());
+    vimInstance.setNetworks(new HashSet<>());
+    vimInstance.setSecurityGroups(new HashSet<>());
+    return vimInstance;
+  }
+
+  /**
+   * @param vdus the number of VDUs, and of internal virtual links
+   * @param vnfcs the number of VNFC instances of every VDU
+   * @return a deployed record, with an id and a VNFC instance for every VNFC of the descriptor
+   */
+  public static VirtualNetworkFunctionRecord vnfr(int vdus, int vnfcs) throws Throwable {
+    VirtualNetworkFunctionDescriptor vnfd = vnfd(vdus, vdus, 1, vnfcs);
+    VirtualNetworkFunctionRecord vnfr =
+        VNFRUtils.createVirtualNetworkFunctionRecord(
+            vnfd, FLAVOUR, "nsr-id", vlrs(vnfd), vimInstances(vnfd, 1));
+    vnfr.setId("vnfr-" + vdus + "-" + vnfcs);
+    vnfr.setHbVersion(1);
+    vnfr.setParent_ns_id("nsr-id");
+    int host = 0;
+    for (VirtualDeploymentUnit virtualDeploymentUnit : vnfr.getVdu()) {
+      for (VNFComponent component : virtualDeploymentUnit.getVnfc()) {
+        // the ids are given by the NFVO when it saves the record
+        component.setId("vnfc-" + host);
+        virtualDeploymentUnit.getVnfc_instance().add(vnfcInstance(component, "vim-0-id", host++));
+      }
+    }
+    return vnfr;
+  }
+
+  /** @return an active instance of the component, with one IP per connection point */
+  public static VNFCInstance vnfcInstance(VNFComponent component, String vimId, int host) {
+    VNFCInstance vnfcInstance = new VNFCInstance();
+    vnfcInstance.setId("vnfc-instance-" + host);
+    vnfcInstance.setVc_id("server-" + host);
+    vnfcInstance.setVim_id(vimId);
+    vnfcInstance.setHostname("host-" + host);
+    vnfcInstance.setState("ACTIVE");
+    vnfcInstance.setVnfComponent(component);
+    vnfcInstance.setConnection_point(component.getConnection_point());
+    Set<Ip> ips = new HashSet<>();
+    if (component.getConnection_point() != null) {
+      for (VNFDConnectionPoint connectionPoint : component.getConnection_point()) {
+        Ip ip = new Ip();
+        ip.setNetName(connectionPoint.getVirtual_link_reference());
+        ip.setIp("192.168." + (host / 256 % 256) + "." + (host % 256));
+        ips.add(ip);
+      }
+    }
+    vnfcInstance.setIps(ips);
+    vnfcInstance.setFloatingIps(new HashSet<>());
+    return vnfcInstance;
+  }
+
+  /** @return the INSTANTIATE message the NFVO sends for the descriptor */
+  public static OrVnfmInstantiateMessage instantiateMessage(
+      VirtualNetworkFunctionDescriptor vnfd, int vims) {
+    VNFDeploymentFlavour deploymentFlavour = new VNFDeploymentFlavour();
+    deploymentFlavour.setFlavour_key(FLAVOUR);
+    Map<String, String> extension = new HashMap<>();
+    extension.put("nsr-id", "nsr-id");
+    extension.put("brokerIp", "127.0.0.1");
+    extension.put("brokerPort", "5672");
+    return new OrVnfmInstantiateMessage(
+        vnfd,
+        deploymentFlavour,
+        vnfd.getName(),
+        vlrs(vnfd),
+        extension,
+        vimInstances(vnfd, vims),
+        new HashSet<>(),
+        null);
+  }
+
+  /**
+   * @return a {@link Gson} configured as the "vnfmGson" bean of the NFVO common library, which is
+   *     what the AMQP and REST VNFMs decode and encode messages with
+   */
+  public static Gson vnfmGson() {
+    return new GsonBuilder()
+        .setPrettyPrinting()
+        .registerTypeAdapter(NFVMessage.class, new VnfmGsonDeserializerNFVMessage())
+        .registerTypeAdapter(BaseVimInstance.class, new NfvoGsonDeserializerVimInstance())
+        .registerTypeAdapter(BaseVimInstance.class, new NfvoGsonSerializerVimInstance())
+        .create();
+  }
+
+  /** @return a {@link Gson} configured as the NFVO does, to decode what the VNFM sends */
+  public static Gson nfvoGson() {
+    return new GsonBuilder()
+        .setPrettyPrinting()
+        .registerTypeAdapter(NFVMessage.class, new NfvoGsonDeserializerNFVMessage())
+        .registerTypeAdapter(BaseVimInstance.class, new NfvoGsonDeserializerVimInstance())
+        .registerTypeAdapter(BaseVimInstance.class, new NfvoGsonSerializerVimInstance())
+        .create();
+  }
+
+  private static Set<LifecycleEvent> lifecycleEvents(Event... events) {
+    Set<LifecycleEvent> lifecycleEvents = new HashSet<>();
+    for (Event event : events) {
+      LifecycleEvent lifecycleEvent = new LifecycleEvent();
+      lifecycleEvent.setEvent(event);
+      lifecycleEvent.setLifecycle_events(
+          new ArrayList<>(Arrays.asList(event.name().toLowerCase() + ".sh")));
+      lifecycleEvents.add(lifecycleEvent);
+    }
+    return lifecycleEvents;
+  }
+}
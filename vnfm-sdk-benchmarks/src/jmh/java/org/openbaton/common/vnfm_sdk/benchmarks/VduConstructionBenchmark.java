@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.benchmarks;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openbaton.catalogue.mano.descriptor.VirtualNetworkFunctionDescriptor;
+import org.openbaton.catalogue.mano.record.VirtualLinkRecord;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.catalogue.nfvo.viminstances.BaseVimInstance;
+import org.openbaton.common.vnfm_sdk.utils.VNFRUtils;
+import org.openbaton.common.vnfm_sdk.utils.VduParallelism;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sequential against parallel VDU construction. The crossover is the smallest total number of VNF
+ * components (vdus * vnfcs) for which the parallel mode is faster; use it as
+ * "vnfr-parallel-vdu-threshold".
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class VduConstructionBenchmark {
+
+  @Param({"2", "8", "32", "128"})
+  public int vdus;
+
+  @Param({"1", "16", "64"})
+  public int vnfcs;
+
+  @Param({"false", "true"})
+  public boolean parallel;
+
+  private VirtualNetworkFunctionDescriptor vnfd;
+  private Set<VirtualLinkRecord> vlrs;
+  private Map<String, Collection<BaseVimInstance>> vimInstances;
+  private VduParallelism parallelism;
+
+  @Setup
+  public void setup() {
+    vnfd = SyntheticDescriptors.vnfd(vdus, 16, 2, vnfcs);
+    vlrs = SyntheticDescriptors.vlrs(vnfd);
+    vimInstances = SyntheticDescriptors.vimInstances(vnfd, 2);
+    parallelism =
+        parallel ? new VduParallelism(0, Runtime.getRuntime().availableProcessors()) : null;
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (parallelism != null) {
+      parallelism.shutdown();
+    }
+  }
+
+  @Benchmark
+  public VirtualNetworkFunctionRecord createVirtualNetworkFunctionRecord() throws Throwable {
+    return VNFRUtils.createVirtualNetworkFunctionRecord(
+        vnfd, SyntheticDescriptors.FLAVOUR, "nsr-id", vlrs, vimInstances, parallelism);
+  }
+}
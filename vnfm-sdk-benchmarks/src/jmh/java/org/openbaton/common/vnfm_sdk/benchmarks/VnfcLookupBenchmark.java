@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openbaton.catalogue.mano.descriptor.VirtualDeploymentUnit;
+import org.openbaton.catalogue.mano.record.VNFCInstance;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.common.vnfm_sdk.utils.VnfrIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookup of the VNFC instance of a VNF component on records with vdus * vnfcs instances: the scan
+ * getVnfcInstance does on SCALE_OUT against the VnfrIndex a VNFM gets from getVnfrIndex(). The
+ * component looked up is the one found last by a scan.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class VnfcLookupBenchmark {
+
+  @Param({"10", "100", "1000"})
+  public int vdus;
+
+  @Param({"1", "16"})
+  public int vnfcs;
+
+  private VirtualNetworkFunctionRecord vnfr;
+  private VnfrIndex index;
+  private String componentId;
+
+  @Setup
+  public void setup() throws Throwable {
+    vnfr = SyntheticDescriptors.vnfr(vdus, vnfcs);
+    index = new VnfrIndex(vnfr);
+    for (VirtualDeploymentUnit virtualDeploymentUnit : vnfr.getVdu()) {
+      for (VNFCInstance vnfcInstance : virtualDeploymentUnit.getVnfc_instance()) {
+        componentId = vnfcInstance.getVnfComponent().getId();
+      }
+    }
+  }
+
+  /** The nested loop over VDUs and VNFC instances that getVnfcInstance runs on SCALE_OUT. */
+  @Benchmark
+  public VNFCInstance scan() {
+    for (VirtualDeploymentUnit virtualDeploymentUnit : vnfr.getVdu()) {
+      for (VNFCInstance vnfcInstance : virtualDeploymentUnit.getVnfc_instance()) {
+        if (vnfcInstance.getVnfComponent().getId().equals(componentId)) {
+          return vnfcInstance;
+        }
+      }
+    }
+    return null;
+  }
+
+  /** A lookup through the VnfrIndex a VNFM gets from AbstractVnfm.getVnfrIndex(). */
+  @Benchmark
+  public VNFCInstance indexLookup() {
+    return index.getVnfcInstanceByComponentId(componentId);
+  }
+
+  /** What the index costs once per handled message. */
+  @Benchmark
+  public VnfrIndex indexBuild() {
+    return new VnfrIndex(vnfr);
+  }
+}
@@ -17,10 +17,19 @@
 package org.openbaton.common.vnfm_sdk.rest;
 
 import com.google.gson.Gson;
-import org.openbaton.catalogue.nfvo.messages.Interfaces.NFVMessage;
+import java.io.IOException;
 import org.openbaton.common.vnfm_sdk.AbstractVnfm;
+import org.openbaton.common.vnfm_sdk.NFVMessageEnvelope;
 import org.openbaton.common.vnfm_sdk.exception.BadFormatException;
 import org.openbaton.common.vnfm_sdk.exception.NotFoundException;
+import org.openbaton.common.vnfm_sdk.jfr.LifecycleEvent;
+import org.openbaton.common.vnfm_sdk.jfr.LifecycleEvent.Phase;
+import org.openbaton.common.vnfm_sdk.metrics.VnfmMetrics;
+import org.openbaton.common.vnfm_sdk.tracing.Span;
+import org.openbaton.common.vnfm_sdk.tracing.TraceContext;
+import org.openbaton.common.vnfm_sdk.tracing.Tracer;
+import org.openbaton.common.vnfm_sdk.utils.CompressionUtils;
+import org.openbaton.common.vnfm_sdk.utils.LogPayload;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -29,9 +38,11 @@ import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -96,19 +107,49 @@ public abstract class AbstractVnfmSpringReST extends AbstractVnfm {
     produces = MediaType.APPLICATION_JSON_VALUE
   )
   @ResponseStatus(HttpStatus.NO_CONTENT)
-  public void receive(@RequestBody /*@Valid*/ String jsonNfvMessage) {
-    log.debug("Received: " + jsonNfvMessage);
+  public void receive(
+      @RequestBody /*@Valid*/ byte[] body,
+      @RequestHeader(value = HttpHeaders.CONTENT_ENCODING, required = false) String contentEncoding,
+      @RequestHeader(value = TraceContext.TRACEPARENT, required = false) String traceparent,
+      @RequestHeader(value = TraceContext.TRACESTATE, required = false) String tracestate) {
+    VnfmMetrics.get().recordMessageSize("in", "rest", body.length);
+    try (Span span =
+            Tracer.get()
+                .startSpan("rest receive", TraceContext.parse(traceparent, tracestate))
+                .setAttribute("message.size", body.length);
+        LifecycleEvent event = LifecycleEvent.begin(Phase.RECEIVE).setPayloadSize(body.length)) {
+      String codec = CompressionUtils.getCodec(contentEncoding);
+      if (codec != null) {
+        try {
+          body = CompressionUtils.decompress(codec, body);
+        } catch (IOException e) {
+          e.printStackTrace();
+          span.setError(e);
+          throw new RuntimeException(e);
+        }
+      }
+      log.debug("Received: {}", LogPayload.of(body, 0, body.length));
 
-    NFVMessage nfvMessage = gson.fromJson(jsonNfvMessage, NFVMessage.class);
-
-    try {
-      this.onAction(nfvMessage);
-    } catch (NotFoundException e) {
-      e.printStackTrace();
-      throw new RuntimeException(e);
-    } catch (BadFormatException e) {
-      e.printStackTrace();
-      throw new RuntimeException(e);
+      try {
+        NFVMessageEnvelope envelope = NFVMessageEnvelope.read(body, gson);
+        event
+            .setAction(envelope.getAction())
+            .setVnfrId(envelope.getVnfrId())
+            .setNsrId(envelope.getNsrId());
+        this.onAction(envelope);
+      } catch (IOException e) {
+        e.printStackTrace();
+        span.setError(e);
+        throw new RuntimeException(e);
+      } catch (NotFoundException e) {
+        e.printStackTrace();
+        span.setError(e);
+        throw new RuntimeException(e);
+      } catch (BadFormatException e) {
+        e.printStackTrace();
+        span.setError(e);
+        throw new RuntimeException(e);
+      }
     }
   }
 }
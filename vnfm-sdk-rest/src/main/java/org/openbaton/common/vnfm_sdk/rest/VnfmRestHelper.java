@@ -17,9 +17,12 @@
 package org.openbaton.common.vnfm_sdk.rest;
 
 import com.google.gson.Gson;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
 import java.io.Serializable;
 import java.net.HttpURLConnection;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import javax.annotation.PostConstruct;
 import javax.net.ssl.HttpsURLConnection;
 import javax.net.ssl.SSLContext;
@@ -32,6 +35,14 @@ import org.openbaton.catalogue.nfvo.VnfmManagerEndpoint;
 import org.openbaton.catalogue.nfvo.messages.Interfaces.NFVMessage;
 import org.openbaton.common.vnfm_sdk.VnfmHelper;
 import org.openbaton.common.vnfm_sdk.exception.VnfmSdkException;
+import org.openbaton.common.vnfm_sdk.management.OperationRegistry;
+import org.openbaton.common.vnfm_sdk.metrics.VnfmMetrics;
+import org.openbaton.common.vnfm_sdk.tracing.Span;
+import org.openbaton.common.vnfm_sdk.tracing.TraceContext;
+import org.openbaton.common.vnfm_sdk.tracing.Tracer;
+import org.openbaton.common.vnfm_sdk.utils.CompressionUtils;
+import org.openbaton.common.vnfm_sdk.utils.LogPayload;
+import org.openbaton.common.vnfm_sdk.utils.PooledByteArrayOutputStream;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -41,10 +52,12 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.client.RestTemplate;
 
 /** Created by lto on 28/09/15. */
@@ -90,6 +103,15 @@ public class VnfmRestHelper extends VnfmHelper {
   @Value("${vnfm.description:unknown}")
   private String vnfmDescription;
 
+  @Value("${vnfm.compression.threshold:-1}")
+  private int compressionThreshold;
+
+  @Value("${vnfm.compression.codec:gzip}")
+  private String compressionCodec;
+
+  @Value("${vnfm.compression.maxDecompressedSize:134217728}")
+  private int maxDecompressedSize;
+
   @Autowired
   @Qualifier("vnfmGson")
   private Gson gson;
@@ -116,10 +138,20 @@ public class VnfmRestHelper extends VnfmHelper {
     this.headers = new HttpHeaders();
     headers.add("Content-Type", "application/json");
     headers.add("Accept", "application/json");
+
+    if (!CompressionUtils.isSupported(compressionCodec)) {
+      log.warn(
+          "Compression codec "
+              + compressionCodec
+              + " is not supported, using "
+              + CompressionUtils.GZIP);
+      compressionCodec = CompressionUtils.GZIP;
+    }
+    CompressionUtils.setMaxDecompressedSize(maxDecompressedSize);
   }
 
   public void sendMessageToQueue(String sendToQueueName, Serializable message) {
-    this.post("admin/v1/vnfm-core-actions", gson.toJson(message));
+    this.postJson("admin/v1/vnfm-core-actions", message);
   }
 
   @Override
@@ -154,9 +186,7 @@ public class VnfmRestHelper extends VnfmHelper {
 
   @Override
   public void sendToNfvo(NFVMessage nfvMessage) {
-    this.post(
-        "admin/v1/vnfm-core-actions",
-        gson.toJson(nfvMessage.getClass().cast(nfvMessage), nfvMessage.getClass()));
+    this.postJson("admin/v1/vnfm-core-actions", nfvMessage);
   }
 
   @Override
@@ -172,12 +202,41 @@ public class VnfmRestHelper extends VnfmHelper {
       throw new VnfmSdkException(
           "Don't know where to send message with action " + message.getAction());
 
-    return gson.fromJson(this.post(path, gson.toJson(message)), NFVMessage.class);
+    Timer.Sample sample = VnfmMetrics.get().start();
+    String response = null;
+    Span span =
+        Tracer.get().startSpan("nfvo " + message.getAction()).setAttribute("transport", "rest");
+    OperationRegistry.Scope wait = OperationRegistry.get().awaitNfvo();
+    try {
+      response = this.postJson(path, message);
+    } catch (RuntimeException e) {
+      span.setError(e);
+      throw e;
+    } finally {
+      wait.close();
+      VnfmMetrics.get().recordNfvoRequest(sample, message.getAction(), response != null);
+      span.close();
+    }
+    return gson.fromJson(response, NFVMessage.class);
   }
 
   @Override
   public String sendAndReceive(String message, String queueName) throws Exception {
-    return this.post("", message);
+    Timer.Sample sample = VnfmMetrics.get().start();
+    String response = null;
+    Span span = Tracer.get().startSpan("ems").setAttribute("queue", queueName);
+    OperationRegistry.Scope wait = OperationRegistry.get().awaitEms();
+    try {
+      response = this.post("", message);
+    } catch (RuntimeException e) {
+      span.setError(e);
+      throw e;
+    } finally {
+      wait.close();
+      VnfmMetrics.get().recordEmsRequest(sample, response != null);
+      span.close();
+    }
+    return response;
   }
 
   private String get(String path) {
@@ -189,13 +248,85 @@ public class VnfmRestHelper extends VnfmHelper {
   }
 
   private String post(String path, String json) {
-    HttpEntity<String> requestEntity = new HttpEntity<>(json, headers);
-    log.debug("url is: " + url + path);
-    log.debug("BODY is: " + json);
-    ResponseEntity<String> responseEntity =
-        rest.postForEntity(url + path, requestEntity, String.class);
+    log.debug("url is: {}{}", url, path);
+    log.debug("BODY is: {}", LogPayload.of(json));
+    byte[] body = json.getBytes(StandardCharsets.UTF_8);
+    return post(path, body, body.length);
+  }
+
+  /** Serializes the body into a pooled buffer which is then written to the HTTP request. */
+  private String postJson(String path, Object body) {
+    try (PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire()) {
+      out.writeJson(gson, body);
+      log.debug("url is: {}{}", url, path);
+      log.debug("BODY is: {}", LogPayload.of(out.getBuffer(), 0, out.size()));
+      return post(path, out.getBuffer(), out.size());
+    } catch (IOException e) {
+      throw new IllegalStateException("Not able to serialize request body", e);
+    }
+  }
+
+  private String post(String path, byte[] body, int length) {
+    byte[] compressed = null;
+    if (CompressionUtils.shouldCompress(compressionThreshold, length)) {
+      try {
+        compressed = CompressionUtils.compress(compressionCodec, body, 0, length);
+      } catch (IOException e) {
+        log.warn("Not able to compress request body, sending it uncompressed: " + e.getMessage());
+      }
+    }
+    final byte[] requestBody = compressed != null ? compressed : body;
+    final int requestLength = compressed != null ? compressed.length : length;
+    final boolean isCompressed = compressed != null;
+    final TraceContext traceContext = Tracer.get().currentContext();
+    VnfmMetrics.get().recordMessageSize("out", "rest", requestLength);
+    ResponseEntity<byte[]> responseEntity =
+        rest.execute(
+            url + path,
+            HttpMethod.POST,
+            request -> {
+              request.getHeaders().putAll(headers);
+              if (isCompressed) {
+                request.getHeaders().set(HttpHeaders.CONTENT_ENCODING, compressionCodec);
+              }
+              if (traceContext != null) {
+                request.getHeaders().set(TraceContext.TRACEPARENT, traceContext.getTraceparent());
+                if (traceContext.getTraceState() != null) {
+                  request.getHeaders().set(TraceContext.TRACESTATE, traceContext.getTraceState());
+                }
+              }
+              request.getHeaders().setContentLength(requestLength);
+              request.getBody().write(requestBody, 0, requestLength);
+            },
+            response ->
+                new ResponseEntity<>(
+                    StreamUtils.copyToByteArray(response.getBody()),
+                    response.getHeaders(),
+                    response.getStatusCode()));
     this.setStatus(responseEntity.getStatusCode());
-    return responseEntity.getBody();
+    return readBody(responseEntity);
+  }
+
+  private String readBody(ResponseEntity<byte[]> responseEntity) {
+    byte[] body = responseEntity.getBody();
+    if (body == null) return null;
+    VnfmMetrics.get().recordMessageSize("in", "rest", body.length);
+    String codec =
+        CompressionUtils.getCodec(
+            responseEntity.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    if (codec != null) {
+      try {
+        body = CompressionUtils.decompress(codec, body);
+      } catch (IOException e) {
+        throw new IllegalStateException("Not able to decompress response body", e);
+      }
+    }
+    MediaType contentType = responseEntity.getHeaders().getContentType();
+    Charset charset =
+        contentType != null && contentType.getCharset() != null
+            ? contentType.getCharset()
+            : StandardCharsets.UTF_8;
+    return new String(body, charset);
   }
 
   private void put(String path, String json) {
@@ -213,11 +344,11 @@ public class VnfmRestHelper extends VnfmHelper {
   }
 
   public void register(VnfmManagerEndpoint body) {
-    this.post("admin/v1/vnfm-register", gson.toJson(body));
+    this.postJson("admin/v1/vnfm-register", body);
   }
 
   public void unregister(VnfmManagerEndpoint body) {
-    this.post("admin/v1/vnfm-unregister", gson.toJson(body));
+    this.postJson("admin/v1/vnfm-unregister", body);
   }
 
   public HttpStatus getStatus() {
@@ -272,6 +403,22 @@ public class VnfmRestHelper extends VnfmHelper {
     return gson;
   }
 
+  public int getCompressionThreshold() {
+    return compressionThreshold;
+  }
+
+  public void setCompressionThreshold(int compressionThreshold) {
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  public String getCompressionCodec() {
+    return compressionCodec;
+  }
+
+  public void setCompressionCodec(String compressionCodec) {
+    this.compressionCodec = compressionCodec;
+  }
+
   public void setGson(Gson gson) {
     this.gson = gson;
   }
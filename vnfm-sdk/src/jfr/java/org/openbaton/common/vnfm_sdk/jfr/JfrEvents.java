@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** The JFR event types, one per {@link LifecycleEvent.Phase}. */
+final class JfrEvents {
+
+  private JfrEvents() {}
+
+  static PhaseEvent create(LifecycleEvent.Phase phase) {
+    switch (phase) {
+      case RECEIVE:
+        return new Receive();
+      case DECODE:
+        return new Decode();
+      case ON_ACTION:
+        return new OnAction();
+      case GRANT:
+        return new Grant();
+      case ALLOCATE:
+        return new Allocate();
+      case CALLBACK:
+        return new Callback();
+      case ENCODE:
+        return new Encode();
+      default:
+        return new Publish();
+    }
+  }
+
+  @Category({"Open Baton", "VNFM"})
+  @StackTrace(false)
+  abstract static class PhaseEvent extends Event {
+
+    @Label("VNFR Id")
+    String vnfrId;
+
+    @Label("NSR Id")
+    String nsrId;
+
+    @Label("Action")
+    String action;
+
+    @Label("Payload Size")
+    @DataAmount
+    long payloadSize;
+  }
+
+  @Name("org.openbaton.vnfm.Receive")
+  @Label("Message Receive")
+  @Description("Handling of a message by the transport, from its receipt to the reply")
+  static class Receive extends PhaseEvent {}
+
+  @Name("org.openbaton.vnfm.Decode")
+  @Label("Message Decode")
+  @Description("Decoding of a message received from the NFVO")
+  static class Decode extends PhaseEvent {}
+
+  @Name("org.openbaton.vnfm.OnAction")
+  @Label("onAction")
+  @Description("Handling of a decoded message by the VNFM")
+  static class OnAction extends PhaseEvent {}
+
+  @Name("org.openbaton.vnfm.Grant")
+  @Label("Grant Operation")
+  @Description("Round-trip of the grant request to the NFVO")
+  static class Grant extends PhaseEvent {}
+
+  @Name("org.openbaton.vnfm.Allocate")
+  @Label("Allocate Resources")
+  @Description("Round-trip of the allocate resources request to the NFVO")
+  static class Allocate extends PhaseEvent {}
+
+  @Name("org.openbaton.vnfm.Callback")
+  @Label("VNFM Callback")
+  @Description("A lifecycle method implemented by the VNFM")
+  static class Callback extends PhaseEvent {
+
+    @Label("Callback")
+    String callback;
+  }
+
+  @Name("org.openbaton.vnfm.Encode")
+  @Label("Reply Encode")
+  @Description("Encoding of the reply to the NFVO")
+  static class Encode extends PhaseEvent {}
+
+  @Name("org.openbaton.vnfm.Publish")
+  @Label("Reply Publish")
+  @Description("Publishing of the reply to the NFVO")
+  static class Publish extends PhaseEvent {}
+}
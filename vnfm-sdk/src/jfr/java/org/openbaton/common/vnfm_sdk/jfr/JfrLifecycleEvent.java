@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.jfr;
+
+import java.util.function.Function;
+import org.openbaton.catalogue.nfvo.Action;
+
+/**
+ * A {@link LifecycleEvent} backed by a JFR event. Compiled apart from the rest of the SDK, since it
+ * needs jdk.jfr, and only loaded, through {@link Factory}, if the JVM supports JFR.
+ */
+final class JfrLifecycleEvent extends LifecycleEvent {
+
+  private final JfrEvents.PhaseEvent event;
+
+  private JfrLifecycleEvent(JfrEvents.PhaseEvent event) {
+    this.event = event;
+  }
+
+  /** Instantiated by reflection by {@link LifecycleEvent}. */
+  static final class Factory implements Function<Phase, LifecycleEvent> {
+
+    @Override
+    public LifecycleEvent apply(Phase phase) {
+      JfrEvents.PhaseEvent event = JfrEvents.create(phase);
+      event.begin();
+      return new JfrLifecycleEvent(event);
+    }
+  }
+
+  @Override
+  public LifecycleEvent setVnfrId(String vnfrId) {
+    event.vnfrId = vnfrId;
+    return this;
+  }
+
+  @Override
+  public LifecycleEvent setNsrId(String nsrId) {
+    event.nsrId = nsrId;
+    return this;
+  }
+
+  @Override
+  public LifecycleEvent setAction(Action action) {
+    event.action = action == null ? null : action.name();
+    return this;
+  }
+
+  @Override
+  public LifecycleEvent setPayloadSize(long payloadSize) {
+    event.payloadSize = payloadSize;
+    return this;
+  }
+
+  @Override
+  public LifecycleEvent setCallback(String callback) {
+    if (event instanceof JfrEvents.Callback) {
+      ((JfrEvents.Callback) event).callback = callback;
+    }
+    return this;
+  }
+
+  @Override
+  public void close() {
+    event.commit();
+  }
+}
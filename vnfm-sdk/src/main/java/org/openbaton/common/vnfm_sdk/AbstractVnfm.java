@@ -16,17 +16,24 @@
 
 package org.openbaton.common.vnfm_sdk;
 
-import java.io.ByteArrayInputStream;
+import com.google.gson.GsonBuilder;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.management.ObjectName;
 import org.openbaton.catalogue.mano.descriptor.InternalVirtualLink;
 import org.openbaton.catalogue.mano.descriptor.VNFComponent;
 import org.openbaton.catalogue.mano.descriptor.VirtualDeploymentUnit;
@@ -37,6 +44,7 @@ import org.openbaton.catalogue.mano.record.VirtualLinkRecord;
 import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
 import org.openbaton.catalogue.nfvo.Action;
 import org.openbaton.catalogue.nfvo.Script;
+import org.openbaton.catalogue.nfvo.VNFPackage;
 import org.openbaton.catalogue.nfvo.VnfmManagerEndpoint;
 import org.openbaton.catalogue.nfvo.messages.*;
 import org.openbaton.catalogue.nfvo.messages.Interfaces.NFVMessage;
@@ -48,8 +56,33 @@ import org.openbaton.common.vnfm_sdk.exception.VnfmSdkException;
 import org.openbaton.common.vnfm_sdk.interfaces.LogDispatcher;
 import org.openbaton.common.vnfm_sdk.interfaces.VNFLifecycleChangeNotification;
 import org.openbaton.common.vnfm_sdk.interfaces.VNFLifecycleManagement;
+import org.openbaton.common.vnfm_sdk.jfr.LifecycleEvent.Phase;
+import org.openbaton.common.vnfm_sdk.management.AdminEndpoint;
+import org.openbaton.common.vnfm_sdk.management.ConsumerTuning;
+import org.openbaton.common.vnfm_sdk.management.Jmx;
+import org.openbaton.common.vnfm_sdk.management.Operation;
+import org.openbaton.common.vnfm_sdk.management.Operation.Stage;
+import org.openbaton.common.vnfm_sdk.management.OperationRegistry;
+import org.openbaton.common.vnfm_sdk.management.VnfmTuning;
+import org.openbaton.common.vnfm_sdk.metrics.PrometheusScrapeEndpoint;
+import org.openbaton.common.vnfm_sdk.metrics.VnfmMetrics;
+import org.openbaton.common.vnfm_sdk.storage.ClaimCheckedScript;
+import org.openbaton.common.vnfm_sdk.storage.FileBlobStore;
+import org.openbaton.common.vnfm_sdk.storage.OffHeapVnfrStore;
+import org.openbaton.common.vnfm_sdk.storage.ScriptPackageCache;
+import org.openbaton.common.vnfm_sdk.tracing.FileSpanExporter;
+import org.openbaton.common.vnfm_sdk.tracing.LogSpanExporter;
+import org.openbaton.common.vnfm_sdk.tracing.PhaseScope;
+import org.openbaton.common.vnfm_sdk.tracing.Tracer;
+import org.openbaton.common.vnfm_sdk.utils.LogPayload;
+import org.openbaton.common.vnfm_sdk.utils.StringPool;
 import org.openbaton.common.vnfm_sdk.utils.VNFRUtils;
+import org.openbaton.common.vnfm_sdk.utils.VduParallelism;
+import org.openbaton.common.vnfm_sdk.utils.VimInstanceCache;
 import org.openbaton.common.vnfm_sdk.utils.VnfmUtils;
+import org.openbaton.common.vnfm_sdk.utils.VnfrIndex;
+import org.openbaton.common.vnfm_sdk.utils.VnfrStateCache;
+import org.openbaton.common.vnfm_sdk.utils.VnfrTemplateCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,6 +98,22 @@ public abstract class AbstractVnfm
   protected VnfmHelper vnfmHelper;
   protected VnfmManagerEndpoint vnfmManagerEndpoint;
   private ExecutorService executor;
+  private ThreadPoolExecutor workerPool;
+  private ScriptPackageCache scriptPackageCache;
+  private int scriptsLinkTimeout;
+  private long scriptsLinkMaxSize;
+  private VnfrTemplateCache vnfrTemplateCache;
+  private VduParallelism vduParallelism;
+  private VnfrStateCache vnfrStateCache;
+  private StringPool stringPool;
+  private VimInstanceCache vimInstanceCache;
+  private VnfmMetrics metrics = VnfmMetrics.get();
+  private OperationRegistry operations = OperationRegistry.get();
+  private PrometheusScrapeEndpoint prometheusEndpoint;
+  private AdminEndpoint adminEndpoint;
+  private ObjectName tuningMBeanName;
+  private ObjectName operationsMBeanName;
+  private final ThreadLocal<VnfrIndex> vnfrIndex = new ThreadLocal<>();
   protected static String brokerIp;
   protected static String brokerPort;
   protected static String monitoringIp;
@@ -98,13 +147,200 @@ public abstract class AbstractVnfm
   protected LogDispatcher logDispatcher;
 
   @PreDestroy
-  private void shutdown() {}
+  private void shutdown() {
+    if (prometheusEndpoint != null) {
+      prometheusEndpoint.stop();
+    }
+    if (adminEndpoint != null) {
+      adminEndpoint.stop();
+    }
+    Jmx.unregister(tuningMBeanName);
+    Jmx.unregister(operationsMBeanName);
+    if (Tracer.get().getExporter() != null) {
+      Tracer.get().getExporter().close();
+    }
+    if (vduParallelism != null) {
+      vduParallelism.shutdown();
+    }
+  }
 
   @PostConstruct
   private void init() {
     setup();
-    executor =
-        Executors.newFixedThreadPool(Integer.parseInt(properties.getProperty("concurrency", "15")));
+    configureMetrics();
+    configureTracing();
+    configureManagement(configureWorkerPool());
+    configureLogging();
+    configureVnfrCreation();
+    configureCaches();
+    configureScripts();
+  }
+
+  /** Serves the metrics to Prometheus if "metrics-prometheus-port" is set. */
+  private void configureMetrics() {
+    int prometheusPort = Integer.parseInt(properties.getProperty("metrics-prometheus-port", "-1"));
+    if (prometheusPort >= 0 && !PrometheusScrapeEndpoint.isAvailable()) {
+      log.warn(
+          "\"metrics-prometheus-port\" is set but micrometer-registry-prometheus is not on the "
+              + "classpath, metrics are not served");
+    } else if (prometheusPort >= 0) {
+      try {
+        prometheusEndpoint = new PrometheusScrapeEndpoint(prometheusPort);
+        Metrics.addRegistry(prometheusEndpoint.getRegistry());
+        prometheusEndpoint.start();
+        log.info("Serving metrics on port " + prometheusEndpoint.getPort());
+      } catch (IOException e) {
+        log.error("Not able to serve metrics on port " + prometheusPort + ": " + e.getMessage());
+      }
+    }
+  }
+
+  /** Exports the spans as set by "tracing-exporter": none, log or file. */
+  private void configureTracing() {
+    String tracingExporter = properties.getProperty("tracing-exporter", "none");
+    if (tracingExporter.equalsIgnoreCase("log")) {
+      Tracer.set(new Tracer(new LogSpanExporter()));
+    } else if (tracingExporter.equalsIgnoreCase("file")) {
+      String file =
+          properties.getProperty(
+              "tracing-file", System.getProperty("java.io.tmpdir") + "/openbaton-vnfm-spans.json");
+      try {
+        Tracer.set(new Tracer(new FileSpanExporter(Paths.get(file))));
+      } catch (IOException e) {
+        log.error("Not able to write spans to " + file + ": " + e.getMessage());
+      }
+    } else if (!tracingExporter.equalsIgnoreCase("none")) {
+      log.warn("Unknown tracing exporter " + tracingExporter + ", spans are not exported");
+    }
+  }
+
+  /**
+   * Creates the pool running the operations of the VNFM, with "concurrency" threads.
+   *
+   * @return the tuning of the pool, and of the consumers if the transport has any
+   */
+  private VnfmTuning configureWorkerPool() {
+    int concurrency = Integer.parseInt(properties.getProperty("concurrency", "15"));
+    workerPool =
+        new ThreadPoolExecutor(
+            concurrency, concurrency, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    executor = metrics.monitor(workerPool, "vnfm-operations");
+    return new VnfmTuning(
+        workerPool, this instanceof ConsumerTuning ? (ConsumerTuning) this : null);
+  }
+
+  /** Exposes the tuning and the operations in flight through JMX and the admin API. */
+  private void configureManagement(VnfmTuning tuning) {
+    if (Boolean.parseBoolean(properties.getProperty("jmx-enabled", "true"))) {
+      tuningMBeanName = Jmx.register(tuning, "Tuning", type);
+      operationsMBeanName = Jmx.register(operations, "Operations", type);
+    }
+    int adminPort = Integer.parseInt(properties.getProperty("admin-port", "-1"));
+    if (adminPort >= 0) {
+      String adminAddress = properties.getProperty("admin-address", "127.0.0.1");
+      try {
+        adminEndpoint = new AdminEndpoint(tuning, operations, adminAddress, adminPort);
+        adminEndpoint.start();
+        log.info("Serving the admin API on " + adminAddress + ":" + adminEndpoint.getPort());
+      } catch (IOException e) {
+        log.error(
+            "Not able to serve the admin API on "
+                + adminAddress
+                + ":"
+                + adminPort
+                + ": "
+                + e.getMessage());
+      }
+    }
+  }
+
+  /** Sets how the payloads of the messages are logged. */
+  private void configureLogging() {
+    LogPayload.setMaxLength(
+        Integer.parseInt(properties.getProperty("log-payload-max-length", "1024")));
+    LogPayload.setFull(Boolean.parseBoolean(properties.getProperty("log-payload-full", "false")));
+  }
+
+  /** Sets up the parallel construction of VDUs and the cache of VNFR templates. */
+  private void configureVnfrCreation() {
+    int parallelVduThreshold =
+        Integer.parseInt(properties.getProperty("vnfr-parallel-vdu-threshold", "-1"));
+    if (parallelVduThreshold >= 0) {
+      vduParallelism =
+          new VduParallelism(
+              parallelVduThreshold,
+              Integer.parseInt(
+                  properties.getProperty(
+                      "vnfr-parallelism", "" + Runtime.getRuntime().availableProcessors())));
+    }
+    int templateCacheSize =
+        Integer.parseInt(properties.getProperty("vnfr-template-cache-size", "0"));
+    if (templateCacheSize > 0) {
+      vnfrTemplateCache =
+          new VnfrTemplateCache(
+              templateCacheSize,
+              Boolean.parseBoolean(properties.getProperty("vnfr-structural-sharing", "false")),
+              vduParallelism);
+    }
+  }
+
+  /** Sets up the string pool, the VIM instance cache and the VNFR state cache. */
+  private void configureCaches() {
+    int stringPoolSize = Integer.parseInt(properties.getProperty("vnfr-string-pool-size", "0"));
+    if (stringPoolSize > 0) {
+      stringPool = new StringPool(stringPoolSize);
+    }
+    int vimInstanceCacheSize =
+        Integer.parseInt(properties.getProperty("vim-instance-cache-size", "0"));
+    if (vimInstanceCacheSize > 0) {
+      vimInstanceCache = new VimInstanceCache(vimInstanceCacheSize);
+    }
+    int stateCacheSize = Integer.parseInt(properties.getProperty("vnfr-state-cache-size", "0"));
+    if (stateCacheSize > 0) {
+      long offHeapSize =
+          Long.parseLong(properties.getProperty("vnfr-state-offheap-size", "0")) * 1024 * 1024;
+      String offHeapCodec = properties.getProperty("vnfr-state-offheap-codec", "");
+      vnfrStateCache =
+          new VnfrStateCache(
+              stateCacheSize,
+              offHeapSize > 0
+                  ? new OffHeapVnfrStore(
+                      new GsonBuilder().create(),
+                      offHeapSize,
+                      OffHeapVnfrStore.DEFAULT_SEGMENT_SIZE,
+                      offHeapCodec.isEmpty() ? null : offHeapCodec)
+                  : null);
+    }
+  }
+
+  /** Sets the limits of the downloads of script links and sets up the claim check of scripts. */
+  private void configureScripts() {
+    scriptsLinkTimeout =
+        Integer.parseInt(
+            properties.getProperty(
+                "scripts-link-timeout", "" + ScriptPackageCache.DEFAULT_DOWNLOAD_TIMEOUT));
+    scriptsLinkMaxSize =
+        Long.parseLong(
+            properties.getProperty(
+                "scripts-link-max-size", "" + ScriptPackageCache.DEFAULT_MAX_DOWNLOAD_SIZE));
+    int claimCheckThreshold =
+        Integer.parseInt(properties.getProperty("claim-check-threshold", "-1"));
+    if (claimCheckThreshold >= 0) {
+      String directory =
+          properties.getProperty(
+              "claim-check-dir", System.getProperty("java.io.tmpdir") + "/openbaton-vnfm-blobs");
+      try {
+        long maxSize = Long.parseLong(properties.getProperty("claim-check-max-size", "-1"));
+        scriptPackageCache =
+            new ScriptPackageCache(
+                new FileBlobStore(Paths.get(directory), maxSize),
+                claimCheckThreshold,
+                scriptsLinkTimeout,
+                scriptsLinkMaxSize);
+      } catch (IOException e) {
+        log.error("Not able to use " + directory + " for claim-checked scripts: " + e.getMessage());
+      }
+    }
   }
 
   public String getType() {
@@ -131,8 +367,44 @@ public abstract class AbstractVnfm
     this.properties = properties;
   }
 
+  /**
+   * Logs the last known state of the VNFRs, as kept by the state cache (see {@link #queryAll()}).
+   * Requires "vnfr-state-cache-size" to be set; override it to query the VNFs themselves.
+   */
   @Override
-  public abstract void query();
+  public void query() {
+    if (vnfrStateCache == null) {
+      log.warn("Not able to answer the query, \"vnfr-state-cache-size\" is not set");
+      return;
+    }
+    for (VirtualNetworkFunctionRecord virtualNetworkFunctionRecord : queryAll()) {
+      log.info(
+          "VNFR "
+              + virtualNetworkFunctionRecord.getName()
+              + " ("
+              + virtualNetworkFunctionRecord.getId()
+              + ") version "
+              + virtualNetworkFunctionRecord.getHbVersion()
+              + " is "
+              + virtualNetworkFunctionRecord.getStatus());
+    }
+  }
+
+  /**
+   * Returns the last known state of a VNFR, as sent to the NFVO in the last reply. Requires
+   * "vnfr-state-cache-size" to be set.
+   *
+   * @param vnfrId the id of the VNFR
+   * @return a copy of the VNFR, or null if it is not known or the cache is disabled
+   */
+  public VirtualNetworkFunctionRecord query(String vnfrId) {
+    return vnfrStateCache == null ? null : vnfrStateCache.get(vnfrId);
+  }
+
+  /** @return the VNFRs whose state is known, an empty list if the cache is disabled */
+  public List<VirtualNetworkFunctionRecord> queryAll() {
+    return vnfrStateCache == null ? new ArrayList<>() : vnfrStateCache.getAll();
+  }
 
   @Override
   public abstract VirtualNetworkFunctionRecord scale(
@@ -186,6 +458,101 @@ public abstract class AbstractVnfm
     enabled = Boolean.parseBoolean(properties.getProperty("enabled", "true"));
   }
 
+  /**
+   * Dispatches a message of which only the envelope has been read. Messages whose action does not
+   * need the payload (see {@link #requiresPayload(Action)}) are never fully decoded.
+   *
+   * @param envelope the envelope of the received message
+   * @return the answer to send back to the NFVO, may be null
+   * @throws NotFoundException in case of error while sending back to the nfvo
+   * @throws BadFormatException in case of error while sending back to the nfvo
+   */
+  protected NFVMessage onAction(NFVMessageEnvelope envelope)
+      throws NotFoundException, BadFormatException {
+    if (envelope.getAction() != null && !requiresPayload(envelope.getAction())) {
+      log.debug("Skipping message with action " + envelope.getAction() + ", nothing to do");
+      return null;
+    }
+    Timer.Sample sample = metrics.start();
+    Action action = envelope.getAction();
+    boolean success = false;
+    PhaseScope phase =
+        PhaseScope.begin(Phase.ON_ACTION, "onAction")
+            .setAction(action)
+            .setVnfrId(envelope.getVnfrId())
+            .setNsrId(envelope.getNsrId())
+            .setPayloadSize(envelope.getSize());
+    Operation operation =
+        operations.begin(
+            action,
+            envelope.getVnfrId(),
+            envelope.getNsrId(),
+            System.currentTimeMillis() - envelope.getReceivedAt());
+    try {
+      NFVMessage message;
+      try (PhaseScope decode =
+          PhaseScope.begin(Phase.DECODE, "decode")
+              .setAction(action)
+              .setVnfrId(envelope.getVnfrId())
+              .setNsrId(envelope.getNsrId())
+              .setPayloadSize(envelope.getSize())) {
+        message = envelope.getMessage();
+        // the action of the envelope is only known once the body is decoded if it had no header
+        decode.setAction(message.getAction());
+      }
+      action = message.getAction();
+      phase.setAction(action);
+      operation.setAction(action);
+      canonicalizeVimInstances(message);
+      internStrings(message);
+      NFVMessage reply;
+      try (PhaseScope dispatch = PhaseScope.span("dispatch " + action).stage(Stage.CALLBACK)) {
+        reply = onAction(message);
+        if (reply != null && reply.getAction() == Action.ERROR) {
+          dispatch.setError("The VNFM answered with an error");
+        }
+      }
+      success = reply == null || reply.getAction() != Action.ERROR;
+      if (reply != null && reply.getAction() == Action.RELEASE_RESOURCES) {
+        // the VNFR is gone once its resources are released
+        VirtualNetworkFunctionRecord released = VnfmUtils.getVnfr(reply);
+        if (vnfrStateCache != null && released != null) {
+          vnfrStateCache.invalidate(released.getId());
+        }
+      } else {
+        updateState(reply);
+      }
+      return reply;
+    } finally {
+      metrics.recordAction(sample, action, success);
+      if (!success) {
+        phase.setError("Failed to handle " + action);
+      }
+      phase.close();
+      operations.end(operation);
+      vnfrIndex.remove();
+    }
+  }
+
+  /**
+   * Returns whether messages with the given action need to be decoded and passed to {@link
+   * #onAction(NFVMessage)}. Override this method if your VNFM handles one of the actions that are
+   * ignored by default.
+   *
+   * @param action the {@link Action} of the received message
+   * @return false for the actions that are ignored by {@link #onAction(NFVMessage)}
+   */
+  protected boolean requiresPayload(Action action) {
+    switch (action) {
+      case SCALING:
+      case RELEASE_RESOURCES_FINISH:
+      case INSTANTIATE_FINISH:
+        return false;
+      default:
+        return true;
+    }
+  }
+
   protected NFVMessage onAction(NFVMessage message) throws NotFoundException, BadFormatException {
 
     VirtualNetworkFunctionRecord virtualNetworkFunctionRecord = null;
@@ -205,9 +572,17 @@ public abstract class AbstractVnfm
           virtualNetworkFunctionRecord = scalingMessage.getVirtualNetworkFunctionRecord();
           VNFCInstance vnfcInstanceToRemove = scalingMessage.getVnfcInstance();
 
-          virtualNetworkFunctionRecord =
-              this.scale(
-                  Action.SCALE_IN, virtualNetworkFunctionRecord, vnfcInstanceToRemove, null, null);
+          try (PhaseScope callback =
+              callback("scale", Action.SCALE_IN, virtualNetworkFunctionRecord)) {
+            virtualNetworkFunctionRecord =
+                this.scale(
+                    Action.SCALE_IN,
+                    virtualNetworkFunctionRecord,
+                    vnfcInstanceToRemove,
+                    null,
+                    null);
+            callback.setVnfr(virtualNetworkFunctionRecord);
+          }
           nfvMessage = null;
           break;
         case SCALE_OUT:
@@ -215,6 +590,7 @@ public abstract class AbstractVnfm
           // TODO I don't know if, using a bean of this class the instance can be destroyed and recreated and
           // parameters could be lost
           getExtension(scalingMessage.getExtension());
+          checkInScripts(scalingMessage.getVnfPackage());
 
           nsrId = scalingMessage.getVirtualNetworkFunctionRecord().getParent_ns_id();
           virtualNetworkFunctionRecord = scalingMessage.getVirtualNetworkFunctionRecord();
@@ -223,7 +599,7 @@ public abstract class AbstractVnfm
           String mode = scalingMessage.getMode();
 
           log.trace("HB_VERSION == " + virtualNetworkFunctionRecord.getHbVersion());
-          log.info("Adding VNFComponent: " + component);
+          log.info("Adding VNFComponent: {}", LogPayload.of(component));
           log.trace("The mode is:" + mode);
           VNFCInstance vnfcInstance_new = null;
           if (!properties.getProperty("allocate", "true").equalsIgnoreCase("true")) {
@@ -259,13 +635,18 @@ public abstract class AbstractVnfm
             scripts = scalingMessage.getVnfPackage().getScripts();
           }
 
-          VirtualNetworkFunctionRecord vnfr =
-              this.scale(
-                  Action.SCALE_OUT,
-                  virtualNetworkFunctionRecord,
-                  vnfcInstance_new,
-                  scripts,
-                  dependency);
+          VirtualNetworkFunctionRecord vnfr;
+          try (PhaseScope callback =
+              callback("scale", Action.SCALE_OUT, virtualNetworkFunctionRecord)) {
+            vnfr =
+                this.scale(
+                    Action.SCALE_OUT,
+                    virtualNetworkFunctionRecord,
+                    vnfcInstance_new,
+                    scripts,
+                    dependency);
+            callback.setVnfr(vnfr);
+          }
           if (vnfcInstance_new == null) {
             log.warn(
                 "No new VNFCInstance found, either a bug or was not possible to instantiate it.");
@@ -303,9 +684,10 @@ public abstract class AbstractVnfm
           OrVnfmInstantiateMessage orVnfmInstantiateMessage = (OrVnfmInstantiateMessage) message;
           Map<String, String> extension = orVnfmInstantiateMessage.getExtension();
 
-          log.debug("Extensions are: " + extension);
-          log.debug("Keys are: " + orVnfmInstantiateMessage.getKeys());
+          log.debug("Extensions are: {}", LogPayload.of(extension));
+          log.debug("Keys are: {}", LogPayload.of(orVnfmInstantiateMessage.getKeys()));
           getExtension(extension);
+          checkInScripts(orVnfmInstantiateMessage.getVnfPackage());
 
           Map<String, Collection<BaseVimInstance>> vimInstances =
               orVnfmInstantiateMessage.getVimInstances();
@@ -322,16 +704,27 @@ public abstract class AbstractVnfm
             GrantOperation grantOperation = new GrantOperation();
             grantOperation.setVirtualNetworkFunctionRecord(virtualNetworkFunctionRecord);
 
-            Future<OrVnfmGrantLifecycleOperationMessage> result = executor.submit(grantOperation);
+            Timer.Sample grantSample = metrics.start();
             OrVnfmGrantLifecycleOperationMessage msg;
-            try {
-              msg = result.get();
-              if (msg == null) {
-                return null;
+            try (PhaseScope grant =
+                PhaseScope.begin(Phase.GRANT, "grant")
+                    .setAction(Action.GRANT_OPERATION)
+                    .setVnfr(virtualNetworkFunctionRecord)
+                    .stage(Stage.GRANT)) {
+              Future<OrVnfmGrantLifecycleOperationMessage> result =
+                  executor.submit(operations.wrap(Tracer.get().wrap(grantOperation)));
+              try {
+                msg = result.get();
+                metrics.recordOperation(grantSample, "grant", msg != null);
+                if (msg == null) {
+                  return null;
+                }
+              } catch (ExecutionException e) {
+                metrics.recordOperation(grantSample, "grant", false);
+                grant.setError(e.getCause());
+                log.error("Got exception while granting vms");
+                throw e.getCause();
               }
-            } catch (ExecutionException e) {
-              log.error("Got exception while granting vms");
-              throw e.getCause();
             }
 
             virtualNetworkFunctionRecord = msg.getVirtualNetworkFunctionRecord();
@@ -348,36 +741,52 @@ public abstract class AbstractVnfm
                   && orVnfmInstantiateMessage.getVnfPackage().getScripts() != null)
                 allocateResources.setCustomUserData(
                     getUserDataFromPackage(orVnfmInstantiateMessage.getVnfPackage().getScripts()));
-              try {
-                virtualNetworkFunctionRecord = executor.submit(allocateResources).get();
-                if (virtualNetworkFunctionRecord == null) {
-                  return null;
+              Timer.Sample allocateSample = metrics.start();
+              try (PhaseScope allocate =
+                  PhaseScope.begin(Phase.ALLOCATE, "allocate")
+                      .setAction(Action.ALLOCATE_RESOURCES)
+                      .setVnfr(virtualNetworkFunctionRecord)
+                      .stage(Stage.ALLOCATE)) {
+                try {
+                  virtualNetworkFunctionRecord =
+                      executor.submit(operations.wrap(Tracer.get().wrap(allocateResources))).get();
+                  metrics.recordOperation(
+                      allocateSample, "allocate", virtualNetworkFunctionRecord != null);
+                  if (virtualNetworkFunctionRecord == null) {
+                    return null;
+                  }
+                } catch (ExecutionException e) {
+                  metrics.recordOperation(allocateSample, "allocate", false);
+                  allocate.setError(e.getCause());
+                  log.error("Got exception while allocating vms");
+                  throw e.getCause();
                 }
-              } catch (ExecutionException e) {
-                log.error("Got exception while allocating vms");
-                throw e.getCause();
               }
             }
             log.trace("ALLOCATE: HB VERSION IS: " + virtualNetworkFunctionRecord.getHbVersion());
             setupProvides(virtualNetworkFunctionRecord);
           } else virtualNetworkFunctionRecord = orVnfmInstantiateMessage.getVnfr();
-          if (orVnfmInstantiateMessage.getVnfPackage() != null) {
-            if (orVnfmInstantiateMessage.getVnfPackage().getScriptsLink() != null) {
-              virtualNetworkFunctionRecord =
-                  instantiate(
-                      virtualNetworkFunctionRecord,
-                      orVnfmInstantiateMessage.getVnfPackage().getScriptsLink(),
-                      vimInstances);
+          try (PhaseScope callback =
+              callback("instantiate", Action.INSTANTIATE, virtualNetworkFunctionRecord)) {
+            if (orVnfmInstantiateMessage.getVnfPackage() != null) {
+              if (orVnfmInstantiateMessage.getVnfPackage().getScriptsLink() != null) {
+                virtualNetworkFunctionRecord =
+                    instantiate(
+                        virtualNetworkFunctionRecord,
+                        orVnfmInstantiateMessage.getVnfPackage().getScriptsLink(),
+                        vimInstances);
+              } else {
+                virtualNetworkFunctionRecord =
+                    instantiate(
+                        virtualNetworkFunctionRecord,
+                        orVnfmInstantiateMessage.getVnfPackage().getScripts(),
+                        vimInstances);
+              }
             } else {
               virtualNetworkFunctionRecord =
-                  instantiate(
-                      virtualNetworkFunctionRecord,
-                      orVnfmInstantiateMessage.getVnfPackage().getScripts(),
-                      vimInstances);
+                  instantiate(virtualNetworkFunctionRecord, null, vimInstances);
             }
-          } else {
-            virtualNetworkFunctionRecord =
-                instantiate(virtualNetworkFunctionRecord, null, vimInstances);
+            callback.setVnfr(virtualNetworkFunctionRecord);
           }
           nfvMessage = VnfmUtils.getNfvMessage(Action.INSTANTIATE, virtualNetworkFunctionRecord);
           break;
@@ -410,8 +819,12 @@ public abstract class AbstractVnfm
           orVnfmGenericMessage = (OrVnfmGenericMessage) message;
           virtualNetworkFunctionRecord = orVnfmGenericMessage.getVnfr();
           nsrId = orVnfmGenericMessage.getVnfr().getParent_ns_id();
-          nfvMessage =
-              VnfmUtils.getNfvMessage(Action.CONFIGURE, configure(orVnfmGenericMessage.getVnfr()));
+          try (PhaseScope callback =
+              callback("configure", Action.CONFIGURE, virtualNetworkFunctionRecord)) {
+            VirtualNetworkFunctionRecord configured = configure(orVnfmGenericMessage.getVnfr());
+            callback.setVnfr(configured);
+            nfvMessage = VnfmUtils.getNfvMessage(Action.CONFIGURE, configured);
+          }
           break;
         case START:
           {
@@ -536,45 +949,158 @@ public abstract class AbstractVnfm
         }
       }
       return VnfmUtils.getNfvErrorMessage(virtualNetworkFunctionRecord, e, nsrId);
+    } finally {
+      vnfrIndex.remove();
     }
     return null;
   }
 
-  private String getUserDataFromPackage(Set<Script> scripts) throws UnsupportedEncodingException {
+  private String getUserDataFromPackage(Set<Script> scripts) {
     String userdata = null;
     for (Script script : scripts) {
       if (script.getName().equals("userdata.sh") || script.getName().equals("user-data.sh")) {
-        ByteArrayInputStream bis = new ByteArrayInputStream(script.getPayload());
-        Scanner s = new Scanner(bis).useDelimiter("\\A");
-        return s.hasNext() ? s.next() : "";
+        ByteBuffer payload = ClaimCheckedScript.payloadOf(script);
+        return Charset.defaultCharset().decode(payload).toString();
       }
     }
     return userdata;
   }
 
+  /**
+   * Moves the payload of the package scripts bigger than "claim-check-threshold" bytes to the blob
+   * store, so that they are not kept in the heap while the VNF is handled. The payloads are read
+   * back from memory mapped files when needed. Packages already seen with the same content reuse
+   * the scripts stored the first time. For a package with a scripts link, only its version is
+   * recorded, see {@link #getScriptsFromLink(String)}.
+   *
+   * @param vnfPackage the package of the received message, may be null
+   */
+  protected void checkInScripts(VNFPackage vnfPackage) {
+    if (scriptPackageCache == null || vnfPackage == null) return;
+    if (vnfPackage.getScriptsLink() != null) {
+      scriptPackageCache.checkInLink(vnfPackage);
+    } else if (vnfPackage.getScripts() != null) {
+      vnfPackage.setScripts(scriptPackageCache.checkIn(vnfPackage));
+    }
+  }
+
+  /**
+   * Returns the content behind the scripts link of a VNF package, for the implementations of
+   * instantiate and scale that receive a link. The download is bounded by "scripts-link-timeout"
+   * milliseconds and "scripts-link-max-size" bytes. When the claim-check is enabled the content is
+   * downloaded once per version of the package and then read from the local cache.
+   *
+   * @param scriptsLink the link passed to instantiate or scale
+   * @return the content of the link
+   * @throws IOException if the content can not be downloaded
+   */
+  protected ByteBuffer getScriptsFromLink(String scriptsLink) throws IOException {
+    if (scriptPackageCache == null) {
+      return ByteBuffer.wrap(
+          ScriptPackageCache.download(scriptsLink, scriptsLinkTimeout, scriptsLinkMaxSize));
+    }
+    return scriptPackageCache.getScriptsLink(scriptsLink);
+  }
+
+  /**
+   * Returns the index of the VDUs and VNFC instances of a record. The index is built on the first
+   * call and then reused for the same record until the current message has been handled; add and
+   * remove VNFC instances through the index to keep it up to date. Building the index walks the
+   * whole record, so it only pays off for several lookups.
+   *
+   * @param virtualNetworkFunctionRecord the record of the message being handled
+   * @return the index of the record
+   */
+  protected VnfrIndex getVnfrIndex(VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
+    VnfrIndex index = vnfrIndex.get();
+    if (index == null || index.getRecord() != virtualNetworkFunctionRecord) {
+      index = new VnfrIndex(virtualNetworkFunctionRecord);
+      vnfrIndex.set(index);
+    }
+    return index;
+  }
+
   private VNFCInstance getVnfcInstance(
       VirtualNetworkFunctionRecord virtualNetworkFunctionRecord, VNFComponent component) {
     VNFCInstance vnfcInstance_new = null;
-    boolean found = false;
+    // a single lookup, building a VnfrIndex would cost more than scanning the record
     for (VirtualDeploymentUnit virtualDeploymentUnit : virtualNetworkFunctionRecord.getVdu()) {
       for (VNFCInstance vnfcInstance : virtualDeploymentUnit.getVnfc_instance()) {
         if (vnfcInstance.getVnfComponent().getId().equals(component.getId())) {
           vnfcInstance_new = vnfcInstance;
-          fillProvidesVNFC(virtualNetworkFunctionRecord, vnfcInstance);
-          found = true;
-          log.debug("VNFComponentInstance FOUND : " + vnfcInstance_new.getVnfComponent());
           break;
         }
       }
-      if (found) {
+      if (vnfcInstance_new != null) {
         break;
       }
     }
+    if (vnfcInstance_new != null) {
+      fillProvidesVNFC(virtualNetworkFunctionRecord, vnfcInstance_new);
+      log.debug(
+          "VNFComponentInstance FOUND : {}", LogPayload.of(vnfcInstance_new.getVnfComponent()));
+    }
     return vnfcInstance_new;
   }
 
+  /** Replaces the VIM instances of a decoded message by their cached instances, if enabled. */
+  private void canonicalizeVimInstances(NFVMessage nfvMessage) {
+    if (vimInstanceCache == null) {
+      return;
+    }
+    if (nfvMessage instanceof OrVnfmInstantiateMessage) {
+      vimInstanceCache.canonicalize(
+          ((OrVnfmInstantiateMessage) nfvMessage).getVimInstances(), stringPool);
+    } else if (nfvMessage instanceof OrVnfmScalingMessage) {
+      OrVnfmScalingMessage scalingMessage = (OrVnfmScalingMessage) nfvMessage;
+      scalingMessage.setVimInstance(
+          vimInstanceCache.canonicalize(scalingMessage.getVimInstance(), stringPool));
+    }
+  }
+
+  /**
+   * Replaces the repeated strings of a decoded message by pooled ones, if the pool is enabled. The
+   * VIM instances are left to {@link #canonicalizeVimInstances} when the cache is enabled: the
+   * canonical ones are shared with other messages and must not be modified here.
+   */
+  private void internStrings(NFVMessage nfvMessage) {
+    if (stringPool == null) {
+      return;
+    }
+    stringPool.intern(VnfmUtils.getVnfr(nfvMessage));
+    if (vimInstanceCache == null
+        && nfvMessage instanceof OrVnfmInstantiateMessage
+        && ((OrVnfmInstantiateMessage) nfvMessage).getVimInstances() != null) {
+      for (Collection<BaseVimInstance> vimInstances :
+          ((OrVnfmInstantiateMessage) nfvMessage).getVimInstances().values()) {
+        for (BaseVimInstance vimInstance : vimInstances) {
+          stringPool.intern(vimInstance);
+        }
+      }
+    }
+  }
+
+  /** Starts the phase of a lifecycle method implemented by the VNFM. */
+  private static PhaseScope callback(
+      String callback, Action action, VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
+    return PhaseScope.begin(Phase.CALLBACK, "callback " + callback)
+        .setCallback(callback)
+        .setAction(action)
+        .setVnfr(virtualNetworkFunctionRecord);
+  }
+
+  /**
+   * Caches the VNFR carried by a reply to the NFVO. Only replies are cached: they hold the latest
+   * state, and caching every message would serialize the record once more each time.
+   */
+  private void updateState(NFVMessage nfvMessage) {
+    if (vnfrStateCache != null) {
+      vnfrStateCache.update(VnfmUtils.getVnfr(nfvMessage));
+    }
+  }
+
   private void getExtension(Map<String, String> extension) {
-    log.debug("Extensions are: " + extension);
+    log.debug("Extensions are: {}", LogPayload.of(extension));
 
     brokerIp = extension.get("brokerIp");
     brokerPort = extension.get("brokerPort");
@@ -622,22 +1148,37 @@ public abstract class AbstractVnfm
       throws BadFormatException, NotFoundException {
     try {
       VirtualNetworkFunctionRecord virtualNetworkFunctionRecord =
-          VNFRUtils.createVirtualNetworkFunctionRecord(
-              virtualNetworkFunctionDescriptor,
-              flavourId,
-              extension.get("nsr-id"),
-              virtualLinkRecords,
-              vimInstances);
+          vnfrTemplateCache != null
+              ? vnfrTemplateCache.createVirtualNetworkFunctionRecord(
+                  virtualNetworkFunctionDescriptor,
+                  flavourId,
+                  extension.get("nsr-id"),
+                  virtualLinkRecords,
+                  vimInstances)
+              : VNFRUtils.createVirtualNetworkFunctionRecord(
+                  virtualNetworkFunctionDescriptor,
+                  flavourId,
+                  extension.get("nsr-id"),
+                  virtualLinkRecords,
+                  vimInstances,
+                  vduParallelism);
+      Map<String, VirtualLinkRecord> virtualLinkRecordsByName =
+          VNFRUtils.indexByName(virtualLinkRecords);
       for (InternalVirtualLink internalVirtualLink :
           virtualNetworkFunctionRecord.getVirtual_link()) {
-        for (VirtualLinkRecord virtualLinkRecord : virtualLinkRecords) {
-          if (internalVirtualLink.getName().equals(virtualLinkRecord.getName())) {
-            internalVirtualLink.setExtId(virtualLinkRecord.getExtId());
-            internalVirtualLink.setConnectivity_type(virtualLinkRecord.getConnectivity_type());
-          }
+        VirtualLinkRecord virtualLinkRecord =
+            virtualLinkRecordsByName.get(internalVirtualLink.getName());
+        if (virtualLinkRecord != null) {
+          internalVirtualLink.setExtId(virtualLinkRecord.getExtId());
+          internalVirtualLink.setConnectivity_type(virtualLinkRecord.getConnectivity_type());
         }
       }
-      log.debug("Created VirtualNetworkFunctionRecordShort: " + virtualNetworkFunctionRecord);
+      if (stringPool != null) {
+        stringPool.intern(virtualNetworkFunctionRecord);
+      }
+      log.debug(
+          "Created VirtualNetworkFunctionRecordShort: {}",
+          LogPayload.of(virtualNetworkFunctionRecord));
       return virtualNetworkFunctionRecord;
     } catch (NotFoundException | BadFormatException e) {
       e.printStackTrace();
@@ -774,13 +1315,16 @@ public abstract class AbstractVnfm
           //          boolean customUserDataStartsWithShebang = customUserData.startsWith("#!");
           //          boolean userDataIsEmpty = userData.isEmpty();
           //          if (!customUserDataStartsWithShebang && userDataIsEmpty)
-          //            throw new VnfmSdkException("Custom User Data does not have the shebang line!");
+          //            throw new VnfmSdkException("Custom User Data does not have the shebang
+          // line!");
           //          else if (!userDataIsEmpty && customUserDataStartsWithShebang)
           //            throw new VnfmSdkException(
-          //                "Custom User Data starts with the shebang line and you are appending it to the already existing User Data! remove the shebang line from your User Data in the package.");
+          //                "Custom User Data starts with the shebang line and you are appending it
+          // to the already existing User Data! remove the shebang line from your User Data in the
+          // package.");
           userData += customUserData;
         }
-        log.debug("Userdata sent to NFVO: " + userData);
+        log.debug("Userdata sent to NFVO: {}", LogPayload.of(userData));
         response =
             vnfmHelper.sendAndReceive(
                 VnfmUtils.getNfvInstantiateMessage(
@@ -800,7 +1344,7 @@ public abstract class AbstractVnfm
               virtualNetworkFunctionRecord);
         }
         OrVnfmGenericMessage orVnfmGenericMessage = (OrVnfmGenericMessage) response;
-        log.debug("Received from ALLOCATE: " + orVnfmGenericMessage.getVnfr());
+        log.debug("Received from ALLOCATE: {}", LogPayload.of(orVnfmGenericMessage.getVnfr()));
         return orVnfmGenericMessage.getVnfr();
       }
       return null;
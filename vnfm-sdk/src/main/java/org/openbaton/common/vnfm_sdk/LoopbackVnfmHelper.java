@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk;
+
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.openbaton.catalogue.nfvo.EndpointType;
+import org.openbaton.catalogue.nfvo.messages.Interfaces.NFVMessage;
+import org.openbaton.common.vnfm_sdk.tracing.PhaseScope;
+
+/**
+ * Connects a VNFM to an NFVO, or to a test, running in the same JVM, through in-memory queues
+ * instead of a broker or an HTTP server.
+ *
+ * <p>On the VNFM side this is a {@link VnfmHelper} like the Rabbit and REST ones: set it as the
+ * helper of the VNFM with {@link #connect(AbstractVnfm)} in its setup method, before calling
+ * super.setup(). On the NFVO side, {@link #send(NFVMessage)} hands a message to the VNFM and
+ * completes with its answer, and {@link #take()} or {@link #poll(long, TimeUnit)} return what the
+ * VNFM sends: notifications, requests such as grants and allocations, and EMS commands. Requests
+ * are answered with {@link Request#answer(Object)}.
+ *
+ * <p>By default messages are handed over by reference, without any serialization, so both sides
+ * must not modify a message once sent. Given the VNFM and NFVO {@link Gson} configurations, every
+ * message is encoded and decoded again on the way, as over a real transport.
+ */
+public class LoopbackVnfmHelper extends VnfmHelper {
+
+  private final Gson vnfmGson;
+  private final Gson nfvoGson;
+  private final BlockingQueue<Request<?>> requests = new LinkedBlockingQueue<>();
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private AbstractVnfm vnfm;
+
+  private int timeout = 1000;
+  private String vnfmType = "unknown";
+  private String vnfmEndpoint = "loopback";
+  private EndpointType vnfmEndpointType = EndpointType.RABBIT;
+  private String vnfmDescription = "unknown";
+  private boolean enabled = true;
+
+  /** A loopback handing messages over by reference. */
+  public LoopbackVnfmHelper() {
+    this(null, null);
+  }
+
+  /**
+   * @param vnfmGson decodes what the NFVO sends, like the "vnfmGson" bean; null for no
+   *     serialization
+   * @param nfvoGson decodes what the VNFM sends, like the NFVO does; null for no serialization
+   */
+  public LoopbackVnfmHelper(Gson vnfmGson, Gson nfvoGson) {
+    if ((vnfmGson == null) != (nfvoGson == null)) {
+      throw new IllegalArgumentException("Either both or none of the Gson instances must be given");
+    }
+    this.vnfmGson = vnfmGson;
+    this.nfvoGson = nfvoGson;
+  }
+
+  /**
+   * Makes this the helper of the VNFM, and the VNFM the receiver of {@link #send(NFVMessage)}.
+   *
+   * @param vnfm the VNFM
+   */
+  public void connect(AbstractVnfm vnfm) {
+    this.vnfm = vnfm;
+    vnfm.vnfmHelper = this;
+  }
+
+  /**
+   * Hands a message to the VNFM, as the NFVO does, and handles it on a thread of its own.
+   *
+   * @param nfvMessage the message for the VNFM
+   * @return the answer of the VNFM, completed with null if it has none
+   */
+  public CompletableFuture<NFVMessage> send(NFVMessage nfvMessage) {
+    if (vnfm == null) {
+      throw new IllegalStateException("No VNFM connected");
+    }
+    NFVMessageEnvelope envelope;
+    if (vnfmGson == null) {
+      envelope = NFVMessageEnvelope.of(nfvMessage);
+    } else {
+      try {
+        envelope =
+            NFVMessageEnvelope.read(
+                nfvoGson.toJson(nfvMessage).getBytes(StandardCharsets.UTF_8), vnfmGson);
+      } catch (IOException e) {
+        throw new IllegalArgumentException("Not able to encode " + nfvMessage.getAction(), e);
+      }
+    }
+    return CompletableFuture.supplyAsync(
+        () -> {
+          try {
+            return transfer(vnfm.onAction(envelope), vnfmGson, nfvoGson);
+          } catch (Throwable e) {
+            throw new CompletionException(e);
+          }
+        },
+        executor);
+  }
+
+  /** @return the next message sent by the VNFM, waiting for one */
+  public Request<?> take() throws InterruptedException {
+    return requests.take();
+  }
+
+  /** @return the next message sent by the VNFM, or null if there is none within the timeout */
+  public Request<?> poll(long timeout, TimeUnit unit) throws InterruptedException {
+    return requests.poll(timeout, unit);
+  }
+
+  /** @return the number of messages sent by the VNFM not taken yet */
+  public int getPending() {
+    return requests.size();
+  }
+
+  /** Stops the threads handling the messages sent to the VNFM. */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+  @Override
+  public void sendToNfvo(NFVMessage nfvMessage) {
+    requests.add(
+        new Request<>(transfer(nfvMessage, vnfmGson, nfvoGson), null, null, vnfmGson, nfvoGson));
+  }
+
+  @Override
+  public NFVMessage sendAndReceive(NFVMessage nfvMessage) throws Exception {
+    CompletableFuture<NFVMessage> answer = new CompletableFuture<>();
+    try (PhaseScope request =
+        PhaseScope.span("nfvo " + nfvMessage.getAction())
+            .setAttribute("transport", "loopback")
+            .awaitNfvo()) {
+      requests.add(
+          new Request<>(
+              transfer(nfvMessage, vnfmGson, nfvoGson), null, answer, vnfmGson, nfvoGson));
+      return await(answer, "the NFVO did not answer", request);
+    }
+  }
+
+  @Override
+  public String sendAndReceive(String message, String queueName) throws Exception {
+    CompletableFuture<String> answer = new CompletableFuture<>();
+    try (PhaseScope request = PhaseScope.span("ems").setAttribute("queue", queueName).awaitEms()) {
+      requests.add(new Request<>(message, queueName, answer, null, null));
+      return await(answer, "the ems did not answer", request);
+    }
+  }
+
+  /** Waits for the answer to a request, recording a failure on the phase of the request. */
+  private <T> T await(CompletableFuture<T> answer, String what, PhaseScope request)
+      throws Exception {
+    try {
+      return answer.get(timeout, TimeUnit.SECONDS);
+    } catch (TimeoutException e) {
+      log.error("After " + timeout + " seconds " + what + ".");
+      request.setError("No answer after " + timeout + " seconds");
+      throw new TimeoutException("After " + timeout + " seconds " + what + ".");
+    } catch (ExecutionException e) {
+      request.setError(e.getCause());
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /** Encodes the message on the sender side and decodes it on the receiver side, if configured. */
+  private static NFVMessage transfer(NFVMessage nfvMessage, Gson sender, Gson receiver) {
+    if (nfvMessage == null || sender == null) {
+      return nfvMessage;
+    }
+    return receiver.fromJson(sender.toJson(nfvMessage), NFVMessage.class);
+  }
+
+  /**
+   * A message sent by the VNFM: an {@link NFVMessage} for the NFVO, or a String command for the EMS
+   * listening on {@link #getQueueName()}.
+   *
+   * @param <T> the type of the message and of its answer
+   */
+  public static class Request<T> {
+    private final T message;
+    private final String queueName;
+    private final CompletableFuture<T> answer;
+    private final Gson vnfmGson;
+    private final Gson nfvoGson;
+
+    private Request(
+        T message, String queueName, CompletableFuture<T> answer, Gson vnfmGson, Gson nfvoGson) {
+      this.message = message;
+      this.queueName = queueName;
+      this.answer = answer;
+      this.vnfmGson = vnfmGson;
+      this.nfvoGson = nfvoGson;
+    }
+
+    public T getMessage() {
+      return message;
+    }
+
+    /** @return the queue of the EMS the command is for, null for the messages for the NFVO */
+    public String getQueueName() {
+      return queueName;
+    }
+
+    /** @return false for notifications, which are not answered */
+    public boolean isAnswerExpected() {
+      return answer != null;
+    }
+
+    /**
+     * Completes the request, waking up the VNFM.
+     *
+     * @param answer the answer, of the type of the message
+     */
+    @SuppressWarnings("unchecked")
+    public void answer(T answer) {
+      if (this.answer == null) {
+        throw new IllegalStateException("Notifications are not answered");
+      }
+      this.answer.complete(
+          answer instanceof NFVMessage
+              ? (T) transfer((NFVMessage) answer, nfvoGson, vnfmGson)
+              : answer);
+    }
+
+    /** Fails the request: the VNFM gets the exception. */
+    public void fail(Exception exception) {
+      if (answer != null) {
+        answer.completeExceptionally(exception);
+      }
+    }
+  }
+
+  public int getTimeout() {
+    return timeout;
+  }
+
+  /** @param timeout the seconds to wait for an answer of the NFVO or of an EMS */
+  public void setTimeout(int timeout) {
+    this.timeout = timeout;
+  }
+
+  @Override
+  public String getVnfmType() {
+    return vnfmType;
+  }
+
+  @Override
+  public void setVnfmType(String vnfmType) {
+    this.vnfmType = vnfmType;
+  }
+
+  @Override
+  public String getVnfmEndpoint() {
+    return vnfmEndpoint;
+  }
+
+  @Override
+  public void setVnfmEndpoint(String vnfmEndpoint) {
+    this.vnfmEndpoint = vnfmEndpoint;
+  }
+
+  @Override
+  public EndpointType getVnfmEndpointType() {
+    return vnfmEndpointType;
+  }
+
+  @Override
+  public void setVnfmEndpointType(EndpointType vnfmEndpointType) {
+    this.vnfmEndpointType = vnfmEndpointType;
+  }
+
+  @Override
+  public String getVnfmDescription() {
+    return vnfmDescription;
+  }
+
+  public void setVnfmDescription(String vnfmDescription) {
+    this.vnfmDescription = vnfmDescription;
+  }
+
+  @Override
+  public boolean isVnfmEnabled() {
+    return enabled;
+  }
+
+  public void setVnfmEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+}
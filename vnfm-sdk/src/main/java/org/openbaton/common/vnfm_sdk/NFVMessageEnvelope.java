@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.catalogue.nfvo.Action;
+import org.openbaton.catalogue.nfvo.messages.Interfaces.NFVMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmInstantiateMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmScalingMessage;
+import org.openbaton.common.vnfm_sdk.utils.VnfmUtils;
+
+/**
+ * An inbound message of which only the envelope (action, VNFR id, NSR id) has been read.
+ *
+ * <p>The envelope is read with a streaming parser that skips over the payload without building any
+ * object. The complete {@link NFVMessage}, including the VNFR, VNFD, VIM instances and package
+ * scripts, is only decoded when {@link #getMessage()} is called for the first time.
+ */
+public class NFVMessageEnvelope {
+
+  private final byte[] body;
+  private final Gson gson;
+  private long receivedAt;
+  private Action action;
+  private String vnfrId;
+  private Integer hbVersion;
+  private String nsrId;
+  private String correlationId;
+  private NFVMessage message;
+  private JsonObject record;
+
+  private NFVMessageEnvelope(byte[] body, Gson gson) {
+    this.body = body;
+    this.gson = gson;
+    this.receivedAt = System.currentTimeMillis();
+  }
+
+  /**
+   * Reads the envelope of a JSON encoded {@link NFVMessage}.
+   *
+   * @param body the UTF-8 JSON message, already decompressed
+   * @param gson the {@link Gson} used to decode the full message later on
+   * @return the envelope
+   * @throws IOException if the message is not a well formed JSON object
+   */
+  public static NFVMessageEnvelope read(byte[] body, Gson gson) throws IOException {
+    NFVMessageEnvelope envelope = new NFVMessageEnvelope(body, gson);
+    try (JsonReader reader = new JsonReader(envelope.openReader())) {
+      reader.setLenient(true);
+      reader.beginObject();
+      while (reader.hasNext() && !envelope.isComplete()) {
+        String name = reader.nextName();
+        if (name.equals("action") && reader.peek() == JsonToken.STRING) {
+          envelope.action = toAction(reader.nextString());
+        } else if ((name.equals("vnfr") || name.equals("virtualNetworkFunctionRecord"))
+            && reader.peek() == JsonToken.BEGIN_OBJECT) {
+          envelope.readRecordHeader(reader);
+        } else if (name.equals("extension") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+          envelope.readExtension(reader);
+        } else {
+          reader.skipValue();
+        }
+      }
+    } catch (IllegalStateException e) {
+      throw new IOException("Not able to read message envelope", e);
+    }
+    return envelope;
+  }
+
+  /**
+   * Wraps a message that was never encoded, as handed over by an in-process transport. There is no
+   * body: {@link #getRecordJson()} returns null and the size is 0.
+   *
+   * @param message the decoded message
+   * @return the envelope
+   */
+  public static NFVMessageEnvelope of(NFVMessage message) {
+    NFVMessageEnvelope envelope = new NFVMessageEnvelope(null, null);
+    envelope.message = message;
+    envelope.action = message.getAction();
+    VirtualNetworkFunctionRecord vnfr = VnfmUtils.getVnfr(message);
+    if (vnfr != null) {
+      envelope.vnfrId = vnfr.getId();
+      envelope.hbVersion = vnfr.getHbVersion();
+      envelope.nsrId = vnfr.getParent_ns_id();
+    }
+    Map<String, String> extension = null;
+    if (message instanceof OrVnfmInstantiateMessage) {
+      extension = ((OrVnfmInstantiateMessage) message).getExtension();
+    } else if (message instanceof OrVnfmScalingMessage) {
+      extension = ((OrVnfmScalingMessage) message).getExtension();
+    }
+    if (envelope.nsrId == null && extension != null) {
+      envelope.nsrId = extension.get("nsr-id");
+    }
+    return envelope;
+  }
+
+  private static Action toAction(String name) {
+    for (Action action : Action.values()) {
+      if (action.name().equals(name)) return action;
+    }
+    return null;
+  }
+
+  private boolean isComplete() {
+    return action != null && vnfrId != null && nsrId != null;
+  }
+
+  private void readRecordHeader(JsonReader reader) throws IOException {
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (name.equals("id") && reader.peek() == JsonToken.STRING) {
+        vnfrId = reader.nextString();
+      } else if (name.equals("hbVersion") && reader.peek() == JsonToken.NUMBER) {
+        hbVersion = reader.nextInt();
+      } else if (name.equals("parent_ns_id") && reader.peek() == JsonToken.STRING) {
+        nsrId = reader.nextString();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+  }
+
+  private void readExtension(JsonReader reader) throws IOException {
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if (name.equals("nsr-id") && nsrId == null && reader.peek() == JsonToken.STRING) {
+        nsrId = reader.nextString();
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+  }
+
+  private Reader openReader() {
+    return new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Decodes the complete message the first time it is requested.
+   *
+   * @return the decoded {@link NFVMessage}
+   */
+  public synchronized NFVMessage getMessage() {
+    if (message == null) {
+      message = gson.fromJson(openReader(), NFVMessage.class);
+    }
+    return message;
+  }
+
+  /**
+   * Parses the VNFR of the message into a JSON tree the first time it is requested, without
+   * decoding the rest of the message.
+   *
+   * @return the VNFR as sent by the NFVO, or null if the message does not carry one or was never
+   *     encoded
+   */
+  public synchronized JsonObject getRecordJson() {
+    if (record == null && body != null) {
+      JsonElement root = new JsonParser().parse(openReader());
+      if (root.isJsonObject()) {
+        for (String name : new String[] {"vnfr", "virtualNetworkFunctionRecord"}) {
+          JsonElement value = root.getAsJsonObject().get(name);
+          if (value != null && value.isJsonObject()) {
+            record = value.getAsJsonObject();
+            break;
+          }
+        }
+      }
+    }
+    return record;
+  }
+
+  public boolean isDecoded() {
+    return message != null;
+  }
+
+  public Action getAction() {
+    return action;
+  }
+
+  public String getVnfrId() {
+    return vnfrId;
+  }
+
+  /** @return the hbVersion of the VNFR, if it was read with the envelope */
+  public Integer getHbVersion() {
+    return hbVersion;
+  }
+
+  public String getNsrId() {
+    return nsrId;
+  }
+
+  public String getCorrelationId() {
+    return correlationId;
+  }
+
+  public void setCorrelationId(String correlationId) {
+    this.correlationId = correlationId;
+  }
+
+  public long getReceivedAt() {
+    return receivedAt;
+  }
+
+  /**
+   * @param receivedAt the time the transport received the message, in milliseconds since the epoch,
+   *     if it is earlier than the time the envelope was read
+   */
+  public void setReceivedAt(long receivedAt) {
+    this.receivedAt = receivedAt;
+  }
+
+  public byte[] getBody() {
+    return body;
+  }
+
+  public int getSize() {
+    return body == null ? 0 : body.length;
+  }
+
+  @Override
+  public String toString() {
+    return "NFVMessageEnvelope{"
+        + "action="
+        + action
+        + ", vnfrId='"
+        + vnfrId
+        + '\''
+        + ", nsrId='"
+        + nsrId
+        + '\''
+        + ", size="
+        + getSize()
+        + '}';
+  }
+}
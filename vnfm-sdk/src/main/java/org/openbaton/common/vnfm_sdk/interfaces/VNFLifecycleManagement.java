@@ -33,8 +33,11 @@ public interface VNFLifecycleManagement {
    * This operation allows creating a VNF instance and run the instantiate action.
    *
    * @param virtualNetworkFunctionRecord the {@link VirtualNetworkFunctionRecord} to instantiate
-   * @param scripts the scripts to exectute, could be a link or a list of {@link Script}
-   * @param vimInstances the mapping between the {@link BaseVimInstance} and te VDU ids
+   * @param scripts the scripts to exectute, could be a link or a list of {@link Script}; a link can
+   *     be read with AbstractVnfm.getScriptsFromLink
+   * @param vimInstances the mapping between the {@link BaseVimInstance} and te VDU ids; with
+   *     "vim-instance-cache-size" set the instances are shared with other messages, possibly
+   *     handled concurrently, and must not be modified
    * @return the {@link VirtualNetworkFunctionRecord} updated
    * @throws Exception in case of an exception
    */
@@ -53,7 +56,8 @@ public interface VNFLifecycleManagement {
    * @param scaleOut the {@link Action} to execute
    * @param virtualNetworkFunctionRecord the {@link VirtualNetworkFunctionRecord} to scale
    * @param component the {@link VNFComponent} or {@link VNFCInstance} to add/remove
-   * @param scripts the scripts to exectute, could be a link or a list of {@link Script}
+   * @param scripts the scripts to exectute, could be a link or a list of {@link Script}; a link can
+   *     be read with AbstractVnfm.getScriptsFromLink
    * @param dependency the {@link VNFRecordDependency} regarding the scale action
    * @return the {@link VirtualNetworkFunctionRecord} updated
    * @throws Exception in case of an exception
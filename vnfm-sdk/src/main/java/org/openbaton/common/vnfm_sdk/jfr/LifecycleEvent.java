@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.jfr;
+
+import java.lang.reflect.Constructor;
+import java.util.function.Function;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.catalogue.nfvo.Action;
+
+/**
+ * A Java Flight Recorder event timing one phase of the handling of a message, so that a recording
+ * shows how much of the latency is spent in the SDK and how much in the VNFM callbacks:
+ *
+ * <pre>
+ * try (LifecycleEvent event = LifecycleEvent.begin(Phase.DECODE).setPayloadSize(size)) {
+ *   ...
+ * }
+ * </pre>
+ *
+ * <p>The events are named org.openbaton.vnfm.* and are recorded like any other JFR event, e.g. with
+ * -XX:StartFlightRecording. On a JVM without JFR nothing is recorded.
+ *
+ * <p>The JFR event classes need jdk.jfr to compile, so they are in the jfr source set, built only
+ * with a JDK that has it, and loaded by reflection. An SDK built with an older JDK records nothing
+ * either.
+ */
+public abstract class LifecycleEvent implements AutoCloseable {
+
+  public enum Phase {
+    /** handling of a message by the transport, from its receipt to the reply */
+    RECEIVE,
+    DECODE,
+    ON_ACTION,
+    GRANT,
+    ALLOCATE,
+    /** a lifecycle method implemented by the VNFM, see {@link #setCallback(String)} */
+    CALLBACK,
+    ENCODE,
+    PUBLISH
+  }
+
+  private static final String JFR_FACTORY =
+      "org.openbaton.common.vnfm_sdk.jfr.JfrLifecycleEvent$Factory";
+
+  private static final LifecycleEvent NOOP =
+      new LifecycleEvent() {
+        @Override
+        public LifecycleEvent setVnfrId(String vnfrId) {
+          return this;
+        }
+
+        @Override
+        public LifecycleEvent setNsrId(String nsrId) {
+          return this;
+        }
+
+        @Override
+        public LifecycleEvent setAction(Action action) {
+          return this;
+        }
+
+        @Override
+        public LifecycleEvent setPayloadSize(long payloadSize) {
+          return this;
+        }
+
+        @Override
+        public LifecycleEvent setCallback(String callback) {
+          return this;
+        }
+
+        @Override
+        public void close() {}
+      };
+
+  // null if JFR or the JFR event classes are not available
+  private static final Function<Phase, LifecycleEvent> FACTORY = loadFactory();
+
+  /** Starts timing a phase, the event is committed by {@link #close()}. */
+  public static LifecycleEvent begin(Phase phase) {
+    return FACTORY != null ? FACTORY.apply(phase) : NOOP;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Function<Phase, LifecycleEvent> loadFactory() {
+    try {
+      Class.forName("jdk.jfr.Event");
+      Constructor<?> constructor = Class.forName(JFR_FACTORY).getDeclaredConstructor();
+      constructor.setAccessible(true);
+      return (Function<Phase, LifecycleEvent>) constructor.newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      return null;
+    }
+  }
+
+  public abstract LifecycleEvent setVnfrId(String vnfrId);
+
+  public abstract LifecycleEvent setNsrId(String nsrId);
+
+  public abstract LifecycleEvent setAction(Action action);
+
+  /** @param payloadSize the size in bytes of the message or record handled in the phase */
+  public abstract LifecycleEvent setPayloadSize(long payloadSize);
+
+  /** @param callback the name of the VNFM method called, for the {@link Phase#CALLBACK} phase */
+  public abstract LifecycleEvent setCallback(String callback);
+
+  /** Sets the VNFR id and the NSR id from the record, if there is one. */
+  public LifecycleEvent setVnfr(VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
+    if (virtualNetworkFunctionRecord != null) {
+      setVnfrId(virtualNetworkFunctionRecord.getId());
+      setNsrId(virtualNetworkFunctionRecord.getParent_ns_id());
+    }
+    return this;
+  }
+
+  /** Ends the phase and commits the event. */
+  @Override
+  public abstract void close();
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.management;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A small HTTP API to look at and change the settings of a running VNFM:
+ *
+ * <ul>
+ *   <li>GET /admin/tuning returns the {@link VnfmTuning} settings as JSON
+ *   <li>PUT /admin/tuning applies the settings of the JSON object in the body, e.g.
+ *       {"workerPoolSize": 20, "consumers": 8}, and returns the new settings
+ *   <li>GET /admin/operations returns the operations in flight of the {@link OperationRegistry} and
+ *       how busy the worker pool is
+ * </ul>
+ *
+ * <p>There is no authentication, the endpoint is meant to be bound to the loopback interface. A
+ * warning is logged if it is bound to any other address.
+ */
+public class AdminEndpoint {
+
+  private static Logger log = LoggerFactory.getLogger(AdminEndpoint.class);
+
+  public static final String TUNING_PATH = "/admin/tuning";
+  public static final String OPERATIONS_PATH = "/admin/operations";
+  private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+
+  private final VnfmTuning tuning;
+  private final OperationRegistry operations;
+  private final HttpServer server;
+
+  /**
+   * @param tuning the settings to expose
+   * @param operations the operations to expose
+   * @param address the address to listen on
+   * @param port the port to listen on, 0 for any free port
+   * @throws IOException if the address can not be bound
+   */
+  public AdminEndpoint(VnfmTuning tuning, OperationRegistry operations, String address, int port)
+      throws IOException {
+    this.tuning = tuning;
+    this.operations = operations;
+    this.server = HttpServer.create(new InetSocketAddress(address, port), 0);
+    this.server.createContext(TUNING_PATH, this::tuning);
+    this.server.createContext(OPERATIONS_PATH, this::operations);
+    InetSocketAddress bound = server.getAddress();
+    if (!bound.getAddress().isLoopbackAddress()) {
+      log.warn(
+          "The admin endpoint has no authentication and listens on "
+              + bound.getAddress().getHostAddress()
+              + ", anyone reaching this address can change the settings of the VNFM");
+    }
+  }
+
+  private void tuning(HttpExchange exchange) throws IOException {
+    try {
+      String method = exchange.getRequestMethod();
+      if ("PUT".equals(method) || "POST".equals(method)) {
+        try (Reader reader =
+            new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+          JsonElement settings = new JsonParser().parse(reader);
+          if (!settings.isJsonObject()) {
+            throw new IllegalArgumentException("The settings must be a JSON object");
+          }
+          tuning.apply(settings.getAsJsonObject());
+        } catch (JsonParseException | IllegalArgumentException | UnsupportedOperationException e) {
+          JsonObject error = new JsonObject();
+          error.addProperty("error", e.getMessage());
+          respond(exchange, 400, error);
+          return;
+        }
+      } else if (!"GET".equals(method)) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      respond(exchange, 200, tuning.toJson());
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void operations(HttpExchange exchange) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      JsonObject json = operations.toJson();
+      JsonObject workers = new JsonObject();
+      int size = tuning.getWorkerPoolSize();
+      int active = tuning.getActiveWorkers();
+      workers.addProperty("size", size);
+      workers.addProperty("active", active);
+      workers.addProperty("queued", tuning.getQueuedTasks());
+      workers.addProperty("utilization", active / (double) size);
+      json.add("workers", workers);
+      respond(exchange, 200, json);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int status, JsonElement json)
+      throws IOException {
+    byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+    exchange.sendResponseHeaders(status, body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  public void stop() {
+    server.stop(0);
+  }
+
+  /** @return the port the endpoint listens on */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.management;
+
+/**
+ * Implemented by the VNFMs whose transport consumes the requests of the NFVO from a broker, so that
+ * the consumers can be tuned at runtime through {@link VnfmTuning}.
+ */
+public interface ConsumerTuning {
+
+  int getConsumers();
+
+  /**
+   * Starts or stops consumers. A stopped consumer receives no new message, but its connection is
+   * only closed once the replies to the messages it received are published.
+   *
+   * @param consumers the number of consumers, 0 to stop consuming
+   */
+  void setConsumers(int consumers);
+
+  int getPrefetch();
+
+  /**
+   * Changes the number of unacknowledged messages the broker sends to each consumer. The consumers
+   * resubscribe with the new value, the messages already delivered are still handled.
+   *
+   * @param prefetch the prefetch count, 0 for no limit
+   */
+  void setPrefetch(int prefetch);
+
+  /** @return the time in seconds the VNFM waits for the answer to a request it sends */
+  int getRpcTimeout();
+
+  /** @param rpcTimeout the time in seconds, applied to the requests sent from now on */
+  void setRpcTimeout(int rpcTimeout);
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.management;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Registers the MBeans of the VNFM with the platform MBean server. */
+public final class Jmx {
+
+  private static Logger log = LoggerFactory.getLogger(Jmx.class);
+
+  public static final String DOMAIN = "org.openbaton.vnfm";
+
+  private Jmx() {}
+
+  /**
+   * @param mbean the MBean
+   * @param type the type key of the name, e.g. Tuning
+   * @param vnfmType the type of the VNFM, so that several VNFMs can run in the same JVM
+   * @return the name the MBean is registered with, null if it could not be registered
+   */
+  public static ObjectName register(Object mbean, String type, String vnfmType) {
+    try {
+      ObjectName name =
+          new ObjectName(
+              DOMAIN
+                  + ":type="
+                  + type
+                  + ",name="
+                  + ObjectName.quote(vnfmType == null ? "vnfm" : vnfmType));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, name);
+      log.debug("Registered MBean " + name);
+      return name;
+    } catch (JMException e) {
+      log.warn("Not able to register the " + type + " MBean: " + e.getMessage());
+      return null;
+    }
+  }
+
+  public static void unregister(ObjectName name) {
+    if (name == null) {
+      return;
+    }
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+    } catch (JMException e) {
+      log.debug("Not able to unregister MBean " + name + ": " + e.getMessage());
+    }
+  }
+}
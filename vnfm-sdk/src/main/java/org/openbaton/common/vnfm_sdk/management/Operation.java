@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.management;
+
+import com.google.gson.JsonObject;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openbaton.catalogue.nfvo.Action;
+
+/**
+ * A lifecycle operation in flight, from the moment the VNFM starts handling a message of the NFVO
+ * until it has the reply. Kept up to date by the {@link OperationRegistry}.
+ */
+public class Operation {
+
+  public enum Stage {
+    /** the message is decoded */
+    DECODE,
+    /** the callback of the VNFM handles the message */
+    CALLBACK,
+    /** the NFVO is asked to grant the operation */
+    GRANT,
+    /** the NFVO is asked to allocate the resources */
+    ALLOCATE,
+    /** the VNFM waits for the EMS to run a script */
+    EMS
+  }
+
+  private final long id;
+  private final long startedAt = System.currentTimeMillis();
+  private final long startNanos = System.nanoTime();
+  private final AtomicLong queueWaitNanos = new AtomicLong();
+  private final AtomicLong remoteWaitNanos = new AtomicLong();
+  private volatile Action action;
+  private volatile String vnfrId;
+  private volatile String nsrId;
+  private volatile Stage stage = Stage.DECODE;
+  private volatile String remote;
+  private volatile long remoteSinceNanos;
+
+  Operation(long id, Action action, String vnfrId, String nsrId) {
+    this.id = id;
+    this.action = action;
+    this.vnfrId = vnfrId;
+    this.nsrId = nsrId;
+  }
+
+  public long getId() {
+    return id;
+  }
+
+  public String getAction() {
+    return action == null ? null : action.name();
+  }
+
+  public void setAction(Action action) {
+    this.action = action;
+  }
+
+  public String getVnfrId() {
+    return vnfrId;
+  }
+
+  public void setVnfrId(String vnfrId) {
+    this.vnfrId = vnfrId;
+  }
+
+  public String getNsrId() {
+    return nsrId;
+  }
+
+  public void setNsrId(String nsrId) {
+    this.nsrId = nsrId;
+  }
+
+  public String getStage() {
+    return stage.name();
+  }
+
+  Stage stage() {
+    return stage;
+  }
+
+  public void setStage(Stage stage) {
+    this.stage = stage;
+  }
+
+  /** @return the time the VNFM started handling the message, in milliseconds since the epoch */
+  public long getStartedAt() {
+    return startedAt;
+  }
+
+  public long getElapsedMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+  }
+
+  /**
+   * @return the time the message, and the grant and allocate tasks of the operation, waited for a
+   *     thread
+   */
+  public long getQueueWaitMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(queueWaitNanos.get());
+  }
+
+  void addQueueWait(long nanos) {
+    queueWaitNanos.addAndGet(Math.max(nanos, 0));
+  }
+
+  /** @return the remote the operation waits for right now, nfvo or ems, null if none */
+  public String getRemote() {
+    return remote;
+  }
+
+  /** @return the time the operation waited for the NFVO and the EMS so far */
+  public long getRemoteWaitMillis() {
+    long waiting = remote == null ? 0 : System.nanoTime() - remoteSinceNanos;
+    return TimeUnit.NANOSECONDS.toMillis(remoteWaitNanos.get() + waiting);
+  }
+
+  void awaitRemote(String remote) {
+    this.remoteSinceNanos = System.nanoTime();
+    this.remote = remote;
+  }
+
+  void remoteAnswered() {
+    if (remote != null) {
+      remoteWaitNanos.addAndGet(System.nanoTime() - remoteSinceNanos);
+      remote = null;
+    }
+  }
+
+  public JsonObject toJson() {
+    JsonObject json = new JsonObject();
+    json.addProperty("id", id);
+    json.addProperty("action", getAction());
+    json.addProperty("vnfrId", vnfrId);
+    json.addProperty("nsrId", nsrId);
+    json.addProperty("stage", getStage());
+    json.addProperty("startedAt", startedAt);
+    json.addProperty("elapsedMillis", getElapsedMillis());
+    json.addProperty("queueWaitMillis", getQueueWaitMillis());
+    json.addProperty("remote", remote);
+    json.addProperty("remoteWaitMillis", getRemoteWaitMillis());
+    return json;
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.management;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openbaton.catalogue.nfvo.Action;
+import org.openbaton.common.vnfm_sdk.management.Operation.Stage;
+
+/**
+ * Keeps track of the lifecycle operations in flight. An operation is bound to the thread handling
+ * it, so that the {@link org.openbaton.common.vnfm_sdk.VnfmHelper} calls made from that thread can
+ * mark it as waiting for the NFVO or the EMS; tasks handed to another thread carry it along through
+ * {@link #wrap(Callable)}.
+ */
+public class OperationRegistry implements OperationRegistryMXBean {
+
+  private static volatile OperationRegistry instance = new OperationRegistry();
+
+  public static OperationRegistry get() {
+    return instance;
+  }
+
+  public static void set(OperationRegistry operationRegistry) {
+    instance = operationRegistry;
+  }
+
+  /** Restores what a stage or remote wait changed when closed. */
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  private static final Scope NOOP = () -> {};
+
+  private final AtomicLong ids = new AtomicLong();
+  private final AtomicLong completed = new AtomicLong();
+  private final Map<Long, Operation> operations = new ConcurrentHashMap<>();
+  private final ThreadLocal<Operation> current = new ThreadLocal<>();
+
+  /**
+   * Registers a new operation and binds it to the current thread.
+   *
+   * @param queueWaitMillis the time the message waited since it was received
+   */
+  public Operation begin(Action action, String vnfrId, String nsrId, long queueWaitMillis) {
+    Operation operation = new Operation(ids.incrementAndGet(), action, vnfrId, nsrId);
+    operation.addQueueWait(TimeUnit.MILLISECONDS.toNanos(queueWaitMillis));
+    operations.put(operation.getId(), operation);
+    current.set(operation);
+    return operation;
+  }
+
+  public void end(Operation operation) {
+    if (operations.remove(operation.getId()) != null) {
+      completed.incrementAndGet();
+    }
+    if (current.get() == operation) {
+      current.remove();
+    }
+  }
+
+  /** @return the operation bound to the current thread, null if there is none */
+  public Operation current() {
+    return current.get();
+  }
+
+  /** Moves the operation of the current thread to a stage until the scope is closed. */
+  public Scope stage(Stage stage) {
+    Operation operation = current.get();
+    if (operation == null) {
+      return NOOP;
+    }
+    Stage previous = operation.stage();
+    operation.setStage(stage);
+    return () -> operation.setStage(previous);
+  }
+
+  /** Marks the operation of the current thread as waiting for the NFVO until the scope is closed. */
+  public Scope awaitNfvo() {
+    Operation operation = current.get();
+    if (operation == null) {
+      return NOOP;
+    }
+    operation.awaitRemote("nfvo");
+    return operation::remoteAnswered;
+  }
+
+  /** Moves the operation of the current thread to the {@link Stage#EMS} stage, waiting for it. */
+  public Scope awaitEms() {
+    Operation operation = current.get();
+    if (operation == null) {
+      return NOOP;
+    }
+    Scope stage = stage(Stage.EMS);
+    operation.awaitRemote("ems");
+    return () -> {
+      operation.remoteAnswered();
+      stage.close();
+    };
+  }
+
+  /**
+   * Binds the operation of the current thread to the thread running the task, and accounts the
+   * time the task waits for that thread as queue wait.
+   */
+  public <T> Callable<T> wrap(Callable<T> callable) {
+    Operation operation = current.get();
+    if (operation == null) {
+      return callable;
+    }
+    long submitted = System.nanoTime();
+    return () -> {
+      operation.addQueueWait(System.nanoTime() - submitted);
+      Operation previous = current.get();
+      current.set(operation);
+      try {
+        return callable.call();
+      } finally {
+        if (previous == null) {
+          current.remove();
+        } else {
+          current.set(previous);
+        }
+      }
+    };
+  }
+
+  @Override
+  public List<Operation> getOperations() {
+    List<Operation> result = new ArrayList<>(operations.values());
+    result.sort(Comparator.comparingLong(Operation::getId));
+    return result;
+  }
+
+  @Override
+  public int getInFlight() {
+    return operations.size();
+  }
+
+  @Override
+  public int getWaitingOnRemote() {
+    int waiting = 0;
+    for (Operation operation : operations.values()) {
+      if (operation.getRemote() != null) {
+        waiting++;
+      }
+    }
+    return waiting;
+  }
+
+  @Override
+  public Map<String, Integer> getStages() {
+    Map<String, Integer> stages = new LinkedHashMap<>();
+    for (Stage stage : Stage.values()) {
+      stages.put(stage.name(), 0);
+    }
+    for (Operation operation : operations.values()) {
+      stages.merge(operation.getStage(), 1, Integer::sum);
+    }
+    return stages;
+  }
+
+  @Override
+  public long getOldestElapsedMillis() {
+    long oldest = 0;
+    for (Operation operation : operations.values()) {
+      oldest = Math.max(oldest, operation.getElapsedMillis());
+    }
+    return oldest;
+  }
+
+  @Override
+  public long getMaxQueueWaitMillis() {
+    long max = 0;
+    for (Operation operation : operations.values()) {
+      max = Math.max(max, operation.getQueueWaitMillis());
+    }
+    return max;
+  }
+
+  @Override
+  public long getCompleted() {
+    return completed.get();
+  }
+
+  /** @return the aggregate figures, and the operations in flight the oldest first */
+  public JsonObject toJson() {
+    JsonObject json = new JsonObject();
+    json.addProperty("inFlight", getInFlight());
+    json.addProperty("waitingOnRemote", getWaitingOnRemote());
+    json.addProperty("oldestElapsedMillis", getOldestElapsedMillis());
+    json.addProperty("maxQueueWaitMillis", getMaxQueueWaitMillis());
+    json.addProperty("completed", getCompleted());
+    JsonObject stages = new JsonObject();
+    for (Map.Entry<String, Integer> stage : getStages().entrySet()) {
+      stages.addProperty(stage.getKey(), stage.getValue());
+    }
+    json.add("stages", stages);
+    JsonArray list = new JsonArray();
+    for (Operation operation : getOperations()) {
+      list.add(operation.toJson());
+    }
+    json.add("operations", list);
+    return json;
+  }
+}
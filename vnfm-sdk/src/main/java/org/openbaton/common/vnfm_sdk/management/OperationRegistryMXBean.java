@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.management;
+
+import java.util.List;
+import java.util.Map;
+
+/** The lifecycle operations a VNFM is handling, and how saturated it is. */
+public interface OperationRegistryMXBean {
+
+  /** @return the operations in flight, the oldest first */
+  List<Operation> getOperations();
+
+  int getInFlight();
+
+  /** @return the number of operations waiting for the NFVO or the EMS */
+  int getWaitingOnRemote();
+
+  /** @return the number of operations in flight per stage */
+  Map<String, Integer> getStages();
+
+  long getOldestElapsedMillis();
+
+  long getMaxQueueWaitMillis();
+
+  /** @return the number of operations handled since the start */
+  long getCompleted();
+}
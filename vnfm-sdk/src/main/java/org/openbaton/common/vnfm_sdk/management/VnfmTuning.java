@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.management;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Changes the worker pool of a VNFM, and the consumers of its transport if it has any, while it
+ * runs. Exposed through JMX and through the {@link AdminEndpoint}.
+ */
+public class VnfmTuning implements VnfmTuningMBean {
+
+  private static Logger log = LoggerFactory.getLogger(VnfmTuning.class);
+
+  public static final String WORKER_POOL_SIZE = "workerPoolSize";
+  public static final String CONSUMERS = "consumers";
+  public static final String PREFETCH = "prefetch";
+  public static final String RPC_TIMEOUT = "rpcTimeout";
+  private static final List<String> SETTINGS =
+      Arrays.asList(WORKER_POOL_SIZE, CONSUMERS, PREFETCH, RPC_TIMEOUT);
+  private static final List<String> CONSUMER_SETTINGS =
+      Arrays.asList(CONSUMERS, PREFETCH, RPC_TIMEOUT);
+
+  public static final int MAX_WORKER_POOL_SIZE = 1024;
+  public static final int MAX_CONSUMERS = 256;
+  /** The prefetch count is an unsigned short in AMQP. */
+  public static final int MAX_PREFETCH = 65535;
+
+  private final ThreadPoolExecutor workerPool;
+  private final ConsumerTuning consumerTuning;
+
+  /**
+   * @param workerPool the pool running the operations of the VNFM
+   * @param consumerTuning the consumers of the transport, null if it has none
+   */
+  public VnfmTuning(ThreadPoolExecutor workerPool, ConsumerTuning consumerTuning) {
+    this.workerPool = workerPool;
+    this.consumerTuning = consumerTuning;
+  }
+
+  @Override
+  public int getWorkerPoolSize() {
+    return workerPool.getMaximumPoolSize();
+  }
+
+  /**
+   * Grows or shrinks the worker pool. Queued tasks are started on the new threads, the threads in
+   * excess finish their task before they terminate.
+   */
+  @Override
+  public synchronized void setWorkerPoolSize(int workerPoolSize) {
+    check(WORKER_POOL_SIZE, workerPoolSize);
+    // the core size can never be above the maximum size
+    if (workerPoolSize > workerPool.getMaximumPoolSize()) {
+      workerPool.setMaximumPoolSize(workerPoolSize);
+      workerPool.setCorePoolSize(workerPoolSize);
+    } else {
+      workerPool.setCorePoolSize(workerPoolSize);
+      workerPool.setMaximumPoolSize(workerPoolSize);
+    }
+    log.info("Worker pool resized to " + workerPoolSize + " threads");
+  }
+
+  @Override
+  public int getActiveWorkers() {
+    return workerPool.getActiveCount();
+  }
+
+  @Override
+  public int getQueuedTasks() {
+    return workerPool.getQueue().size();
+  }
+
+  @Override
+  public int getConsumers() {
+    return consumerTuning().getConsumers();
+  }
+
+  @Override
+  public void setConsumers(int consumers) {
+    check(CONSUMERS, consumers);
+    consumerTuning().setConsumers(consumers);
+  }
+
+  @Override
+  public int getPrefetch() {
+    return consumerTuning().getPrefetch();
+  }
+
+  @Override
+  public void setPrefetch(int prefetch) {
+    check(PREFETCH, prefetch);
+    consumerTuning().setPrefetch(prefetch);
+  }
+
+  @Override
+  public int getRpcTimeout() {
+    return consumerTuning().getRpcTimeout();
+  }
+
+  @Override
+  public void setRpcTimeout(int rpcTimeout) {
+    check(RPC_TIMEOUT, rpcTimeout);
+    consumerTuning().setRpcTimeout(rpcTimeout);
+  }
+
+  /** @throws IllegalArgumentException if the value is out of the range of the setting */
+  private static void check(String setting, int value) {
+    switch (setting) {
+      case WORKER_POOL_SIZE:
+        checkRange(setting, value, 1, MAX_WORKER_POOL_SIZE);
+        break;
+      case CONSUMERS:
+        checkRange(setting, value, 0, MAX_CONSUMERS);
+        break;
+      case PREFETCH:
+        checkRange(setting, value, 0, MAX_PREFETCH);
+        break;
+      case RPC_TIMEOUT:
+        checkRange(setting, value, 1, Integer.MAX_VALUE);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown setting " + setting);
+    }
+  }
+
+  private static void checkRange(String setting, int value, int min, int max) {
+    if (value < min || value > max) {
+      throw new IllegalArgumentException(
+          "The value of " + setting + " must be between " + min + " and " + max + ", not " + value);
+    }
+  }
+
+  private ConsumerTuning consumerTuning() {
+    if (consumerTuning == null) {
+      throw new UnsupportedOperationException("The transport of this VNFM has no consumers");
+    }
+    return consumerTuning;
+  }
+
+  /** @return the current settings, without the consumer settings if there are no consumers */
+  public JsonObject toJson() {
+    JsonObject json = new JsonObject();
+    json.addProperty(WORKER_POOL_SIZE, getWorkerPoolSize());
+    json.addProperty("activeWorkers", getActiveWorkers());
+    json.addProperty("queuedTasks", getQueuedTasks());
+    if (consumerTuning != null) {
+      json.addProperty(CONSUMERS, getConsumers());
+      json.addProperty(PREFETCH, getPrefetch());
+      json.addProperty(RPC_TIMEOUT, getRpcTimeout());
+    }
+    return json;
+  }
+
+  /**
+   * Applies the settings of a JSON object, e.g. {"workerPoolSize": 20, "prefetch": 2}. All the
+   * settings are checked, names, types and ranges, before any is applied, so that an invalid
+   * request changes nothing.
+   *
+   * @throws IllegalArgumentException if a setting is unknown or its value is not valid
+   * @throws UnsupportedOperationException if a consumer setting is given and there are no consumers
+   */
+  public void apply(JsonObject settings) {
+    Map<String, Integer> values = new LinkedHashMap<>();
+    for (Map.Entry<String, JsonElement> setting : settings.entrySet()) {
+      if (!SETTINGS.contains(setting.getKey())) {
+        throw new IllegalArgumentException("Unknown setting " + setting.getKey());
+      }
+      if (!setting.getValue().isJsonPrimitive()
+          || !setting.getValue().getAsJsonPrimitive().isNumber()) {
+        throw new IllegalArgumentException("The value of " + setting.getKey() + " is no number");
+      }
+      if (CONSUMER_SETTINGS.contains(setting.getKey())) {
+        consumerTuning();
+      }
+      int value;
+      try {
+        value = setting.getValue().getAsJsonPrimitive().getAsBigDecimal().intValueExact();
+      } catch (ArithmeticException e) {
+        throw new IllegalArgumentException(
+            "The value of " + setting.getKey() + " is not an integer");
+      }
+      check(setting.getKey(), value);
+      values.put(setting.getKey(), value);
+    }
+    for (Map.Entry<String, Integer> value : values.entrySet()) {
+      switch (value.getKey()) {
+        case WORKER_POOL_SIZE:
+          setWorkerPoolSize(value.getValue());
+          break;
+        case CONSUMERS:
+          setConsumers(value.getValue());
+          break;
+        case PREFETCH:
+          setPrefetch(value.getValue());
+          break;
+        case RPC_TIMEOUT:
+          setRpcTimeout(value.getValue());
+          break;
+      }
+    }
+  }
+}
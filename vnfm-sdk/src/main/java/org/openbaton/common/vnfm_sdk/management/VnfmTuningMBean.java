@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.management;
+
+/**
+ * The settings of a VNFM that can be changed while it runs. The consumer settings are only
+ * available if the transport of the VNFM implements {@link ConsumerTuning}.
+ */
+public interface VnfmTuningMBean {
+
+  int getWorkerPoolSize();
+
+  void setWorkerPoolSize(int workerPoolSize);
+
+  int getActiveWorkers();
+
+  int getQueuedTasks();
+
+  int getConsumers();
+
+  void setConsumers(int consumers);
+
+  int getPrefetch();
+
+  void setPrefetch(int prefetch);
+
+  int getRpcTimeout();
+
+  void setRpcTimeout(int rpcTimeout);
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the meters of a Prometheus registry in the Prometheus text format on
+ * http://host:port/metrics. It does not need a web container, so that it is available to the VNFMs
+ * that only talk AMQP.
+ *
+ * <p>The SDK only depends on micrometer-core: the registry is created by reflection, and the VNFM
+ * has to add io.micrometer:micrometer-registry-prometheus to its own dependencies to use the
+ * endpoint.
+ */
+public class PrometheusScrapeEndpoint {
+
+  public static final String PATH = "/metrics";
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  private static final String REGISTRY_CLASS = "io.micrometer.prometheus.PrometheusMeterRegistry";
+  private static final String CONFIG_CLASS = "io.micrometer.prometheus.PrometheusConfig";
+
+  private final MeterRegistry registry;
+  private final Method scrape;
+  private final HttpServer server;
+
+  /**
+   * Creates a Prometheus registry with the default configuration, see {@link #getRegistry()}.
+   *
+   * @param port the port to listen on, 0 for any free port
+   * @throws IOException if the port can not be bound
+   * @throws IllegalStateException if micrometer-registry-prometheus is not on the classpath
+   */
+  public PrometheusScrapeEndpoint(int port) throws IOException {
+    this(createRegistry(), port);
+  }
+
+  /**
+   * @param registry the registry to scrape, a PrometheusMeterRegistry
+   * @param port the port to listen on, 0 for any free port
+   * @throws IOException if the port can not be bound
+   */
+  public PrometheusScrapeEndpoint(MeterRegistry registry, int port) throws IOException {
+    this.registry = registry;
+    try {
+      this.scrape = registry.getClass().getMethod("scrape");
+    } catch (NoSuchMethodException e) {
+      throw new IllegalArgumentException(registry.getClass().getName() + " can not be scraped", e);
+    }
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    this.server.createContext(PATH, this::scrape);
+  }
+
+  /** @return whether micrometer-registry-prometheus is on the classpath */
+  public static boolean isAvailable() {
+    try {
+      Class.forName(REGISTRY_CLASS, false, PrometheusScrapeEndpoint.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  private static MeterRegistry createRegistry() {
+    try {
+      Class<?> configClass = Class.forName(CONFIG_CLASS);
+      Object config = configClass.getField("DEFAULT").get(null);
+      return (MeterRegistry)
+          Class.forName(REGISTRY_CLASS).getConstructor(configClass).newInstance(config);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("micrometer-registry-prometheus is not available", e);
+    }
+  }
+
+  private void scrape(HttpExchange exchange) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      byte[] body;
+      try {
+        body = ((String) scrape.invoke(registry)).getBytes(StandardCharsets.UTF_8);
+      } catch (IllegalAccessException | InvocationTargetException e) {
+        exchange.sendResponseHeaders(500, -1);
+        return;
+      }
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /** @return the registry served by the endpoint, to add to the registries the meters go to */
+  public MeterRegistry getRegistry() {
+    return registry;
+  }
+
+  public void start() {
+    server.start();
+  }
+
+  public void stop() {
+    server.stop(0);
+  }
+
+  /** @return the port the endpoint listens on */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+}
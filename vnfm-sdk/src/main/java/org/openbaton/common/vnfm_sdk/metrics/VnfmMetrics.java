@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.ToDoubleFunction;
+import org.openbaton.catalogue.nfvo.Action;
+
+/**
+ * The meters of the lifecycle dispatch path, recorded in a Micrometer {@link MeterRegistry}.
+ *
+ * <p>By default the meters are registered in the global registry, which records nothing until a
+ * registry is added to it, for example the Prometheus registry that the VNFM creates when
+ * "metrics-prometheus-port" is set.
+ *
+ * <ul>
+ *   <li>vnfm.actions: handling of a message by the VNFM, tagged with action and outcome
+ *   <li>vnfm.operations: grant and allocate round-trips, including the wait for a free thread
+ *   <li>vnfm.nfvo.requests: requests sent to the NFVO, tagged with action and outcome
+ *   <li>vnfm.ems.requests: commands sent to the EMS, tagged with outcome
+ *   <li>vnfm.messages.size: size in bytes of the messages exchanged with the NFVO, tagged with
+ *       direction (in or out) and transport
+ *   <li>executor.*: active threads, queued and completed tasks of the VNFM executors
+ * </ul>
+ */
+public class VnfmMetrics {
+
+  public static final String SUCCESS = "success";
+  public static final String ERROR = "error";
+
+  private static volatile VnfmMetrics instance = new VnfmMetrics(Metrics.globalRegistry);
+
+  // bounds of the percentile histograms, which would otherwise span the whole range of a long
+  private static final Duration MIN_DURATION = Duration.ofMillis(1);
+  private static final Duration MAX_REQUEST_DURATION = Duration.ofMinutes(10);
+  private static final Duration MAX_ACTION_DURATION = Duration.ofHours(1);
+  private static final long MIN_MESSAGE_SIZE = 256;
+  private static final long MAX_MESSAGE_SIZE = 128L * 1024 * 1024;
+
+  private final MeterRegistry registry;
+  // the meters per name and tags, so that recording does not build and look up a meter every time
+  private final ConcurrentMap<List<String>, Timer> timers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<List<String>, DistributionSummary> summaries =
+      new ConcurrentHashMap<>();
+
+  public VnfmMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  /** @return the metrics used by the VNFM and its helpers */
+  public static VnfmMetrics get() {
+    return instance;
+  }
+
+  public static void set(VnfmMetrics metrics) {
+    instance = metrics;
+  }
+
+  public MeterRegistry getRegistry() {
+    return registry;
+  }
+
+  /** @return a sample to pass to one of the record methods once the timed work is done */
+  public Timer.Sample start() {
+    return Timer.start(registry);
+  }
+
+  public void recordAction(Timer.Sample sample, Action action, boolean success) {
+    sample.stop(
+        timer(
+            "vnfm.actions",
+            "Handling of the messages received from the NFVO",
+            MAX_ACTION_DURATION,
+            "action",
+            String.valueOf(action),
+            "outcome",
+            outcome(success)));
+  }
+
+  /** @param operation "grant" or "allocate" */
+  public void recordOperation(Timer.Sample sample, String operation, boolean success) {
+    sample.stop(
+        timer(
+            "vnfm.operations",
+            "Round-trips of the operations the VNFM runs on its executor",
+            MAX_REQUEST_DURATION,
+            "operation",
+            operation,
+            "outcome",
+            outcome(success)));
+  }
+
+  public void recordNfvoRequest(Timer.Sample sample, Action action, boolean success) {
+    sample.stop(
+        timer(
+            "vnfm.nfvo.requests",
+            "Requests sent to the NFVO, until the answer is received",
+            MAX_REQUEST_DURATION,
+            "action",
+            String.valueOf(action),
+            "outcome",
+            outcome(success)));
+  }
+
+  public void recordEmsRequest(Timer.Sample sample, boolean success) {
+    sample.stop(
+        timer(
+            "vnfm.ems.requests",
+            "Commands sent to the EMS, until the answer is received",
+            MAX_ACTION_DURATION,
+            "outcome",
+            outcome(success)));
+  }
+
+  /**
+   * @param direction "in" for the messages received from the NFVO, "out" for the ones sent to it
+   * @param transport "amqp" or "rest"
+   * @param bytes the size of the message as sent on the wire
+   */
+  public void recordMessageSize(String direction, String transport, long bytes) {
+    summaries
+        .computeIfAbsent(
+            Arrays.asList(direction, transport),
+            key ->
+                DistributionSummary.builder("vnfm.messages.size")
+                    .description("Size of the messages exchanged with the NFVO")
+                    .baseUnit("bytes")
+                    .tags("direction", direction, "transport", transport)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(MIN_MESSAGE_SIZE)
+                    .maximumExpectedValue(MAX_MESSAGE_SIZE)
+                    .register(registry))
+        .record(bytes);
+  }
+
+  /**
+   * Registers the executor metrics of an executor.
+   *
+   * @return the executor to use in place of the given one, it times the tasks it runs
+   */
+  public ExecutorService monitor(ExecutorService executor, String name) {
+    return ExecutorServiceMetrics.monitor(registry, executor, name, Collections.emptyList());
+  }
+
+  /** Registers a gauge which is sampled from the given object at every scrape. */
+  public <T> void gauge(String name, String description, T object, ToDoubleFunction<T> value) {
+    Gauge.builder(name, object, value).description(description).register(registry);
+  }
+
+  /** @return the timer with the given name and tags, registered on first use */
+  private Timer timer(String name, String description, Duration max, String... tags) {
+    List<String> key = new ArrayList<>(tags.length + 1);
+    key.add(name);
+    Collections.addAll(key, tags);
+    return timers.computeIfAbsent(
+        key,
+        k ->
+            Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_DURATION)
+                .maximumExpectedValue(max)
+                .register(registry));
+  }
+
+  private static String outcome(boolean success) {
+    return success ? SUCCESS : ERROR;
+  }
+}
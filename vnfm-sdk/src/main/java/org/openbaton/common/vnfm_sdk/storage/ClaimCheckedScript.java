@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.openbaton.catalogue.nfvo.Script;
+
+/**
+ * A {@link Script} whose payload was moved to a {@link FileBlobStore}. Only the blob key is kept in
+ * the object, the payload is read from the memory mapped blob through {@link #getPayloadBuffer()}.
+ *
+ * <p>When serialized, with Gson or Java serialization, the payload is read back and the script is
+ * written as a plain {@link Script}, so that the receiver does not need access to the blob store.
+ */
+@JsonAdapter(ClaimCheckedScript.GsonAdapterFactory.class)
+public class ClaimCheckedScript extends Script {
+
+  private String blobKey;
+  private int size;
+  private transient ByteBuffer content;
+
+  public ClaimCheckedScript() {}
+
+  /**
+   * Moves the payload of a script into the blob store.
+   *
+   * @param script the script to check in
+   * @param blobStore where to store the payload
+   * @return the claim-checked copy of the script
+   * @throws IOException if the payload can not be stored
+   */
+  public static ClaimCheckedScript checkIn(Script script, FileBlobStore blobStore)
+      throws IOException {
+    ClaimCheckedScript claimCheckedScript = new ClaimCheckedScript();
+    claimCheckedScript.setId(script.getId());
+    claimCheckedScript.setHbVersion(script.getHbVersion());
+    claimCheckedScript.setProjectId(script.getProjectId());
+    claimCheckedScript.setShared(script.isShared());
+    claimCheckedScript.setMetadata(script.getMetadata());
+    claimCheckedScript.setName(script.getName());
+    claimCheckedScript.blobKey = blobStore.put(script.getPayload());
+    claimCheckedScript.size = script.getPayload().length;
+    claimCheckedScript.content = blobStore.map(claimCheckedScript.blobKey);
+    return claimCheckedScript;
+  }
+
+  public String getBlobKey() {
+    return blobKey;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Returns a read-only view of the payload without copying it into the heap.
+   *
+   * @return the payload
+   */
+  public ByteBuffer getPayloadBuffer() {
+    if (content == null) {
+      byte[] payload = super.getPayload();
+      return payload == null ? null : ByteBuffer.wrap(payload).asReadOnlyBuffer();
+    }
+    return content.asReadOnlyBuffer();
+  }
+
+  /**
+   * Returns the payload of any script without copying it, if it is claim-checked.
+   *
+   * @param script the script
+   * @return a read-only view of the payload, or null if the script has none
+   */
+  public static ByteBuffer payloadOf(Script script) {
+    if (script instanceof ClaimCheckedScript) {
+      return ((ClaimCheckedScript) script).getPayloadBuffer();
+    }
+    byte[] payload = script.getPayload();
+    return payload == null ? null : ByteBuffer.wrap(payload).asReadOnlyBuffer();
+  }
+
+  /**
+   * Copies the payload from the blob into the heap, prefer {@link #getPayloadBuffer()}.
+   *
+   * @return the payload
+   */
+  @Override
+  public byte[] getPayload() {
+    if (content == null) return super.getPayload();
+    ByteBuffer buffer = content.duplicate();
+    byte[] payload = new byte[buffer.remaining()];
+    buffer.get(payload);
+    return payload;
+  }
+
+  @Override
+  public void setPayload(byte[] payload) {
+    this.content = null;
+    this.blobKey = null;
+    this.size = payload == null ? 0 : payload.length;
+    super.setPayload(payload);
+  }
+
+  /**
+   * Returns a plain {@link Script} holding a copy of the payload.
+   *
+   * @return the materialized script
+   */
+  public Script toScript() {
+    Script script = new Script();
+    script.setId(getId());
+    script.setHbVersion(getHbVersion());
+    script.setProjectId(getProjectId());
+    script.setShared(isShared());
+    script.setMetadata(getMetadata());
+    script.setName(getName());
+    script.setPayload(getPayload());
+    return script;
+  }
+
+  private Object writeReplace() {
+    return toScript();
+  }
+
+  @Override
+  public String toString() {
+    return "ClaimCheckedScript{"
+        + "name='"
+        + getName()
+        + '\''
+        + ", blobKey='"
+        + blobKey
+        + '\''
+        + ", size="
+        + size
+        + '}';
+  }
+
+  /** Writes claim-checked scripts as plain scripts with their payload. */
+  static class GsonAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+      final TypeAdapter<Script> delegate = gson.getAdapter(Script.class);
+      return (TypeAdapter<T>)
+          new TypeAdapter<ClaimCheckedScript>() {
+            @Override
+            public void write(JsonWriter out, ClaimCheckedScript value) throws IOException {
+              delegate.write(out, value == null ? null : value.toScript());
+            }
+
+            @Override
+            public ClaimCheckedScript read(JsonReader in) throws IOException {
+              Script script = delegate.read(in);
+              if (script == null) return null;
+              ClaimCheckedScript claimCheckedScript = new ClaimCheckedScript();
+              claimCheckedScript.setId(script.getId());
+              claimCheckedScript.setHbVersion(script.getHbVersion());
+              claimCheckedScript.setProjectId(script.getProjectId());
+              claimCheckedScript.setShared(script.isShared());
+              claimCheckedScript.setMetadata(script.getMetadata());
+              claimCheckedScript.setName(script.getName());
+              claimCheckedScript.setPayload(script.getPayload());
+              return claimCheckedScript;
+            }
+          };
+    }
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.storage;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A content-addressed blob store backed by a local directory.
+ *
+ * <p>Blobs are stored once per content under the hex SHA-256 of their bytes, which is also the key
+ * returned by {@link #put(byte[])}. Blobs are read back through memory mapped files, so they are
+ * not copied into the heap unless the caller asks for it.
+ *
+ * <p>If a maximum size is given, the least recently used blobs are deleted once the blobs on disk
+ * take more than that. Blobs that are still mapped stay readable until they are unmapped.
+ */
+public class FileBlobStore {
+
+  private static Logger log = LoggerFactory.getLogger(FileBlobStore.class);
+
+  private static final String KEY_PATTERN = "[0-9a-f]+";
+
+  private final Path directory;
+  private final long maxSize;
+  private final LinkedHashMap<String, Long> blobs = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalSize;
+
+  public FileBlobStore(Path directory) throws IOException {
+    this(directory, -1);
+  }
+
+  /**
+   * @param directory where to store the blobs, blobs already there are reused
+   * @param maxSize the maximum number of bytes to keep on disk, negative for no limit
+   * @throws IOException if the directory can not be created or read
+   */
+  public FileBlobStore(Path directory, long maxSize) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.maxSize = maxSize;
+    List<Path> paths;
+    try (Stream<Path> stream = Files.walk(directory, 2)) {
+      paths =
+          stream
+              .filter(Files::isRegularFile)
+              .filter(path -> path.getFileName().toString().matches(KEY_PATTERN))
+              .collect(Collectors.toList());
+    }
+    paths.sort(Comparator.comparing(FileBlobStore::lastModified));
+    for (Path path : paths) {
+      long size = Files.size(path);
+      blobs.put(path.getFileName().toString(), size);
+      totalSize += size;
+    }
+    evict(null);
+  }
+
+  private static long lastModified(Path path) {
+    try {
+      return Files.getLastModifiedTime(path).toMillis();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Stores a blob, unless a blob with the same content is already stored.
+   *
+   * @param data the content of the blob
+   * @return the key of the blob
+   * @throws IOException if the blob can not be written
+   */
+  public synchronized String put(byte[] data) throws IOException {
+    String key = digest(data);
+    Path path = getPath(key);
+    if (blobs.get(key) == null || !Files.exists(path)) {
+      Files.createDirectories(path.getParent());
+      Path tmp = Files.createTempFile(path.getParent(), key, ".tmp");
+      try {
+        Files.write(tmp, data);
+        Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        log.trace("Stored blob " + key + " of " + data.length + " bytes");
+      } finally {
+        Files.deleteIfExists(tmp);
+      }
+      Long previous = blobs.put(key, (long) data.length);
+      totalSize += data.length - (previous == null ? 0 : previous);
+      evict(key);
+    }
+    return key;
+  }
+
+  public synchronized boolean contains(String key) {
+    return blobs.containsKey(key) && Files.exists(getPath(key));
+  }
+
+  public long size(String key) throws IOException {
+    return Files.size(getPath(key));
+  }
+
+  /** @return the number of bytes taken by the blobs on disk */
+  public synchronized long getTotalSize() {
+    return totalSize;
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  private void evict(String keep) {
+    if (maxSize < 0) return;
+    Iterator<Map.Entry<String, Long>> iterator = blobs.entrySet().iterator();
+    while (totalSize > maxSize && iterator.hasNext()) {
+      Map.Entry<String, Long> eldest = iterator.next();
+      if (eldest.getKey().equals(keep)) continue;
+      try {
+        Files.deleteIfExists(getPath(eldest.getKey()));
+        log.trace("Evicted blob " + eldest.getKey());
+      } catch (IOException e) {
+        log.warn("Not able to delete blob " + eldest.getKey() + ": " + e.getMessage());
+        continue;
+      }
+      totalSize -= eldest.getValue();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Maps a blob read-only into memory. The mapping stays valid after the blob is deleted.
+   *
+   * @param key the key of the blob
+   * @return the mapped content
+   * @throws IOException if the blob does not exist or can not be mapped
+   */
+  public MappedByteBuffer map(String key) throws IOException {
+    synchronized (this) {
+      blobs.get(key);
+    }
+    try (FileChannel channel = FileChannel.open(getPath(key), StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  public synchronized boolean delete(String key) throws IOException {
+    Long size = blobs.remove(key);
+    if (size != null) totalSize -= size;
+    return Files.deleteIfExists(getPath(key));
+  }
+
+  protected Path getPath(String key) {
+    if (key.length() < 3 || !key.matches(KEY_PATTERN)) {
+      throw new IllegalArgumentException("Not a valid blob key: " + key);
+    }
+    return directory.resolve(key.substring(0, 2)).resolve(key);
+  }
+
+  static String digest(byte[] data) {
+    MessageDigest messageDigest;
+    try {
+      messageDigest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+    StringBuilder key = new StringBuilder(64);
+    for (byte b : messageDigest.digest(data)) {
+      key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return key.toString();
+  }
+}
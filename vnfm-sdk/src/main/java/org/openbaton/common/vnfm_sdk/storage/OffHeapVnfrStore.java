@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.storage;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.common.vnfm_sdk.utils.CompressionUtils;
+import org.openbaton.common.vnfm_sdk.utils.PooledByteArrayOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps serialized VNFR snapshots outside of the heap, so that the heap and the GC pauses do not
+ * grow with the number of records. Only a small index entry per record stays on the heap; a record
+ * is decoded again each time it is read.
+ *
+ * <p>Snapshots are appended to direct buffers of a fixed segment size (bigger snapshots get a
+ * segment of their own). Replaced and removed snapshots leave holes, which are reclaimed by
+ * compacting the segment with the most free space once no new segment can be allocated.
+ */
+public class OffHeapVnfrStore {
+
+  private static Logger log = LoggerFactory.getLogger(OffHeapVnfrStore.class);
+
+  public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+  private final Gson gson;
+  private final long capacity;
+  private final int segmentSize;
+  private final String codec;
+
+  private final List<Segment> segments = new ArrayList<>();
+  private final Map<String, Slot> index = new HashMap<>();
+  private Segment current;
+  private long allocated;
+
+  public OffHeapVnfrStore(Gson gson, long capacity) {
+    this(gson, capacity, DEFAULT_SEGMENT_SIZE, null);
+  }
+
+  /**
+   * @param gson the {@link Gson} used to encode and decode the records
+   * @param capacity the maximum number of bytes of direct memory to allocate
+   * @param segmentSize the size of the direct buffers
+   * @param codec a {@link CompressionUtils} codec to compress the snapshots with, null for none
+   */
+  public OffHeapVnfrStore(Gson gson, long capacity, int segmentSize, String codec) {
+    if (codec != null && !CompressionUtils.isSupported(codec)) {
+      throw new IllegalArgumentException("Not a supported compression codec: " + codec);
+    }
+    this.gson = gson;
+    this.capacity = capacity;
+    this.segmentSize = segmentSize;
+    this.codec = codec;
+  }
+
+  /**
+   * Stores a snapshot of the record, replacing the previous one.
+   *
+   * @param virtualNetworkFunctionRecord the record, must have an id
+   * @return false if there is not enough space left for the snapshot, the previous snapshot is
+   *     removed anyway
+   * @throws IOException if the record can not be serialized
+   */
+  public boolean put(VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) throws IOException {
+    String id = virtualNetworkFunctionRecord.getId();
+    if (id == null) {
+      throw new IllegalArgumentException("Only records with an id can be stored");
+    }
+    try (PooledByteArrayOutputStream out = PooledByteArrayOutputStream.acquire()) {
+      out.writeJson(gson, virtualNetworkFunctionRecord);
+      byte[] data;
+      int length;
+      if (codec != null) {
+        data = CompressionUtils.compress(codec, out.getBuffer(), 0, out.size());
+        length = data.length;
+      } else {
+        data = out.getBuffer();
+        length = out.size();
+      }
+      synchronized (this) {
+        release(index.remove(id));
+        Segment segment = allocate(length);
+        if (segment == null) {
+          log.debug("No space left for VNFR " + id + " (" + length + " bytes)");
+          return false;
+        }
+        Slot slot =
+            new Slot(segment, segment.buffer.position(), length, virtualNetworkFunctionRecord);
+        segment.buffer.put(data, 0, length);
+        segment.live += length;
+        index.put(id, slot);
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Decodes the snapshot of a record.
+   *
+   * @param id the id of the record
+   * @return a new copy of the record, or null if it is not stored
+   * @throws IOException if the snapshot can not be decoded
+   */
+  public VirtualNetworkFunctionRecord get(String id) throws IOException {
+    byte[] data;
+    synchronized (this) {
+      Slot slot = index.get(id);
+      if (slot == null) {
+        return null;
+      }
+      data = read(slot);
+    }
+    if (codec != null) {
+      data = CompressionUtils.decompress(codec, data);
+    }
+    try (Reader reader =
+        new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8)) {
+      return gson.fromJson(reader, VirtualNetworkFunctionRecord.class);
+    }
+  }
+
+  /** @return the hbVersion of the stored snapshot, or null if there is none */
+  public synchronized Integer getHbVersion(String id) {
+    Slot slot = index.get(id);
+    return slot == null ? null : slot.hbVersion;
+  }
+
+  public synchronized boolean contains(String id) {
+    return index.containsKey(id);
+  }
+
+  public synchronized boolean remove(String id) {
+    Slot slot = index.remove(id);
+    release(slot);
+    return slot != null;
+  }
+
+  public synchronized List<String> getIds() {
+    return new ArrayList<>(index.keySet());
+  }
+
+  public synchronized int size() {
+    return index.size();
+  }
+
+  /** @return the number of bytes taken by the stored snapshots */
+  public synchronized long getUsedBytes() {
+    long used = 0;
+    for (Segment segment : segments) {
+      used += segment.live;
+    }
+    return used;
+  }
+
+  /** @return the number of bytes of direct memory allocated so far */
+  public synchronized long getAllocatedBytes() {
+    return allocated;
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  private void release(Slot slot) {
+    if (slot == null) {
+      return;
+    }
+    slot.segment.live -= slot.length;
+    if (slot.segment.live == 0 && slot.segment != current) {
+      if (slot.segment.buffer.capacity() == segmentSize) {
+        slot.segment.buffer.clear();
+      } else {
+        // oversized segments are only good for the record they were made for
+        segments.remove(slot.segment);
+        allocated -= slot.segment.buffer.capacity();
+      }
+    }
+  }
+
+  /** @return a segment whose position has room for length bytes, or null if there is none */
+  private Segment allocate(int length) {
+    if (current != null && current.buffer.remaining() >= length) {
+      return current;
+    }
+    for (Segment segment : segments) {
+      if (segment.live == 0 && segment.buffer.capacity() >= length) {
+        segment.buffer.clear();
+        return current = segment;
+      }
+    }
+    int size = Math.max(segmentSize, length);
+    if (allocated + size <= capacity) {
+      Segment segment = new Segment(ByteBuffer.allocateDirect(size));
+      segments.add(segment);
+      allocated += size;
+      log.trace("Allocated segment of " + size + " bytes, " + allocated + " bytes in total");
+      return current = segment;
+    }
+    Segment victim = null;
+    for (Segment segment : segments) {
+      int free = segment.buffer.capacity() - segment.live;
+      if (free >= length && (victim == null || free > victim.buffer.capacity() - victim.live)) {
+        victim = segment;
+      }
+    }
+    if (victim == null) {
+      return null;
+    }
+    compact(victim);
+    return current = victim;
+  }
+
+  /** Moves the live snapshots of the segment to its beginning, through a copy on the heap. */
+  private void compact(Segment segment) {
+    List<Slot> slots = new ArrayList<>();
+    for (Slot slot : index.values()) {
+      if (slot.segment == segment) {
+        slots.add(slot);
+      }
+    }
+    slots.sort((a, b) -> Integer.compare(a.offset, b.offset));
+    List<byte[]> contents = new ArrayList<>(slots.size());
+    for (Slot slot : slots) {
+      contents.add(read(slot));
+    }
+    segment.buffer.clear();
+    for (int i = 0; i < slots.size(); i++) {
+      slots.get(i).offset = segment.buffer.position();
+      segment.buffer.put(contents.get(i));
+    }
+    log.trace(
+        "Compacted segment to "
+            + segment.live
+            + " of "
+            + segment.buffer.capacity()
+            + " bytes ("
+            + slots.size()
+            + " records)");
+  }
+
+  private static byte[] read(Slot slot) {
+    byte[] data = new byte[slot.length];
+    ByteBuffer buffer = slot.segment.buffer.duplicate();
+    buffer.position(slot.offset);
+    buffer.get(data);
+    return data;
+  }
+
+  private static class Segment {
+    private final ByteBuffer buffer;
+    private int live;
+
+    private Segment(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+  }
+
+  private static class Slot {
+    private final Segment segment;
+    private int offset;
+    private final int length;
+    private final Integer hbVersion;
+
+    private Slot(
+        Segment segment,
+        int offset,
+        int length,
+        VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+      this.hbVersion = virtualNetworkFunctionRecord.getHbVersion();
+    }
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.openbaton.catalogue.nfvo.Script;
+import org.openbaton.catalogue.nfvo.VNFPackage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the scripts of VNF packages in a {@link FileBlobStore}, so that the scripts of a package
+ * that was already seen (same package id and same version) are handled only once.
+ *
+ * <p>Inline scripts bigger than the threshold are claim-checked (see {@link ClaimCheckedScript}),
+ * and the resulting set of scripts is shared by all the messages carrying the same package. The
+ * content behind a scripts link is downloaded the first time it is asked for and read through a
+ * memory mapped file afterwards, until a message carries a new version of the package.
+ */
+public class ScriptPackageCache {
+
+  private static Logger log = LoggerFactory.getLogger(ScriptPackageCache.class);
+
+  private static final int MAX_PACKAGES = 64;
+
+  /** The default connect and read timeout of a scripts link download, in milliseconds. */
+  public static final int DEFAULT_DOWNLOAD_TIMEOUT = 30000;
+  /** The default maximum size of a scripts link download, 64 MB. */
+  public static final long DEFAULT_MAX_DOWNLOAD_SIZE = 64L * 1024 * 1024;
+
+  private final FileBlobStore blobStore;
+  private final int threshold;
+  private final int downloadTimeout;
+  private final long maxDownloadSize;
+  private final Map<String, CachedPackage> packages =
+      new LinkedHashMap<String, CachedPackage>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedPackage> eldest) {
+          return size() > MAX_PACKAGES;
+        }
+      };
+  private final Map<String, CachedLink> links =
+      new LinkedHashMap<String, CachedLink>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedLink> eldest) {
+          return size() > MAX_PACKAGES;
+        }
+      };
+
+  /**
+   * @param blobStore where to store the scripts
+   * @param threshold scripts bigger than this number of bytes are claim-checked
+   */
+  public ScriptPackageCache(FileBlobStore blobStore, int threshold) {
+    this(blobStore, threshold, DEFAULT_DOWNLOAD_TIMEOUT, DEFAULT_MAX_DOWNLOAD_SIZE);
+  }
+
+  /**
+   * @param blobStore where to store the scripts
+   * @param threshold scripts bigger than this number of bytes are claim-checked
+   * @param downloadTimeout the connect and read timeout of a scripts link download, in milliseconds
+   * @param maxDownloadSize the maximum number of bytes downloaded from a scripts link
+   */
+  public ScriptPackageCache(
+      FileBlobStore blobStore, int threshold, int downloadTimeout, long maxDownloadSize) {
+    this.blobStore = blobStore;
+    this.threshold = threshold;
+    this.downloadTimeout = downloadTimeout;
+    this.maxDownloadSize = maxDownloadSize;
+  }
+
+  public FileBlobStore getBlobStore() {
+    return blobStore;
+  }
+
+  /**
+   * Returns the scripts to use for a package. If the same version of the package was already
+   * checked in, the scripts checked in the first time are returned without looking at their
+   * content. Packages without an id are claim-checked but not cached.
+   *
+   * @param vnfPackage the package carrying the scripts inline
+   * @return the scripts of the package, the {@link Script} objects are shared between the callers
+   */
+  public Set<Script> checkIn(VNFPackage vnfPackage) {
+    String packageKey = getPackageKey(vnfPackage);
+    if (packageKey != null) {
+      synchronized (packages) {
+        CachedPackage cached = packages.get(packageKey);
+        if (cached != null && isAvailable(cached)) {
+          log.trace("Reusing the scripts of package " + packageKey);
+          return new HashSet<>(cached.scripts);
+        }
+      }
+    }
+    Set<Script> scripts = new HashSet<>();
+    for (Script script : vnfPackage.getScripts()) {
+      if (!(script instanceof ClaimCheckedScript)
+          && script.getPayload() != null
+          && script.getPayload().length > threshold) {
+        try {
+          scripts.add(ClaimCheckedScript.checkIn(script, blobStore));
+          continue;
+        } catch (IOException e) {
+          log.warn("Not able to claim-check script " + script.getName() + ": " + e.getMessage());
+        }
+      }
+      scripts.add(script);
+    }
+    if (packageKey != null) {
+      synchronized (packages) {
+        packages.put(packageKey, new CachedPackage(new HashSet<>(scripts)));
+      }
+    }
+    return scripts;
+  }
+
+  /**
+   * Records the version of the package behind a scripts link. The content downloaded for an other
+   * version of the package is not returned by {@link #getScriptsLink(String)} anymore. Nothing is
+   * downloaded here.
+   *
+   * @param vnfPackage the package carrying the scripts link
+   */
+  public void checkInLink(VNFPackage vnfPackage) {
+    String packageKey = getPackageKey(vnfPackage);
+    synchronized (links) {
+      CachedLink cached = links.get(vnfPackage.getScriptsLink());
+      if (cached == null || packageKey == null || !packageKey.equals(cached.packageKey)) {
+        links.put(vnfPackage.getScriptsLink(), new CachedLink(packageKey));
+      }
+    }
+  }
+
+  /**
+   * Returns the content behind a scripts link, downloading it only if it is not in the cache yet.
+   * Links whose package has no id or version are downloaded every time.
+   *
+   * @param scriptsLink the link of the scripts, as found in the VNF package
+   * @return a read-only view of the content
+   * @throws IOException if the content can not be downloaded or stored
+   */
+  public ByteBuffer getScriptsLink(String scriptsLink) throws IOException {
+    CachedLink cached;
+    String key;
+    synchronized (links) {
+      cached = links.get(scriptsLink);
+      key = cached == null ? null : cached.blobKey;
+    }
+    if (key == null || !blobStore.contains(key)) {
+      log.debug("Downloading scripts from " + scriptsLink);
+      byte[] content = download(scriptsLink, downloadTimeout, maxDownloadSize);
+      if (cached == null || cached.packageKey == null) {
+        return ByteBuffer.wrap(content).asReadOnlyBuffer();
+      }
+      key = blobStore.put(content);
+      synchronized (links) {
+        cached.blobKey = key;
+      }
+    }
+    return blobStore.map(key).asReadOnlyBuffer();
+  }
+
+  public void invalidate(String packageId) {
+    synchronized (packages) {
+      packages.keySet().removeIf(key -> key.startsWith(packageId + ":"));
+    }
+  }
+
+  /**
+   * Downloads the content behind a link.
+   *
+   * @param link the link
+   * @param timeout the connect and read timeout, in milliseconds
+   * @param maxSize the maximum number of bytes to download
+   * @return the content
+   * @throws IOException if the content can not be downloaded, or is bigger than maxSize
+   */
+  public static byte[] download(String link, int timeout, long maxSize) throws IOException {
+    URLConnection connection = new URL(link).openConnection();
+    connection.setConnectTimeout(timeout);
+    connection.setReadTimeout(timeout);
+    long contentLength = connection.getContentLengthLong();
+    if (contentLength > maxSize) {
+      throw new IOException(
+          "The content of " + link + " is " + contentLength + " bytes, more than " + maxSize);
+    }
+    try (InputStream in = connection.getInputStream()) {
+      ByteArrayOutputStream out =
+          new ByteArrayOutputStream(
+              contentLength > 0 && contentLength < 1 << 24 ? (int) contentLength : 8192);
+      byte[] buffer = new byte[8192];
+      long total = 0;
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        total += read;
+        if (total > maxSize) {
+          throw new IOException("The content of " + link + " is more than " + maxSize + " bytes");
+        }
+        out.write(buffer, 0, read);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  private boolean isAvailable(CachedPackage cached) {
+    for (Script script : cached.scripts) {
+      if (script instanceof ClaimCheckedScript
+          && !blobStore.contains(((ClaimCheckedScript) script).getBlobKey())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String getPackageKey(VNFPackage vnfPackage) {
+    if (vnfPackage.getId() == null || vnfPackage.getHbVersion() == null) return null;
+    return vnfPackage.getId() + ":" + vnfPackage.getHbVersion();
+  }
+
+  private static class CachedPackage {
+    private final Set<Script> scripts;
+
+    private CachedPackage(Set<Script> scripts) {
+      this.scripts = scripts;
+    }
+  }
+
+  private static class CachedLink {
+    private final String packageKey;
+    private String blobKey;
+
+    private CachedLink(String packageKey) {
+      this.packageKey = packageKey;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.tracing;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Appends every span as a JSON line to a file. */
+public class FileSpanExporter implements SpanExporter {
+
+  private static Logger log = LoggerFactory.getLogger(FileSpanExporter.class);
+
+  private final Path file;
+  private final Writer writer;
+
+  public FileSpanExporter(Path file) throws IOException {
+    this.file = file;
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    this.writer =
+        Files.newBufferedWriter(
+            file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  @Override
+  public void export(Span span) {
+    String json = SpanExporter.toJson(span);
+    synchronized (writer) {
+      try {
+        writer.write(json);
+        writer.write('\n');
+        writer.flush();
+      } catch (IOException e) {
+        log.warn("Not able to write span to " + file + ": " + e.getMessage());
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    synchronized (writer) {
+      try {
+        writer.close();
+      } catch (IOException e) {
+        log.warn("Not able to close " + file + ": " + e.getMessage());
+      }
+    }
+  }
+
+  public Path getFile() {
+    return file;
+  }
+}
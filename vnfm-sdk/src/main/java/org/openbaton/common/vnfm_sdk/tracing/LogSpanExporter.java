@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.tracing;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs every span as a JSON line on the "org.openbaton.common.vnfm_sdk.tracing.spans" logger, at
+ * info level, so that the spans can be routed to their own appender.
+ */
+public class LogSpanExporter implements SpanExporter {
+
+  private static Logger log =
+      LoggerFactory.getLogger("org.openbaton.common.vnfm_sdk.tracing.spans");
+
+  @Override
+  public void export(Span span) {
+    if (log.isInfoEnabled()) {
+      log.info(SpanExporter.toJson(span));
+    }
+  }
+}
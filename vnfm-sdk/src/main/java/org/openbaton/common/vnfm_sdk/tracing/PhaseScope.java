@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.tracing;
+
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.catalogue.nfvo.Action;
+import org.openbaton.common.vnfm_sdk.jfr.LifecycleEvent;
+import org.openbaton.common.vnfm_sdk.jfr.LifecycleEvent.Phase;
+import org.openbaton.common.vnfm_sdk.management.Operation.Stage;
+import org.openbaton.common.vnfm_sdk.management.OperationRegistry;
+
+/**
+ * One phase of the handling of a message, as seen by every observer of the SDK: a {@link Span}, a
+ * JFR {@link LifecycleEvent} and, if asked for, a stage or remote wait of the current operation of
+ * the {@link OperationRegistry}. Closing the scope ends all of them, so that a phase is a single
+ * resource whose outcome is recorded on it:
+ *
+ * <pre>
+ * try (PhaseScope grant = PhaseScope.begin(Phase.GRANT, "grant").stage(Stage.GRANT)) {
+ *   ...
+ *   grant.setError(e);
+ * }
+ * </pre>
+ */
+public final class PhaseScope implements AutoCloseable {
+
+  private final Span span;
+  // null if the phase is not recorded as a JFR event
+  private final LifecycleEvent event;
+  private OperationRegistry.Scope operationScope;
+
+  private PhaseScope(Span span, LifecycleEvent event) {
+    this.span = span;
+    this.event = event;
+  }
+
+  /** Starts a phase recorded both as a span and as a JFR event. */
+  public static PhaseScope begin(Phase phase, String spanName) {
+    return new PhaseScope(Tracer.get().startSpan(spanName), LifecycleEvent.begin(phase));
+  }
+
+  /** Starts a phase only recorded as a span. */
+  public static PhaseScope span(String spanName) {
+    return new PhaseScope(Tracer.get().startSpan(spanName), null);
+  }
+
+  /**
+   * Moves the operation of the current thread to a stage until the scope is closed. A scope tracks
+   * one stage or remote wait at most.
+   */
+  public PhaseScope stage(Stage stage) {
+    return track(OperationRegistry.get().stage(stage));
+  }
+
+  /**
+   * Marks the operation of the current thread as waiting for the NFVO until the scope is closed.
+   */
+  public PhaseScope awaitNfvo() {
+    return track(OperationRegistry.get().awaitNfvo());
+  }
+
+  /** Marks the operation of the current thread as waiting for the EMS until the scope is closed. */
+  public PhaseScope awaitEms() {
+    return track(OperationRegistry.get().awaitEms());
+  }
+
+  private PhaseScope track(OperationRegistry.Scope scope) {
+    if (operationScope != null) {
+      operationScope.close();
+    }
+    operationScope = scope;
+    return this;
+  }
+
+  public PhaseScope setAction(Action action) {
+    span.setAttribute("action", action);
+    if (event != null) {
+      event.setAction(action);
+    }
+    return this;
+  }
+
+  public PhaseScope setVnfrId(String vnfrId) {
+    span.setAttribute("vnfr.id", vnfrId);
+    if (event != null) {
+      event.setVnfrId(vnfrId);
+    }
+    return this;
+  }
+
+  public PhaseScope setNsrId(String nsrId) {
+    span.setAttribute("nsr.id", nsrId);
+    if (event != null) {
+      event.setNsrId(nsrId);
+    }
+    return this;
+  }
+
+  /**
+   * Sets the VNFR id, the NSR id and the status of the record, if there is one. Called again with
+   * the record a phase returns, it records the status the phase left the record in.
+   */
+  public PhaseScope setVnfr(VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
+    if (virtualNetworkFunctionRecord != null) {
+      setVnfrId(virtualNetworkFunctionRecord.getId());
+      setNsrId(virtualNetworkFunctionRecord.getParent_ns_id());
+      span.setAttribute("vnfr.status", virtualNetworkFunctionRecord.getStatus());
+    }
+    return this;
+  }
+
+  /** @param payloadSize the size in bytes of the message or record handled in the phase */
+  public PhaseScope setPayloadSize(long payloadSize) {
+    span.setAttribute("message.size", payloadSize);
+    if (event != null) {
+      event.setPayloadSize(payloadSize);
+    }
+    return this;
+  }
+
+  /** @param callback the name of the VNFM method called, for the {@link Phase#CALLBACK} phase */
+  public PhaseScope setCallback(String callback) {
+    span.setAttribute("callback", callback);
+    if (event != null) {
+      event.setCallback(callback);
+    }
+    return this;
+  }
+
+  /** Sets an attribute of the span only. */
+  public PhaseScope setAttribute(String key, Object value) {
+    span.setAttribute(key, value);
+    return this;
+  }
+
+  public PhaseScope setError(String error) {
+    span.setError(error);
+    return this;
+  }
+
+  public PhaseScope setError(Throwable throwable) {
+    span.setError(throwable);
+    return this;
+  }
+
+  /** Ends the stage or remote wait, commits the JFR event and ends the span, in that order. */
+  @Override
+  public void close() {
+    try {
+      if (operationScope != null) {
+        operationScope.close();
+      }
+      if (event != null) {
+        event.close();
+      }
+    } finally {
+      span.close();
+    }
+  }
+}
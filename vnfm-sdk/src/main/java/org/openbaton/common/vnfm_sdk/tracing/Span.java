@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A timed operation of a trace. A span is started by the {@link Tracer}, becomes the current span
+ * of the thread that started it, and is ended by {@link #close()}, which makes its parent current
+ * again:
+ *
+ * <pre>
+ * try (Span span = Tracer.get().startSpan("grant")) {
+ *   span.setAttribute("vnfr.id", vnfr.getId());
+ *   ...
+ * }
+ * </pre>
+ */
+public class Span implements AutoCloseable {
+
+  private final Tracer tracer;
+  private final String name;
+  private final TraceContext context;
+  private final String parentSpanId;
+  private final Span previous;
+  private final long startEpochMicros;
+  private final long startNanos;
+  private final Map<String, Object> attributes = new LinkedHashMap<>();
+  private long durationNanos = -1;
+  private String error;
+
+  Span(Tracer tracer, String name, TraceContext context, String parentSpanId, Span previous) {
+    this.tracer = tracer;
+    this.name = name;
+    this.context = context;
+    this.parentSpanId = parentSpanId;
+    this.previous = previous;
+    this.startEpochMicros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+    this.startNanos = System.nanoTime();
+  }
+
+  /** @param value ignored if null */
+  public Span setAttribute(String key, Object value) {
+    if (value != null) {
+      attributes.put(key, value);
+    }
+    return this;
+  }
+
+  public Span setError(String error) {
+    this.error = error;
+    return this;
+  }
+
+  public Span setError(Throwable throwable) {
+    return setError(throwable.getClass().getSimpleName() + ": " + throwable.getMessage());
+  }
+
+  /** Ends the span and exports it. Ending a span more than once has no effect. */
+  @Override
+  public void close() {
+    if (durationNanos >= 0) {
+      return;
+    }
+    durationNanos = System.nanoTime() - startNanos;
+    tracer.end(this);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public TraceContext getContext() {
+    return context;
+  }
+
+  /** @return the id of the parent span, null for the first span of a trace */
+  public String getParentSpanId() {
+    return parentSpanId;
+  }
+
+  Span getPrevious() {
+    return previous;
+  }
+
+  public long getStartEpochMicros() {
+    return startEpochMicros;
+  }
+
+  /** @return the duration of the span, -1 while it is not ended */
+  public long getDurationNanos() {
+    return durationNanos;
+  }
+
+  public Map<String, Object> getAttributes() {
+    return Collections.unmodifiableMap(attributes);
+  }
+
+  /** @return the error the span ended with, null if it succeeded */
+  public String getError() {
+    return error;
+  }
+}
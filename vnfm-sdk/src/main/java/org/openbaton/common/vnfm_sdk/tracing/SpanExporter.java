@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.tracing;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.io.Closeable;
+import java.util.Map;
+
+/** Receives the spans once they are ended. */
+public interface SpanExporter extends Closeable {
+
+  void export(Span span);
+
+  @Override
+  default void close() {}
+
+  /** @return the span as a single line JSON object */
+  static String toJson(Span span) {
+    JsonObject json = new JsonObject();
+    json.addProperty("traceId", span.getContext().getTraceId());
+    json.addProperty("spanId", span.getContext().getSpanId());
+    json.addProperty("parentSpanId", span.getParentSpanId());
+    json.addProperty("name", span.getName());
+    json.addProperty("startMicros", span.getStartEpochMicros());
+    json.addProperty("durationMicros", span.getDurationNanos() / 1000);
+    json.addProperty("error", span.getError());
+    JsonObject attributes = new JsonObject();
+    for (Map.Entry<String, Object> attribute : span.getAttributes().entrySet()) {
+      Object value = attribute.getValue();
+      if (value instanceof Number) {
+        attributes.addProperty(attribute.getKey(), (Number) value);
+      } else {
+        attributes.addProperty(attribute.getKey(), value.toString());
+      }
+    }
+    json.add("attributes", attributes);
+    return new Gson().toJson(json);
+  }
+}
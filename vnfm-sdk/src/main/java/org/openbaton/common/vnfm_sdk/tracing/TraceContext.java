@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The position of a span in a trace, as propagated in the W3C "traceparent" and "tracestate"
+ * headers (https://www.w3.org/TR/trace-context/).
+ */
+public final class TraceContext {
+
+  public static final String TRACEPARENT = "traceparent";
+  public static final String TRACESTATE = "tracestate";
+
+  private static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+  private static final String INVALID_SPAN_ID = "0000000000000000";
+
+  private final String traceId;
+  private final String spanId;
+  private final boolean sampled;
+  private final String traceState;
+
+  private TraceContext(String traceId, String spanId, boolean sampled, String traceState) {
+    this.traceId = traceId;
+    this.spanId = spanId;
+    this.sampled = sampled;
+    this.traceState = traceState;
+  }
+
+  /** @return the context of the first span of a new, sampled trace */
+  public static TraceContext root() {
+    return new TraceContext(randomId(2), randomId(1), true, null);
+  }
+
+  /** @return the context of a new span of the same trace */
+  public TraceContext newChild() {
+    return new TraceContext(traceId, randomId(1), sampled, traceState);
+  }
+
+  /**
+   * @param traceparent the value of the traceparent header, may be null
+   * @param tracestate the value of the tracestate header, may be null
+   * @return the context, or null if there is no valid traceparent
+   */
+  public static TraceContext parse(String traceparent, String tracestate) {
+    if (traceparent == null) {
+      return null;
+    }
+    String value = traceparent.trim();
+    if (value.length() < 55
+        || value.charAt(2) != '-'
+        || value.charAt(35) != '-'
+        || value.charAt(52) != '-') {
+      return null;
+    }
+    String version = value.substring(0, 2);
+    if (!isHex(version) || version.equals("ff")) {
+      return null;
+    }
+    // later versions may append fields, version 00 may not
+    if (value.length() > 55 && (version.equals("00") || value.charAt(55) != '-')) {
+      return null;
+    }
+    String traceId = value.substring(3, 35);
+    String spanId = value.substring(36, 52);
+    String flags = value.substring(53, 55);
+    if (!isHex(traceId)
+        || !isHex(spanId)
+        || !isHex(flags)
+        || traceId.equals(INVALID_TRACE_ID)
+        || spanId.equals(INVALID_SPAN_ID)) {
+      return null;
+    }
+    boolean sampled = (Integer.parseInt(flags, 16) & 1) != 0;
+    String traceState = tracestate == null || tracestate.trim().isEmpty() ? null : tracestate;
+    return new TraceContext(traceId, spanId, sampled, traceState);
+  }
+
+  /** @return the value of the traceparent header for this context */
+  public String getTraceparent() {
+    return "00-" + traceId + "-" + spanId + (sampled ? "-01" : "-00");
+  }
+
+  /** @return the value of the tracestate header for this context, null if there is none */
+  public String getTraceState() {
+    return traceState;
+  }
+
+  public String getTraceId() {
+    return traceId;
+  }
+
+  public String getSpanId() {
+    return spanId;
+  }
+
+  public boolean isSampled() {
+    return sampled;
+  }
+
+  private static boolean isHex(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return a random id of the given number of 64 bit words, never all zeros */
+  private static String randomId(int words) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    StringBuilder id = new StringBuilder(words * 16);
+    long bits = 0;
+    for (int i = 0; i < words; i++) {
+      long word = random.nextLong();
+      bits |= word;
+      String hex = Long.toHexString(word);
+      for (int pad = hex.length(); pad < 16; pad++) {
+        id.append('0');
+      }
+      id.append(hex);
+    }
+    return bits == 0 ? randomId(words) : id.toString();
+  }
+
+  @Override
+  public String toString() {
+    return getTraceparent();
+  }
+}
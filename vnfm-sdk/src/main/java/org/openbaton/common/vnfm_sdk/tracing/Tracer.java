@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.tracing;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Starts the spans of the VNFM and keeps track of the current span of each thread, so that the
+ * transports can put the current {@link TraceContext} in the headers of the messages they send.
+ *
+ * <p>Spans are always created so that the trace context is propagated, but they are only exported
+ * if there is a {@link SpanExporter} and the trace is sampled.
+ */
+public class Tracer {
+
+  private static volatile Tracer instance = new Tracer(null);
+
+  private final SpanExporter exporter;
+  private final ThreadLocal<Span> current = new ThreadLocal<>();
+
+  /** @param exporter where to export the ended spans, null to not export them */
+  public Tracer(SpanExporter exporter) {
+    this.exporter = exporter;
+  }
+
+  /** @return the tracer used by the VNFM and its helpers */
+  public static Tracer get() {
+    return instance;
+  }
+
+  public static void set(Tracer tracer) {
+    instance = tracer;
+  }
+
+  /** Starts a child of the current span, or the first span of a new trace if there is none. */
+  public Span startSpan(String name) {
+    return startSpan(name, null);
+  }
+
+  /**
+   * Starts a span continuing a trace received from another process.
+   *
+   * @param name the name of the span
+   * @param remoteParent the context received with a message, null to start a child of the current
+   *     span
+   */
+  public Span startSpan(String name, TraceContext remoteParent) {
+    Span previous = current.get();
+    TraceContext parent =
+        remoteParent != null ? remoteParent : previous != null ? previous.getContext() : null;
+    Span span =
+        parent == null
+            ? new Span(this, name, TraceContext.root(), null, previous)
+            : new Span(this, name, parent.newChild(), parent.getSpanId(), previous);
+    current.set(span);
+    return span;
+  }
+
+  void end(Span span) {
+    if (current.get() == span) {
+      if (span.getPrevious() == null) {
+        current.remove();
+      } else {
+        current.set(span.getPrevious());
+      }
+    }
+    if (exporter != null && span.getContext().isSampled()) {
+      exporter.export(span);
+    }
+  }
+
+  /** @return the current span of the thread, null if there is none */
+  public Span currentSpan() {
+    return current.get();
+  }
+
+  /** @return the context to propagate with the messages sent by the thread, null if none */
+  public TraceContext currentContext() {
+    Span span = current.get();
+    return span == null ? null : span.getContext();
+  }
+
+  /** @return a task that runs with the current span of the calling thread as its current span */
+  public <T> Callable<T> wrap(Callable<T> task) {
+    Span span = current.get();
+    if (span == null) {
+      return task;
+    }
+    return () -> {
+      Span previous = current.get();
+      current.set(span);
+      try {
+        return task.call();
+      } finally {
+        if (previous == null) {
+          current.remove();
+        } else {
+          current.set(previous);
+        }
+      }
+    };
+  }
+
+  public SpanExporter getExporter() {
+    return exporter;
+  }
+}
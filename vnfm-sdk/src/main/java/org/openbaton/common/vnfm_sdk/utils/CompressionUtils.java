@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compression of message payloads exchanged with the NFVO.
+ *
+ * <p>Two codecs are supported: "gzip" and "deflate" (zlib format, compressed with {@link
+ * Deflater#BEST_SPEED}), the latter being the faster option. On AMQP the codec is announced in the
+ * content-encoding property using the "codec:charset" convention of Spring AMQP (e.g.
+ * "gzip:UTF-8"), on HTTP in the Content-Encoding header.
+ */
+public class CompressionUtils {
+
+  public static final String GZIP = "gzip";
+  public static final String DEFLATE = "deflate";
+
+  /** The default maximum size of a decompressed payload, 128 MB. */
+  public static final int DEFAULT_MAX_DECOMPRESSED_SIZE = 128 * 1024 * 1024;
+
+  private static final int BUFFER_SIZE = 8192;
+  private static final int MAX_INITIAL_SIZE = 1024 * 1024;
+
+  private static volatile int maxDecompressedSize = DEFAULT_MAX_DECOMPRESSED_SIZE;
+
+  /**
+   * Limits the size of decompressed payloads, so that a small compressed message can not expand
+   * into more memory than the VNFM has.
+   *
+   * @param maxDecompressedSize the maximum number of bytes {@link #decompress(String, byte[])}
+   *     returns
+   */
+  public static void setMaxDecompressedSize(int maxDecompressedSize) {
+    if (maxDecompressedSize <= 0) {
+      throw new IllegalArgumentException("The maximum decompressed size must be positive");
+    }
+    CompressionUtils.maxDecompressedSize = maxDecompressedSize;
+  }
+
+  public static int getMaxDecompressedSize() {
+    return maxDecompressedSize;
+  }
+
+  public static boolean isSupported(String codec) {
+    return GZIP.equals(codec) || DEFLATE.equals(codec);
+  }
+
+  /**
+   * Returns the compression codec announced in a content encoding, or null if the payload is not
+   * compressed with a supported codec.
+   *
+   * @param contentEncoding the AMQP content-encoding property or the HTTP Content-Encoding header
+   * @return "gzip", "deflate" or null
+   */
+  public static String getCodec(String contentEncoding) {
+    if (contentEncoding == null) return null;
+    int separator = contentEncoding.indexOf(':');
+    String codec =
+        (separator < 0 ? contentEncoding : contentEncoding.substring(0, separator))
+            .trim()
+            .toLowerCase(Locale.ROOT);
+    return isSupported(codec) ? codec : null;
+  }
+
+  /**
+   * Returns the charset part of a "codec:charset" content encoding, or the given default.
+   *
+   * @param contentEncoding the AMQP content-encoding property
+   * @param defaultCharset returned if no charset is specified
+   * @return the charset name
+   */
+  public static String getCharset(String contentEncoding, String defaultCharset) {
+    if (contentEncoding == null) return defaultCharset;
+    int separator = contentEncoding.indexOf(':');
+    if (separator >= 0) return contentEncoding.substring(separator + 1);
+    return getCodec(contentEncoding) == null ? contentEncoding : defaultCharset;
+  }
+
+  public static boolean shouldCompress(int threshold, int length) {
+    return threshold >= 0 && length > threshold;
+  }
+
+  public static byte[] compress(String codec, byte[] data) throws IOException {
+    return compress(codec, data, 0, data.length);
+  }
+
+  public static byte[] compress(String codec, byte[] data, int offset, int length)
+      throws IOException {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(Math.max(length / 4, 64));
+    OutputStream out;
+    Deflater deflater = null;
+    if (GZIP.equals(codec)) {
+      out = new GZIPOutputStream(bos, BUFFER_SIZE);
+    } else if (DEFLATE.equals(codec)) {
+      deflater = new Deflater(Deflater.BEST_SPEED);
+      out = new DeflaterOutputStream(bos, deflater, BUFFER_SIZE);
+    } else {
+      throw new IOException("Compression codec " + codec + " is not supported");
+    }
+    try {
+      out.write(data, offset, length);
+    } finally {
+      out.close();
+      if (deflater != null) deflater.end();
+    }
+    return bos.toByteArray();
+  }
+
+  /**
+   * Decompresses a payload, up to the size set with {@link #setMaxDecompressedSize(int)}.
+   *
+   * @throws IOException if the payload is not valid, or bigger than the maximum once decompressed
+   */
+  public static byte[] decompress(String codec, byte[] data) throws IOException {
+    return decompress(codec, data, maxDecompressedSize);
+  }
+
+  /**
+   * @param maxSize the maximum number of bytes to return
+   * @throws IOException if the payload is not valid, or bigger than maxSize once decompressed
+   */
+  public static byte[] decompress(String codec, byte[] data, int maxSize) throws IOException {
+    InputStream in;
+    if (GZIP.equals(codec)) {
+      in = new GZIPInputStream(new ByteArrayInputStream(data), BUFFER_SIZE);
+    } else if (DEFLATE.equals(codec)) {
+      in = new InflaterInputStream(new ByteArrayInputStream(data));
+    } else {
+      throw new IOException("Compression codec " + codec + " is not supported");
+    }
+    long expected = Math.min((long) data.length * 4, Math.min(maxSize, MAX_INITIAL_SIZE));
+    ByteArrayOutputStream bos = new ByteArrayOutputStream((int) Math.max(expected, 64));
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try {
+      int read;
+      long total = 0;
+      while ((read = in.read(buffer)) != -1) {
+        total += read;
+        if (total > maxSize) {
+          throw new IOException(
+              "The "
+                  + codec
+                  + " payload of "
+                  + data.length
+                  + " bytes decompresses to more than the maximum of "
+                  + maxSize
+                  + " bytes");
+        }
+        bos.write(buffer, 0, read);
+      }
+    } finally {
+      in.close();
+    }
+    return bos.toByteArray();
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.utils;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.openbaton.catalogue.mano.common.DeploymentFlavour;
+import org.openbaton.catalogue.nfvo.viminstances.OpenstackVimInstance;
+
+/**
+ * The deployment flavours of a VIM instance, indexed by flavour key, ext id and id.
+ *
+ * <p>Indexes are cached per VIM instance id and rebuilt when the VIM instance comes with another
+ * version, or with another number of flavours.
+ */
+public class DeploymentFlavourIndex {
+
+  private static final int MAX_VIM_INSTANCES = 256;
+
+  private static final Map<String, DeploymentFlavourIndex> indexes =
+      new LinkedHashMap<String, DeploymentFlavourIndex>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, DeploymentFlavourIndex> eldest) {
+          return size() > MAX_VIM_INSTANCES;
+        }
+      };
+
+  private final Integer hbVersion;
+  private final int size;
+  private final Map<String, DeploymentFlavour> flavours = new HashMap<>();
+
+  private DeploymentFlavourIndex(OpenstackVimInstance vimInstance) {
+    Set<DeploymentFlavour> deploymentFlavours = vimInstance.getFlavours();
+    this.hbVersion = vimInstance.getHbVersion();
+    this.size = deploymentFlavours.size();
+    // flavour keys take precedence over ext ids, which take precedence over ids
+    for (DeploymentFlavour deploymentFlavour : deploymentFlavours) {
+      flavours.putIfAbsent(deploymentFlavour.getFlavour_key(), deploymentFlavour);
+    }
+    for (DeploymentFlavour deploymentFlavour : deploymentFlavours) {
+      flavours.putIfAbsent(deploymentFlavour.getExtId(), deploymentFlavour);
+    }
+    for (DeploymentFlavour deploymentFlavour : deploymentFlavours) {
+      flavours.putIfAbsent(deploymentFlavour.getId(), deploymentFlavour);
+    }
+    flavours.remove(null);
+  }
+
+  /**
+   * Returns the index of the flavours of a VIM instance, building it only if there is none for this
+   * version of the VIM instance.
+   *
+   * @param vimInstance the VIM instance
+   * @return the index
+   */
+  public static DeploymentFlavourIndex of(OpenstackVimInstance vimInstance) {
+    if (vimInstance.getId() == null || vimInstance.getHbVersion() == null) {
+      return new DeploymentFlavourIndex(vimInstance);
+    }
+    synchronized (indexes) {
+      DeploymentFlavourIndex index = indexes.get(vimInstance.getId());
+      if (index != null
+          && index.hbVersion.equals(vimInstance.getHbVersion())
+          && index.size == vimInstance.getFlavours().size()) {
+        return index;
+      }
+    }
+    DeploymentFlavourIndex index = new DeploymentFlavourIndex(vimInstance);
+    synchronized (indexes) {
+      indexes.put(vimInstance.getId(), index);
+    }
+    return index;
+  }
+
+  public static void invalidate(String vimInstanceId) {
+    synchronized (indexes) {
+      indexes.remove(vimInstanceId);
+    }
+  }
+
+  /**
+   * @param key a flavour key, ext id or id
+   * @return the flavour, or null if the VIM instance has none with this key
+   */
+  public DeploymentFlavour get(String key) {
+    return key == null ? null : flavours.get(key);
+  }
+
+  public boolean contains(String key) {
+    return get(key) != null;
+  }
+}
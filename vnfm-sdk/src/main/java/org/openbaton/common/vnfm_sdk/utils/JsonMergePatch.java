@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.utils;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.annotations.SerializedName;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * JSON Merge Patch (RFC 7386) between two JSON documents.
+ *
+ * <p>Arrays are replaced as a whole, as the RFC requires, whenever their elements or the order of
+ * their elements differ. The only exception are the members passed as unordered, typically the ones
+ * returned by {@link #setMembers(Class)}: they are serialized sets whose order changes from one JVM
+ * to the other, so a different order alone does not put them in the patch.
+ */
+public class JsonMergePatch {
+
+  public static final String MEDIA_TYPE = "application/merge-patch+json";
+
+  private JsonMergePatch() {}
+
+  /**
+   * Computes the patch turning source into target, comparing all arrays in order.
+   *
+   * @param source the original document
+   * @param target the modified document, must not contain null members
+   * @return the patch, an empty object if both documents are the same
+   */
+  public static JsonElement diff(JsonElement source, JsonElement target) {
+    return diff(source, target, Collections.<String>emptySet());
+  }
+
+  /**
+   * Computes the patch turning source into target.
+   *
+   * @param source the original document
+   * @param target the modified document, must not contain null members
+   * @param unordered the names of the members whose arrays are compared regardless of order
+   * @return the patch, an empty object if both documents are the same
+   */
+  public static JsonElement diff(JsonElement source, JsonElement target, Set<String> unordered) {
+    if (!source.isJsonObject() || !target.isJsonObject()) {
+      return target;
+    }
+    JsonObject sourceObject = source.getAsJsonObject();
+    JsonObject targetObject = target.getAsJsonObject();
+    JsonObject patch = new JsonObject();
+    for (Map.Entry<String, JsonElement> entry : sourceObject.entrySet()) {
+      if (!targetObject.has(entry.getKey()) && !entry.getValue().isJsonNull()) {
+        patch.add(entry.getKey(), JsonNull.INSTANCE);
+      }
+    }
+    for (Map.Entry<String, JsonElement> entry : targetObject.entrySet()) {
+      JsonElement sourceValue = sourceObject.get(entry.getKey());
+      JsonElement targetValue = entry.getValue();
+      if (sourceValue == null || sourceValue.isJsonNull()) {
+        patch.add(entry.getKey(), targetValue);
+      } else if (sourceValue.isJsonObject() && targetValue.isJsonObject()) {
+        JsonObject nested = diff(sourceValue, targetValue, unordered).getAsJsonObject();
+        if (nested.size() > 0) {
+          patch.add(entry.getKey(), nested);
+        }
+      } else if (!same(sourceValue, targetValue, unordered, unordered.contains(entry.getKey()))) {
+        patch.add(entry.getKey(), targetValue);
+      }
+    }
+    return patch;
+  }
+
+  /**
+   * Applies a patch to a document.
+   *
+   * @param target the document, modified in place if it is an object
+   * @param patch the patch
+   * @return the patched document
+   */
+  public static JsonElement apply(JsonElement target, JsonElement patch) {
+    if (!patch.isJsonObject()) {
+      return patch;
+    }
+    JsonObject result =
+        target != null && target.isJsonObject() ? target.getAsJsonObject() : new JsonObject();
+    for (Map.Entry<String, JsonElement> entry : patch.getAsJsonObject().entrySet()) {
+      if (entry.getValue().isJsonNull()) {
+        result.remove(entry.getKey());
+      } else {
+        result.add(entry.getKey(), apply(result.get(entry.getKey()), entry.getValue()));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Collects the JSON names of the {@link Set} fields of a class and of the classes reachable from
+   * its fields. A name also used by a {@link List} or array field somewhere in the graph is left
+   * out, so that it keeps being compared in order.
+   *
+   * @param type the root class, e.g. VirtualNetworkFunctionRecord
+   * @return the names to pass as unordered to {@link #diff(JsonElement, JsonElement, Set)}
+   */
+  public static Set<String> setMembers(Class<?> type) {
+    Set<String> sets = new HashSet<>();
+    Set<String> ordered = new HashSet<>();
+    Set<Class<?>> visited = new HashSet<>();
+    Deque<Type> pending = new ArrayDeque<>();
+    pending.add(type);
+    while (!pending.isEmpty()) {
+      Type next = pending.poll();
+      if (next instanceof ParameterizedType) {
+        Collections.addAll(pending, ((ParameterizedType) next).getActualTypeArguments());
+        next = ((ParameterizedType) next).getRawType();
+      }
+      if (!(next instanceof Class) || !visited.add((Class<?>) next)) {
+        continue;
+      }
+      Class<?> current = (Class<?>) next;
+      if (current.isArray()) {
+        pending.add(current.getComponentType());
+        continue;
+      }
+      if (current.getName().startsWith("java")) {
+        continue;
+      }
+      for (Class<?> c = current; c != null && c != Object.class; c = c.getSuperclass()) {
+        for (Field field : c.getDeclaredFields()) {
+          if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) != 0) {
+            continue;
+          }
+          SerializedName serializedName = field.getAnnotation(SerializedName.class);
+          String name = serializedName == null ? field.getName() : serializedName.value();
+          if (Set.class.isAssignableFrom(field.getType())) {
+            sets.add(name);
+          } else if (Collection.class.isAssignableFrom(field.getType())
+              || field.getType().isArray()) {
+            ordered.add(name);
+          }
+          pending.add(field.getGenericType());
+        }
+      }
+    }
+    sets.removeAll(ordered);
+    return Collections.unmodifiableSet(sets);
+  }
+
+  /**
+   * Deep equality, ignoring the order of the members of objects. Arrays are compared in order,
+   * unless asSet is true or they are the value of one of the unordered members.
+   */
+  static boolean same(JsonElement a, JsonElement b, Set<String> unordered, boolean asSet) {
+    if (a.isJsonObject() && b.isJsonObject()) {
+      JsonObject objectA = a.getAsJsonObject();
+      JsonObject objectB = b.getAsJsonObject();
+      if (objectA.size() != objectB.size()) {
+        return false;
+      }
+      for (Map.Entry<String, JsonElement> entry : objectA.entrySet()) {
+        JsonElement value = objectB.get(entry.getKey());
+        if (value == null
+            || !same(entry.getValue(), value, unordered, unordered.contains(entry.getKey()))) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (a.isJsonArray() && b.isJsonArray()) {
+      JsonArray arrayA = a.getAsJsonArray();
+      JsonArray arrayB = b.getAsJsonArray();
+      if (arrayA.size() != arrayB.size()) {
+        return false;
+      }
+      int i = 0;
+      while (i < arrayA.size() && same(arrayA.get(i), arrayB.get(i), unordered, false)) {
+        i++;
+      }
+      if (i == arrayA.size()) {
+        return true;
+      }
+      // a set in a different order: compare the sorted canonical forms of the remaining elements
+      return asSet
+          && canonicalTail(arrayA, i, unordered).equals(canonicalTail(arrayB, i, unordered));
+    }
+    return a.equals(b);
+  }
+
+  private static List<String> canonicalTail(JsonArray array, int from, Set<String> unordered) {
+    List<String> elements = new ArrayList<>(array.size() - from);
+    for (int i = from; i < array.size(); i++) {
+      StringBuilder sb = new StringBuilder();
+      canonical(array.get(i), unordered, false, sb);
+      elements.add(sb.toString());
+    }
+    Collections.sort(elements);
+    return elements;
+  }
+
+  /** Writes a form of the element that does not depend on the order of members and of sets. */
+  private static void canonical(
+      JsonElement element, Set<String> unordered, boolean asSet, StringBuilder sb) {
+    if (element.isJsonObject()) {
+      Map<String, JsonElement> sorted = new TreeMap<>();
+      for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+        sorted.put(entry.getKey(), entry.getValue());
+      }
+      sb.append('{');
+      for (Map.Entry<String, JsonElement> entry : sorted.entrySet()) {
+        sb.append(new JsonPrimitive(entry.getKey())).append(':');
+        canonical(entry.getValue(), unordered, unordered.contains(entry.getKey()), sb);
+        sb.append(',');
+      }
+      sb.append('}');
+    } else if (element.isJsonArray()) {
+      sb.append('[');
+      if (asSet) {
+        for (String item : canonicalTail(element.getAsJsonArray(), 0, unordered)) {
+          sb.append(item).append(',');
+        }
+      } else {
+        for (JsonElement item : element.getAsJsonArray()) {
+          canonical(item, unordered, false, sb);
+          sb.append(',');
+        }
+      }
+      sb.append(']');
+    } else {
+      sb.append(element);
+    }
+  }
+}
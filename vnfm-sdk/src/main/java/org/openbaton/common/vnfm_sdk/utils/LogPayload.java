@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openbaton.catalogue.mano.descriptor.VNFComponent;
+import org.openbaton.catalogue.mano.descriptor.VirtualDeploymentUnit;
+import org.openbaton.catalogue.mano.record.VNFCInstance;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.catalogue.security.BaseKey;
+
+/**
+ * Wraps a payload passed as argument of a log statement, so that it is only rendered if the
+ * statement is logged:
+ *
+ * <pre>
+ * log.debug("Received from ALLOCATE: {}", LogPayload.of(vnfr));
+ * </pre>
+ *
+ * <p>Records, components and collections are summarized (ids, hbVersion, counts) unless full
+ * rendering is enabled, text is truncated to the maximum length, and the values of credential-like
+ * keys (passwords, secrets, tokens, private keys) are masked.
+ */
+public final class LogPayload {
+
+  private static final String MASK = "****";
+  private static final String SENSITIVE =
+      "password|passwd|pwd|secret|token|credential|private_?key";
+  private static final Pattern SENSITIVE_KEY =
+      Pattern.compile("(?i).*(" + SENSITIVE + ").*", Pattern.DOTALL);
+  // key=value, key: value, "key":"value" where the key contains a sensitive word; a quoted value
+  // is masked as a whole, up to its closing quote or the end of the text
+  private static final Pattern SENSITIVE_ASSIGNMENT =
+      Pattern.compile(
+          "(?i)([\\w.-]*(?:"
+              + SENSITIVE
+              + ")[\\w.-]*\"?\\s*[:=]\\s*)(?:(\"(?:[^\"\\\\]|\\\\.)*\"?)|[^\"\\s,;&}]+)");
+
+  private static volatile int maxLength = 1024;
+  private static volatile boolean full = false;
+
+  private final Object payload;
+  private final int offset;
+  private final int length;
+
+  private LogPayload(Object payload, int offset, int length) {
+    this.payload = payload;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  public static LogPayload of(Object payload) {
+    return new LogPayload(payload, 0, -1);
+  }
+
+  /** @return the UTF-8 text in the given range of the buffer, only the logged part is decoded */
+  public static LogPayload of(byte[] buffer, int offset, int length) {
+    return new LogPayload(buffer, offset, length);
+  }
+
+  /** @param maxLength the maximum number of characters rendered per payload */
+  public static void setMaxLength(int maxLength) {
+    LogPayload.maxLength = maxLength;
+  }
+
+  public static int getMaxLength() {
+    return maxLength;
+  }
+
+  /** @param full whether records and collections are rendered completely instead of summarized */
+  public static void setFull(boolean full) {
+    LogPayload.full = full;
+  }
+
+  public static boolean isFull() {
+    return full;
+  }
+
+  @Override
+  public String toString() {
+    if (payload == null) {
+      return "null";
+    }
+    if (payload instanceof byte[]) {
+      byte[] bytes = (byte[]) payload;
+      return render(bytes, offset, length < 0 ? bytes.length - offset : length);
+    }
+    if (payload instanceof CharSequence) {
+      return redact(truncate((CharSequence) payload));
+    }
+    if (!full) {
+      String summary = summarize(payload);
+      if (summary != null) {
+        return summary;
+      }
+    }
+    if (payload instanceof Map) {
+      return truncate(render((Map<?, ?>) payload));
+    }
+    return redact(truncate(String.valueOf(payload)));
+  }
+
+  private static String summarize(Object payload) {
+    if (payload instanceof VirtualNetworkFunctionRecord) {
+      VirtualNetworkFunctionRecord vnfr = (VirtualNetworkFunctionRecord) payload;
+      int vdus = 0;
+      int vnfcInstances = 0;
+      if (vnfr.getVdu() != null) {
+        for (VirtualDeploymentUnit vdu : vnfr.getVdu()) {
+          vdus++;
+          vnfcInstances += vdu.getVnfc_instance() == null ? 0 : vdu.getVnfc_instance().size();
+        }
+      }
+      return "VNFR[id="
+          + vnfr.getId()
+          + ", name="
+          + vnfr.getName()
+          + ", type="
+          + vnfr.getType()
+          + ", hbVersion="
+          + vnfr.getHbVersion()
+          + ", status="
+          + vnfr.getStatus()
+          + ", nsr="
+          + vnfr.getParent_ns_id()
+          + ", vdus="
+          + vdus
+          + ", vnfcInstances="
+          + vnfcInstances
+          + "]";
+    }
+    if (payload instanceof VNFCInstance) {
+      VNFCInstance vnfcInstance = (VNFCInstance) payload;
+      return "VNFCInstance[id="
+          + vnfcInstance.getId()
+          + ", hostname="
+          + vnfcInstance.getHostname()
+          + ", state="
+          + vnfcInstance.getState()
+          + ", vim="
+          + vnfcInstance.getVim_id()
+          + ", component="
+          + (vnfcInstance.getVnfComponent() == null ? null : vnfcInstance.getVnfComponent().getId())
+          + "]";
+    }
+    if (payload instanceof VNFComponent) {
+      VNFComponent component = (VNFComponent) payload;
+      return "VNFComponent[id="
+          + component.getId()
+          + ", connectionPoints="
+          + (component.getConnection_point() == null ? 0 : component.getConnection_point().size())
+          + "]";
+    }
+    if (payload instanceof Collection) {
+      Collection<?> collection = (Collection<?>) payload;
+      StringBuilder summary = new StringBuilder().append(collection.size()).append(" elements");
+      // keys are listed by name, their public keys are of no interest
+      String separator = ": ";
+      for (Object element : collection) {
+        if (!(element instanceof BaseKey) || summary.length() > maxLength) {
+          break;
+        }
+        summary.append(separator).append(((BaseKey) element).getName());
+        separator = ", ";
+      }
+      return truncate(summary);
+    }
+    return null;
+  }
+
+  /** Renders a map of strings, such as the extension of a message, masking the credentials. */
+  private static String render(Map<?, ?> map) {
+    StringBuilder rendered = new StringBuilder("{");
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      if (rendered.length() > maxLength) {
+        break;
+      }
+      if (rendered.length() > 1) rendered.append(", ");
+      String key = String.valueOf(entry.getKey());
+      rendered.append(key).append('=');
+      if (SENSITIVE_KEY.matcher(key).matches()) {
+        rendered.append(MASK);
+      } else {
+        rendered.append(redact(truncate(String.valueOf(entry.getValue()))));
+      }
+    }
+    return rendered.append('}').toString();
+  }
+
+  private static String render(byte[] bytes, int offset, int length) {
+    // a character takes at most 4 bytes, there is no need to decode more
+    int limit = Math.min(length, maxLength * 4);
+    CharBuffer text = StandardCharsets.UTF_8.decode(ByteBuffer.wrap(bytes, offset, limit));
+    if (limit == length && text.length() <= maxLength) {
+      return redact(text);
+    }
+    return redact(text.subSequence(0, Math.min(text.length(), maxLength)))
+        + "... ("
+        + length
+        + " bytes)";
+  }
+
+  private static String truncate(CharSequence text) {
+    if (text.length() <= maxLength) {
+      return text.toString();
+    }
+    return text.subSequence(0, maxLength)
+        + "... ("
+        + (text.length() - maxLength)
+        + " more characters)";
+  }
+
+  /** Masks the values assigned to credential-like keys in the text. */
+  static String redact(CharSequence text) {
+    Matcher matcher = SENSITIVE_ASSIGNMENT.matcher(text);
+    if (!matcher.find()) {
+      return text.toString();
+    }
+    StringBuffer redacted = new StringBuffer(text.length());
+    do {
+      matcher.appendReplacement(
+          redacted, matcher.group(2) != null ? "$1\"" + MASK + "\"" : "$1" + MASK);
+    } while (matcher.find());
+    matcher.appendTail(redacted);
+    return redacted.toString();
+  }
+}
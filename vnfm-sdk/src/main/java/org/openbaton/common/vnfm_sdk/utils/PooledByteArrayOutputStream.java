@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A {@link ByteArrayOutputStream} that is reused by the thread that acquired it, so that messages
+ * can be serialized without allocating a new buffer (and an intermediate String) every time.
+ *
+ * <p>Use it with try-with-resources: closing the stream gives it back to the pool. Buffers that
+ * grew bigger than "vnfm.buffer.maxRetained" bytes (default 4 MB) are dropped on release instead of
+ * being kept by the thread.
+ */
+public class PooledByteArrayOutputStream extends ByteArrayOutputStream {
+
+  private static final TypeAdapter<JsonElement> JSON_ELEMENT =
+      new Gson().getAdapter(JsonElement.class);
+
+  private static final int INITIAL_SIZE = 16 * 1024;
+  private static final int MAX_RETAINED =
+      Integer.getInteger("vnfm.buffer.maxRetained", 4 * 1024 * 1024);
+
+  private static final ThreadLocal<PooledByteArrayOutputStream> pool =
+      ThreadLocal.withInitial(() -> new PooledByteArrayOutputStream(true));
+
+  private final boolean pooled;
+  private boolean inUse;
+
+  private PooledByteArrayOutputStream(boolean pooled) {
+    super(INITIAL_SIZE);
+    this.pooled = pooled;
+  }
+
+  /**
+   * Returns the buffer of the current thread, or a new one if the thread's buffer is already in
+   * use.
+   *
+   * @return an empty stream
+   */
+  public static PooledByteArrayOutputStream acquire() {
+    PooledByteArrayOutputStream out = pool.get();
+    if (out.inUse) {
+      return new PooledByteArrayOutputStream(false);
+    }
+    out.inUse = true;
+    return out;
+  }
+
+  /**
+   * Serializes an object as UTF-8 JSON directly into this stream.
+   *
+   * @param gson the {@link Gson} to use
+   * @param src the object to serialize, may be null
+   * @throws IOException if the serialization fails
+   */
+  public void writeJson(Gson gson, Object src) throws IOException {
+    Writer writer = new OutputStreamWriter(this, StandardCharsets.UTF_8);
+    gson.toJson(src, writer);
+    writer.flush();
+  }
+
+  /**
+   * Writes a JSON tree to the stream, keeping its null members: they are meaningful in a {@link
+   * JsonMergePatch}.
+   *
+   * @param tree the tree to write
+   * @throws IOException if the tree can not be written
+   */
+  public void writeJson(JsonElement tree) throws IOException {
+    Writer writer = new OutputStreamWriter(this, StandardCharsets.UTF_8);
+    JsonWriter jsonWriter = new JsonWriter(writer);
+    jsonWriter.setSerializeNulls(true);
+    // not Gson.toJson, which applies its own serializeNulls setting to the writer
+    JSON_ELEMENT.write(jsonWriter, tree);
+    jsonWriter.flush();
+  }
+
+  /**
+   * Returns the internal buffer without copying it. Only the first {@link #size()} bytes are valid,
+   * and the buffer must not be used after the stream is closed.
+   *
+   * @return the internal buffer
+   */
+  public synchronized byte[] getBuffer() {
+    return buf;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return new String(buf, 0, count, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public synchronized void close() {
+    if (!pooled || !inUse) return;
+    reset();
+    if (buf.length > MAX_RETAINED) {
+      buf = new byte[INITIAL_SIZE];
+    }
+    inUse = false;
+  }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.utils;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Copy-on-write views over collections that are shared between several objects, typically between a
+ * VNFR template and all the records created from it.
+ *
+ * <p>A view reads from the shared collection until it is modified for the first time; it then
+ * copies the content into a private {@link HashSet}, {@link ArrayList} or {@link HashMap} and works
+ * on that copy from then on. The shared collection must not be modified by anyone once views on it
+ * have been created.
+ *
+ * <p>Like the collections they copy into, the views are not thread-safe: a view must not be
+ * modified by a thread while an other thread uses it. The switch to the private copy is published
+ * through a volatile field, so a view can be handed to an other thread once its owner is done with
+ * it. Java serialization writes the current content as a plain collection.
+ */
+public class SharedCollections {
+
+  private SharedCollections() {}
+
+  public static <E> Set<E> set(Set<E> shared) {
+    if (shared instanceof SharedSet && isShared(shared)) {
+      shared = ((SharedSet<E>) shared).shared;
+    }
+    return new SharedSet<>(Objects.requireNonNull(shared));
+  }
+
+  public static <E> List<E> list(List<E> shared) {
+    if (shared instanceof SharedList && isShared(shared)) {
+      shared = ((SharedList<E>) shared).shared;
+    }
+    return new SharedList<>(Objects.requireNonNull(shared));
+  }
+
+  public static <K, V> Map<K, V> map(Map<K, V> shared) {
+    if (shared instanceof SharedMap && isShared(shared)) {
+      shared = ((SharedMap<K, V>) shared).shared;
+    }
+    return new SharedMap<>(Objects.requireNonNull(shared));
+  }
+
+  /** @return true if the collection is a view that still reads from the shared collection */
+  public static boolean isShared(Object collection) {
+    return (collection instanceof SharedSet
+            && ((SharedSet) collection).delegate == ((SharedSet) collection).shared)
+        || (collection instanceof SharedList
+            && ((SharedList) collection).delegate == ((SharedList) collection).shared)
+        || (collection instanceof SharedMap
+            && ((SharedMap) collection).delegate == ((SharedMap) collection).shared);
+  }
+
+  private static class SharedSet<E> extends AbstractSet<E> implements Serializable {
+    private final transient Set<E> shared;
+    private transient volatile Set<E> delegate;
+
+    private SharedSet(Set<E> shared) {
+      this.shared = shared;
+      this.delegate = shared;
+    }
+
+    private Set<E> own() {
+      Set<E> current = delegate;
+      if (current == shared) {
+        current = new HashSet<>(shared);
+        delegate = current;
+      }
+      return current;
+    }
+
+    @Override
+    public int size() {
+      return delegate.size();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+      return delegate.contains(o);
+    }
+
+    @Override
+    public boolean add(E e) {
+      Set<E> current = delegate;
+      if (current == shared && current.contains(e)) return false;
+      return own().add(e);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+      Set<E> current = delegate;
+      if (current == shared && !current.contains(o)) return false;
+      return own().remove(o);
+    }
+
+    @Override
+    public void clear() {
+      delegate = new HashSet<>();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+      Set<E> current = delegate;
+      if (current != shared) return current.iterator();
+      Iterator<E> iterator = current.iterator();
+      return new Iterator<E>() {
+        private E last;
+
+        @Override
+        public boolean hasNext() {
+          return iterator.hasNext();
+        }
+
+        @Override
+        public E next() {
+          return last = iterator.next();
+        }
+
+        @Override
+        public void remove() {
+          // the iteration goes on over the shared set, which is left untouched
+          own().remove(last);
+        }
+      };
+    }
+
+    private Object writeReplace() {
+      return new HashSet<>(delegate);
+    }
+  }
+
+  private static class SharedList<E> extends AbstractList<E> implements Serializable {
+    private final transient List<E> shared;
+    private transient volatile List<E> delegate;
+
+    private SharedList(List<E> shared) {
+      this.shared = shared;
+      this.delegate = shared;
+    }
+
+    private List<E> own() {
+      List<E> current = delegate;
+      if (current == shared) {
+        current = new ArrayList<>(shared);
+        delegate = current;
+      }
+      return current;
+    }
+
+    @Override
+    public E get(int index) {
+      return delegate.get(index);
+    }
+
+    @Override
+    public int size() {
+      return delegate.size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+      return own().set(index, element);
+    }
+
+    @Override
+    public void add(int index, E element) {
+      modCount++;
+      own().add(index, element);
+    }
+
+    @Override
+    public E remove(int index) {
+      modCount++;
+      return own().remove(index);
+    }
+
+    private Object writeReplace() {
+      return new ArrayList<>(delegate);
+    }
+  }
+
+  private static class SharedMap<K, V> extends AbstractMap<K, V> implements Serializable {
+    private final transient Map<K, V> shared;
+    private transient volatile Map<K, V> delegate;
+
+    private SharedMap(Map<K, V> shared) {
+      this.shared = shared;
+      this.delegate = shared;
+    }
+
+    private Map<K, V> own() {
+      Map<K, V> current = delegate;
+      if (current == shared) {
+        current = new HashMap<>(shared);
+        delegate = current;
+      }
+      return current;
+    }
+
+    @Override
+    public int size() {
+      return delegate.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return delegate.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+      return delegate.get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+      return own().put(key, value);
+    }
+
+    @Override
+    public V remove(Object key) {
+      Map<K, V> current = delegate;
+      if (current == shared && !current.containsKey(key)) return null;
+      return own().remove(key);
+    }
+
+    @Override
+    public void clear() {
+      delegate = new HashMap<>();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+      Map<K, V> current = delegate;
+      if (current != shared) return current.entrySet();
+      return new AbstractSet<Entry<K, V>>() {
+        @Override
+        public int size() {
+          return delegate.size();
+        }
+
+        @Override
+        public Iterator<Entry<K, V>> iterator() {
+          Iterator<Entry<K, V>> iterator = current.entrySet().iterator();
+          return new Iterator<Entry<K, V>>() {
+            private K last;
+
+            @Override
+            public boolean hasNext() {
+              return iterator.hasNext();
+            }
+
+            @Override
+            public Entry<K, V> next() {
+              Entry<K, V> entry = iterator.next();
+              last = entry.getKey();
+              return new SimpleEntry<K, V>(entry) {
+                @Override
+                public V setValue(V value) {
+                  super.setValue(value);
+                  return put(getKey(), value);
+                }
+              };
+            }
+
+            @Override
+            public void remove() {
+              SharedMap.this.remove(last);
+            }
+          };
+        }
+      };
+    }
+
+    private Object writeReplace() {
+      return new HashMap<>(delegate);
+    }
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.openbaton.catalogue.mano.common.DeploymentFlavour;
+import org.openbaton.catalogue.mano.common.Ip;
+import org.openbaton.catalogue.mano.common.LifecycleEvent;
+import org.openbaton.catalogue.mano.descriptor.InternalVirtualLink;
+import org.openbaton.catalogue.mano.descriptor.VNFComponent;
+import org.openbaton.catalogue.mano.descriptor.VNFDConnectionPoint;
+import org.openbaton.catalogue.mano.descriptor.VirtualDeploymentUnit;
+import org.openbaton.catalogue.mano.record.VNFCInstance;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.catalogue.nfvo.Configuration;
+import org.openbaton.catalogue.nfvo.ConfigurationParameter;
+import org.openbaton.catalogue.nfvo.viminstances.BaseVimInstance;
+import org.openbaton.catalogue.nfvo.viminstances.OpenstackVimInstance;
+
+/**
+ * Deduplicates the identifiers that are repeated all over the records: VIM names, image names,
+ * flavour keys, network names, lifecycle script names, metadata keys and so on.
+ *
+ * <p>The pool is a fixed size, lossy hash table: a string replaces whatever other string was in its
+ * slot, so the pool never grows and never needs to be cleared, and the strings seen most often win.
+ * Long strings, such as configuration values or scripts, are not pooled. The pool can be used by
+ * several threads without locking.
+ */
+public class StringPool {
+
+  private static final int MAX_LENGTH = 128;
+
+  private final String[] table;
+  private final int mask;
+
+  /** @param size the number of slots, rounded up to a power of two */
+  public StringPool(int size) {
+    int slots = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+    this.table = new String[slots];
+    this.mask = slots - 1;
+  }
+
+  /** @return a pooled string equal to the given one, the given one if there is none */
+  public String intern(String string) {
+    if (string == null || string.length() > MAX_LENGTH) {
+      return string;
+    }
+    int hash = string.hashCode();
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    String pooled = table[slot];
+    if (pooled != null && pooled.equals(string)) {
+      return pooled;
+    }
+    table[slot] = string;
+    return string;
+  }
+
+  /** @return the same set if all its strings are pooled already, a pooled copy otherwise */
+  public Set<String> intern(Set<String> strings) {
+    if (strings == null || isPooled(strings)) {
+      return strings;
+    }
+    Set<String> pooled = new LinkedHashSet<>(strings.size() * 2);
+    for (String string : strings) {
+      pooled.add(intern(string));
+    }
+    return pooled;
+  }
+
+  public List<String> intern(List<String> strings) {
+    if (strings == null || isPooled(strings)) {
+      return strings;
+    }
+    List<String> pooled = new ArrayList<>(strings.size());
+    for (String string : strings) {
+      pooled.add(intern(string));
+    }
+    return pooled;
+  }
+
+  public Map<String, String> intern(Map<String, String> strings) {
+    if (strings == null || (isPooled(strings.keySet()) && isPooled(strings.values()))) {
+      return strings;
+    }
+    Map<String, String> pooled = new LinkedHashMap<>(strings.size() * 2);
+    for (Map.Entry<String, String> entry : strings.entrySet()) {
+      pooled.put(intern(entry.getKey()), intern(entry.getValue()));
+    }
+    return pooled;
+  }
+
+  private boolean isPooled(Iterable<String> strings) {
+    for (String string : strings) {
+      if (intern(string) != string) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Replaces, in place, the strings of the record that are likely to be repeated by pooled ones.
+   *
+   * @param virtualNetworkFunctionRecord the record, may be null
+   * @return the same record
+   */
+  public VirtualNetworkFunctionRecord intern(
+      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
+    if (virtualNetworkFunctionRecord == null) {
+      return null;
+    }
+    VirtualNetworkFunctionRecord vnfr = virtualNetworkFunctionRecord;
+    vnfr.setName(intern(vnfr.getName()));
+    vnfr.setType(intern(vnfr.getType()));
+    vnfr.setVendor(intern(vnfr.getVendor()));
+    vnfr.setVersion(intern(vnfr.getVersion()));
+    vnfr.setEndpoint(intern(vnfr.getEndpoint()));
+    vnfr.setDeployment_flavour_key(intern(vnfr.getDeployment_flavour_key()));
+    vnfr.setProjectId(intern(vnfr.getProjectId()));
+    vnfr.setMonitoring_parameter(intern(vnfr.getMonitoring_parameter()));
+    vnfr.setMetadata(intern(vnfr.getMetadata()));
+    internLifecycleEvents(vnfr.getLifecycle_event());
+    internConfiguration(vnfr.getConfigurations());
+    internConfiguration(vnfr.getRequires());
+    internConfiguration(vnfr.getProvides());
+    if (vnfr.getVirtual_link() != null) {
+      for (InternalVirtualLink virtualLink : vnfr.getVirtual_link()) {
+        virtualLink.setName(intern(virtualLink.getName()));
+        virtualLink.setConnectivity_type(intern(virtualLink.getConnectivity_type()));
+        virtualLink.setConnection_points_references(
+            intern(virtualLink.getConnection_points_references()));
+      }
+    }
+    if (vnfr.getVdu() != null) {
+      for (VirtualDeploymentUnit virtualDeploymentUnit : vnfr.getVdu()) {
+        internVdu(virtualDeploymentUnit);
+      }
+    }
+    return vnfr;
+  }
+
+  private void internVdu(VirtualDeploymentUnit vdu) {
+    vdu.setName(intern(vdu.getName()));
+    vdu.setProjectId(intern(vdu.getProjectId()));
+    vdu.setComputation_requirement(intern(vdu.getComputation_requirement()));
+    vdu.setVimInstanceName(intern(vdu.getVimInstanceName()));
+    vdu.setVm_image(intern(vdu.getVm_image()));
+    vdu.setMonitoring_parameter(intern(vdu.getMonitoring_parameter()));
+    vdu.setMetadata(intern(vdu.getMetadata()));
+    internLifecycleEvents(vdu.getLifecycle_event());
+    if (vdu.getVnfc() != null) {
+      for (VNFComponent component : vdu.getVnfc()) {
+        internConnectionPoints(component.getConnection_point());
+      }
+    }
+    if (vdu.getVnfc_instance() != null) {
+      for (VNFCInstance vnfcInstance : vdu.getVnfc_instance()) {
+        vnfcInstance.setVim_id(intern(vnfcInstance.getVim_id()));
+        vnfcInstance.setState(intern(vnfcInstance.getState()));
+        internConnectionPoints(vnfcInstance.getConnection_point());
+        internIps(vnfcInstance.getIps());
+        internIps(vnfcInstance.getFloatingIps());
+      }
+    }
+  }
+
+  private void internConnectionPoints(Set<VNFDConnectionPoint> connectionPoints) {
+    if (connectionPoints == null) {
+      return;
+    }
+    for (VNFDConnectionPoint connectionPoint : connectionPoints) {
+      connectionPoint.setVirtual_link_reference(
+          intern(connectionPoint.getVirtual_link_reference()));
+      connectionPoint.setFloatingIp(intern(connectionPoint.getFloatingIp()));
+      connectionPoint.setType(intern(connectionPoint.getType()));
+    }
+  }
+
+  private void internIps(Set<Ip> ips) {
+    if (ips == null) {
+      return;
+    }
+    for (Ip ip : ips) {
+      ip.setNetName(intern(ip.getNetName()));
+    }
+  }
+
+  private void internLifecycleEvents(Set<LifecycleEvent> lifecycleEvents) {
+    if (lifecycleEvents == null) {
+      return;
+    }
+    for (LifecycleEvent lifecycleEvent : lifecycleEvents) {
+      lifecycleEvent.setLifecycle_events(intern(lifecycleEvent.getLifecycle_events()));
+    }
+  }
+
+  private void internConfiguration(Configuration configuration) {
+    if (configuration == null || configuration.getConfigurationParameters() == null) {
+      return;
+    }
+    configuration.setName(intern(configuration.getName()));
+    for (ConfigurationParameter parameter : configuration.getConfigurationParameters()) {
+      parameter.setConfKey(intern(parameter.getConfKey()));
+    }
+  }
+
+  /**
+   * Replaces, in place, the name, type and flavour keys of a VIM instance by pooled strings.
+   *
+   * @param vimInstance the VIM instance, may be null
+   * @return the same VIM instance
+   */
+  public BaseVimInstance intern(BaseVimInstance vimInstance) {
+    if (vimInstance == null) {
+      return null;
+    }
+    vimInstance.setName(intern(vimInstance.getName()));
+    vimInstance.setType(intern(vimInstance.getType()));
+    if (vimInstance instanceof OpenstackVimInstance
+        && ((OpenstackVimInstance) vimInstance).getFlavours() != null) {
+      for (DeploymentFlavour flavour : ((OpenstackVimInstance) vimInstance).getFlavours()) {
+        flavour.setFlavour_key(intern(flavour.getFlavour_key()));
+      }
+    }
+    return vimInstance;
+  }
+}
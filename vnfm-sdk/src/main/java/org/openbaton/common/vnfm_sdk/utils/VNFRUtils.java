@@ -21,10 +21,10 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.openbaton.catalogue.mano.common.AutoScalePolicy;
-import org.openbaton.catalogue.mano.common.DeploymentFlavour;
 import org.openbaton.catalogue.mano.common.HighAvailability;
 import org.openbaton.catalogue.mano.common.LifecycleEvent;
 import org.openbaton.catalogue.mano.common.ScalingAction;
@@ -54,6 +54,18 @@ public class VNFRUtils {
 
   private static Logger log = LoggerFactory.getLogger(VNFRUtils.class);
 
+  private static <E> Set<E> copySet(Set<E> source, boolean share) {
+    return share ? SharedCollections.set(source) : new HashSet<>(source);
+  }
+
+  private static <E> List<E> copyList(List<E> source, boolean share) {
+    return share ? SharedCollections.list(source) : new ArrayList<>(source);
+  }
+
+  private static <K, V> Map<K, V> copyMap(Map<K, V> source, boolean share) {
+    return share ? SharedCollections.map(source) : new HashMap<>(source);
+  }
+
   public static VirtualNetworkFunctionRecord createVirtualNetworkFunctionRecord(
       VirtualNetworkFunctionDescriptor vnfd,
       String flavourKey,
@@ -61,6 +73,23 @@ public class VNFRUtils {
       Set<VirtualLinkRecord> vlr,
       Map<String, Collection<BaseVimInstance>> vimInstances)
       throws NotFoundException, BadFormatException {
+    return createVirtualNetworkFunctionRecord(vnfd, flavourKey, nsr_id, vlr, vimInstances, null);
+  }
+
+  /**
+   * Same as {@link #createVirtualNetworkFunctionRecord(VirtualNetworkFunctionDescriptor, String,
+   * String, Set, Map)}, building the VDUs concurrently for large descriptors.
+   *
+   * @param parallelism where to build the VDUs concurrently, null to build them sequentially
+   */
+  public static VirtualNetworkFunctionRecord createVirtualNetworkFunctionRecord(
+      VirtualNetworkFunctionDescriptor vnfd,
+      String flavourKey,
+      String nsr_id,
+      Set<VirtualLinkRecord> vlr,
+      Map<String, Collection<BaseVimInstance>> vimInstances,
+      VduParallelism parallelism)
+      throws NotFoundException, BadFormatException {
     VirtualNetworkFunctionRecord virtualNetworkFunctionRecord = new VirtualNetworkFunctionRecord();
 
     setBasicFields(vnfd, nsr_id, virtualNetworkFunctionRecord);
@@ -76,7 +105,7 @@ public class VNFRUtils {
     // TODO mange the VirtualLinks and links...
     //        virtualNetworkFunctionRecord.setConnected_external_virtual_link(vnfd.getVirtual_link());
 
-    setVdu(vnfd, vimInstances, virtualNetworkFunctionRecord);
+    setVdu(vnfd, vimInstances, virtualNetworkFunctionRecord, parallelism);
 
     setConnectionPoints(vnfd, virtualNetworkFunctionRecord);
 
@@ -90,6 +119,146 @@ public class VNFRUtils {
     return virtualNetworkFunctionRecord;
   }
 
+  /**
+   * Builds the parts of a VNFR that only depend on the VNFD. The result is a template: it has no
+   * NSR id, VIM instance names or virtual link ids, and its VDUs keep the VIM instance names of the
+   * descriptor. Records are created from it with {@link
+   * #stampVirtualNetworkFunctionRecord(VirtualNetworkFunctionRecord, String, String, Set, Map)}.
+   *
+   * @param vnfd the descriptor
+   * @return the template, which must not be modified nor sent anywhere
+   */
+  public static VirtualNetworkFunctionRecord compileVirtualNetworkFunctionRecord(
+      VirtualNetworkFunctionDescriptor vnfd) {
+    VirtualNetworkFunctionRecord template = new VirtualNetworkFunctionRecord();
+    setBasicFields(vnfd, null, template);
+    setRequires(vnfd, template);
+    setProvides(vnfd, template);
+    setMonitoringParameters(vnfd, template);
+    setAutoScalePolicies(vnfd, template);
+    template.setVdu(new HashSet<>());
+    for (VirtualDeploymentUnit virtualDeploymentUnit : vnfd.getVdu()) {
+      template.getVdu().add(copyVdu(virtualDeploymentUnit, virtualDeploymentUnit.getId(), false));
+    }
+    setConnectionPoints(vnfd, template);
+    setLifeCycleEvents(vnfd, template);
+    setInternalVirtualLinks(vnfd, new HashSet<>(), template);
+    return template;
+  }
+
+  /**
+   * Creates a VNFR from a template built by {@link
+   * #compileVirtualNetworkFunctionRecord(VirtualNetworkFunctionDescriptor)}. The result is the same
+   * as the one of {@link #createVirtualNetworkFunctionRecord(VirtualNetworkFunctionDescriptor,
+   * String, String, Set, Map)} for the descriptor the template was built from.
+   */
+  public static VirtualNetworkFunctionRecord stampVirtualNetworkFunctionRecord(
+      VirtualNetworkFunctionRecord template,
+      String flavourKey,
+      String nsr_id,
+      Set<VirtualLinkRecord> vlr,
+      Map<String, Collection<BaseVimInstance>> vimInstances)
+      throws BadFormatException {
+    return stampVirtualNetworkFunctionRecord(
+        template, flavourKey, nsr_id, vlr, vimInstances, false, null);
+  }
+
+  /**
+   * Same as {@link #stampVirtualNetworkFunctionRecord(VirtualNetworkFunctionRecord, String, String,
+   * Set, Map)}. With structural sharing, the parts of the record that are plain copies of the
+   * template (monitoring parameters, VM images, lifecycle scripts, QoS, test access, connection
+   * point references, VDU metadata) are {@link SharedCollections} views over the collections of the
+   * template instead of copies. A record gets its own copy of such a collection only when it
+   * modifies it. The template is built by the SDK and never handed out, so nothing else can modify
+   * the shared collections.
+   *
+   * @param structuralSharing true to share the collections of the template, false to copy them
+   * @param parallelism where to build the VDUs concurrently, null to build them sequentially
+   */
+  public static VirtualNetworkFunctionRecord stampVirtualNetworkFunctionRecord(
+      VirtualNetworkFunctionRecord template,
+      String flavourKey,
+      String nsr_id,
+      Set<VirtualLinkRecord> vlr,
+      Map<String, Collection<BaseVimInstance>> vimInstances,
+      boolean structuralSharing,
+      VduParallelism parallelism)
+      throws BadFormatException {
+    VirtualNetworkFunctionRecord virtualNetworkFunctionRecord = new VirtualNetworkFunctionRecord();
+    virtualNetworkFunctionRecord.setLifecycle_event_history(new LinkedHashSet<>());
+    virtualNetworkFunctionRecord.setParent_ns_id(nsr_id);
+    virtualNetworkFunctionRecord.setName(template.getName());
+    virtualNetworkFunctionRecord.setType(template.getType());
+    virtualNetworkFunctionRecord.setCyclicDependency(template.hasCyclicDependency());
+    virtualNetworkFunctionRecord.setConfigurations(copyConfiguration(template.getConfigurations()));
+    virtualNetworkFunctionRecord.setPackageId(template.getPackageId());
+    virtualNetworkFunctionRecord.setEndpoint(template.getEndpoint());
+    virtualNetworkFunctionRecord.setVendor(template.getVendor());
+    virtualNetworkFunctionRecord.setVersion(template.getVersion());
+    virtualNetworkFunctionRecord.setDescriptor_reference(template.getDescriptor_reference());
+    virtualNetworkFunctionRecord.setVnf_address(new HashSet<String>());
+    virtualNetworkFunctionRecord.setStatus(Status.NULL);
+    virtualNetworkFunctionRecord.setRequires(copyConfiguration(template.getRequires()));
+    virtualNetworkFunctionRecord.setProvides(copyConfiguration(template.getProvides()));
+    virtualNetworkFunctionRecord.setMonitoring_parameter(
+        copySet(template.getMonitoring_parameter(), structuralSharing));
+
+    virtualNetworkFunctionRecord.setAuto_scale_policy(new HashSet<AutoScalePolicy>());
+    for (AutoScalePolicy autoScalePolicy : template.getAuto_scale_policy()) {
+      virtualNetworkFunctionRecord
+          .getAuto_scale_policy()
+          .add(copyAutoScalePolicy(autoScalePolicy, template.getType()));
+    }
+
+    virtualNetworkFunctionRecord.setVdu(new HashSet<>());
+    virtualNetworkFunctionRecord
+        .getVdu()
+        .addAll(
+            VduParallelism.build(
+                parallelism,
+                template.getVdu(),
+                virtualDeploymentUnit -> {
+                  VirtualDeploymentUnit vduNew =
+                      copyVdu(
+                          virtualDeploymentUnit,
+                          virtualDeploymentUnit.getParent_vdu(),
+                          structuralSharing);
+                  setVimInstanceNames(
+                      vimInstances,
+                      virtualDeploymentUnit.getParent_vdu(),
+                      virtualDeploymentUnit.getName(),
+                      vduNew);
+                  return vduNew;
+                }));
+
+    virtualNetworkFunctionRecord.setConnection_point(new HashSet<>());
+    virtualNetworkFunctionRecord.getConnection_point().addAll(template.getConnection_point());
+
+    virtualNetworkFunctionRecord.setDeployment_flavour_key(flavourKey);
+    for (VirtualDeploymentUnit virtualDeploymentUnit : template.getVdu()) {
+      checkDeploymentFlavour(
+          flavourKey,
+          getVimInstances(
+              vimInstances, virtualDeploymentUnit.getParent_vdu(), virtualDeploymentUnit.getName()),
+          virtualDeploymentUnit.getVimInstanceName());
+    }
+
+    HashSet<LifecycleEvent> lifecycleEvents = new HashSet<>();
+    for (LifecycleEvent lifecycleEvent : template.getLifecycle_event()) {
+      lifecycleEvents.add(copyLifecycleEvent(lifecycleEvent, structuralSharing));
+    }
+    virtualNetworkFunctionRecord.setLifecycle_event(lifecycleEvents);
+
+    virtualNetworkFunctionRecord.setVirtual_link(new HashSet<InternalVirtualLink>());
+    Map<String, VirtualLinkRecord> vlrByName = indexByName(vlr);
+    for (InternalVirtualLink internalVirtualLink : template.getVirtual_link()) {
+      virtualNetworkFunctionRecord
+          .getVirtual_link()
+          .add(copyInternalVirtualLink(internalVirtualLink, vlrByName, structuralSharing));
+    }
+    return virtualNetworkFunctionRecord;
+  }
+
   private static void setBasicFields(
       VirtualNetworkFunctionDescriptor vnfd,
       String nsr_id,
@@ -117,35 +286,49 @@ public class VNFRUtils {
       VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
     virtualNetworkFunctionRecord.setVirtual_link(new HashSet<InternalVirtualLink>());
     HashSet<InternalVirtualLink> internalVirtualLinks = new HashSet<>();
+    Map<String, VirtualLinkRecord> vlrByName = indexByName(vlr);
     for (InternalVirtualLink internalVirtualLink : vnfd.getVirtual_link()) {
-      InternalVirtualLink internalVirtualLink_new = new InternalVirtualLink();
-      internalVirtualLink_new.setName(internalVirtualLink.getName());
+      internalVirtualLinks.add(copyInternalVirtualLink(internalVirtualLink, vlrByName, false));
+    }
+    virtualNetworkFunctionRecord.getVirtual_link().addAll(internalVirtualLinks);
+  }
 
-      for (VirtualLinkRecord virtualLinkRecord : vlr) {
-        if (virtualLinkRecord.getName().equals(internalVirtualLink_new.getName())) {
-          internalVirtualLink_new.setExtId(virtualLinkRecord.getExtId());
-        }
-      }
+  /**
+   * Indexes virtual link records by name. If several records have the same name, the last one
+   * iterated wins, as it did when the records were matched one by one.
+   *
+   * @param vlr the virtual link records
+   * @return the records by name
+   */
+  public static Map<String, VirtualLinkRecord> indexByName(Collection<VirtualLinkRecord> vlr) {
+    Map<String, VirtualLinkRecord> vlrByName = new HashMap<>();
+    for (VirtualLinkRecord virtualLinkRecord : vlr) {
+      vlrByName.put(virtualLinkRecord.getName(), virtualLinkRecord);
+    }
+    return vlrByName;
+  }
 
-      internalVirtualLink_new.setCidr(internalVirtualLink.getCidr());
-      internalVirtualLink_new.setLeaf_requirement(internalVirtualLink.getLeaf_requirement());
-      internalVirtualLink_new.setRoot_requirement(internalVirtualLink.getRoot_requirement());
-      internalVirtualLink_new.setConnection_points_references(new HashSet<>());
-      for (String conn : internalVirtualLink.getConnection_points_references()) {
-        internalVirtualLink_new.getConnection_points_references().add(conn);
-      }
-      internalVirtualLink_new.setQos(new HashSet<>());
-      for (String qos : internalVirtualLink.getQos()) {
-        internalVirtualLink_new.getQos().add(qos);
-      }
-      internalVirtualLink_new.setTest_access(new HashSet<>());
-      for (String test : internalVirtualLink.getTest_access()) {
-        internalVirtualLink_new.getTest_access().add(test);
-      }
-      internalVirtualLink_new.setConnectivity_type(internalVirtualLink.getConnectivity_type());
-      internalVirtualLinks.add(internalVirtualLink_new);
+  private static InternalVirtualLink copyInternalVirtualLink(
+      InternalVirtualLink internalVirtualLink,
+      Map<String, VirtualLinkRecord> vlrByName,
+      boolean share) {
+    InternalVirtualLink internalVirtualLink_new = new InternalVirtualLink();
+    internalVirtualLink_new.setName(internalVirtualLink.getName());
+
+    VirtualLinkRecord virtualLinkRecord = vlrByName.get(internalVirtualLink_new.getName());
+    if (virtualLinkRecord != null) {
+      internalVirtualLink_new.setExtId(virtualLinkRecord.getExtId());
     }
-    virtualNetworkFunctionRecord.getVirtual_link().addAll(internalVirtualLinks);
+
+    internalVirtualLink_new.setCidr(internalVirtualLink.getCidr());
+    internalVirtualLink_new.setLeaf_requirement(internalVirtualLink.getLeaf_requirement());
+    internalVirtualLink_new.setRoot_requirement(internalVirtualLink.getRoot_requirement());
+    internalVirtualLink_new.setConnection_points_references(
+        copySet(internalVirtualLink.getConnection_points_references(), share));
+    internalVirtualLink_new.setQos(copySet(internalVirtualLink.getQos(), share));
+    internalVirtualLink_new.setTest_access(copySet(internalVirtualLink.getTest_access(), share));
+    internalVirtualLink_new.setConnectivity_type(internalVirtualLink.getConnectivity_type());
+    return internalVirtualLink_new;
   }
 
   private static void setLifeCycleEvents(
@@ -154,12 +337,7 @@ public class VNFRUtils {
     virtualNetworkFunctionRecord.setLifecycle_event(new LinkedHashSet<LifecycleEvent>());
     HashSet<LifecycleEvent> lifecycleEvents = new HashSet<>();
     for (LifecycleEvent lifecycleEvent : vnfd.getLifecycle_event()) {
-      LifecycleEvent lifecycleEvent_new = new LifecycleEvent();
-      lifecycleEvent_new.setEvent(lifecycleEvent.getEvent());
-      lifecycleEvent_new.setLifecycle_events(new ArrayList<>());
-      for (String event : lifecycleEvent.getLifecycle_events()) {
-        lifecycleEvent_new.getLifecycle_events().add(event);
-      }
+      LifecycleEvent lifecycleEvent_new = copyLifecycleEvent(lifecycleEvent, false);
       log.debug(
           "Found SCRIPTS for EVENT "
               + lifecycleEvent_new.getEvent()
@@ -170,6 +348,13 @@ public class VNFRUtils {
     virtualNetworkFunctionRecord.setLifecycle_event(lifecycleEvents);
   }
 
+  private static LifecycleEvent copyLifecycleEvent(LifecycleEvent lifecycleEvent, boolean share) {
+    LifecycleEvent lifecycleEvent_new = new LifecycleEvent();
+    lifecycleEvent_new.setEvent(lifecycleEvent.getEvent());
+    lifecycleEvent_new.setLifecycle_events(copyList(lifecycleEvent.getLifecycle_events(), share));
+    return lifecycleEvent_new;
+  }
+
   private static void setDeploymentFlavours(
       VirtualNetworkFunctionDescriptor vnfd,
       String flavourKey,
@@ -178,32 +363,37 @@ public class VNFRUtils {
       throws BadFormatException {
     virtualNetworkFunctionRecord.setDeployment_flavour_key(flavourKey);
     for (VirtualDeploymentUnit virtualDeploymentUnit : vnfd.getVdu()) {
-      Collection<? extends BaseVimInstance> vimInstancesTmp =
-          vimInstances.get(virtualDeploymentUnit.getId());
+      checkDeploymentFlavour(
+          flavourKey,
+          getVimInstances(
+              vimInstances, virtualDeploymentUnit.getId(), virtualDeploymentUnit.getName()),
+          virtualDeploymentUnit.getVimInstanceName());
+    }
+  }
 
-      if (vimInstancesTmp == null) {
-        vimInstancesTmp = vimInstances.get(virtualDeploymentUnit.getName());
-      }
-      if (vimInstancesTmp == null) {
-        vimInstancesTmp = vimInstances.get(virtualDeploymentUnit.getId());
-      }
-      for (BaseVimInstance vi : vimInstancesTmp) {
-        for (String name : virtualDeploymentUnit.getVimInstanceName()) {
-          if (name.equals(vi.getName())) {
-            if (!existsDeploymentFlavor(
-                virtualNetworkFunctionRecord.getDeployment_flavour_key(), vi)) {
-              throw new BadFormatException(
-                  "no key "
-                      + virtualNetworkFunctionRecord.getDeployment_flavour_key()
-                      + " found in vim instance: "
-                      + vi);
-            }
-          }
+  private static void checkDeploymentFlavour(
+      String flavourKey,
+      Collection<? extends BaseVimInstance> vimInstancesTmp,
+      Set<String> vimInstanceNames)
+      throws BadFormatException {
+    for (BaseVimInstance vi : vimInstancesTmp) {
+      if (vimInstanceNames.contains(vi.getName())) {
+        if (!existsDeploymentFlavor(flavourKey, vi)) {
+          throw new BadFormatException("no key " + flavourKey + " found in vim instance: " + vi);
         }
       }
     }
   }
 
+  private static Collection<? extends BaseVimInstance> getVimInstances(
+      Map<String, Collection<BaseVimInstance>> vimInstances, String vduId, String vduName) {
+    Collection<? extends BaseVimInstance> vimInstancesTmp = vimInstances.get(vduId);
+    if (vimInstancesTmp == null) {
+      vimInstancesTmp = vimInstances.get(vduName);
+    }
+    return vimInstancesTmp;
+  }
+
   private static void setConnectionPoints(
       VirtualNetworkFunctionDescriptor vnfd,
       VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
@@ -214,40 +404,57 @@ public class VNFRUtils {
   private static void setVdu(
       VirtualNetworkFunctionDescriptor vnfd,
       Map<String, Collection<BaseVimInstance>> vimInstances,
-      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
+      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord,
+      VduParallelism parallelism) {
     virtualNetworkFunctionRecord.setVdu(new HashSet<>());
-    for (VirtualDeploymentUnit virtualDeploymentUnit : vnfd.getVdu()) {
-      VirtualDeploymentUnit vduNew = new VirtualDeploymentUnit();
-      vduNew.setMetadata(new HashMap<>());
-      virtualDeploymentUnit.getMetadata().forEach((k, v) -> vduNew.getMetadata().put(k, v));
-      vduNew.setParent_vdu(virtualDeploymentUnit.getId());
-      vduNew.setName(virtualDeploymentUnit.getName());
-      vduNew.setVimInstanceName(virtualDeploymentUnit.getVimInstanceName());
-      vduNew.setHostname(virtualDeploymentUnit.getHostname());
-      vduNew.setComputation_requirement(virtualDeploymentUnit.getComputation_requirement());
-      vduNew.setScale_in_out(virtualDeploymentUnit.getScale_in_out());
-      vduNew.setVdu_constraint(virtualDeploymentUnit.getVdu_constraint());
-      vduNew.setVirtual_network_bandwidth_resource(
-          virtualDeploymentUnit.getVirtual_network_bandwidth_resource());
-      vduNew.setVirtual_memory_resource_element(
-          virtualDeploymentUnit.getVirtual_memory_resource_element());
+    virtualNetworkFunctionRecord
+        .getVdu()
+        .addAll(
+            VduParallelism.build(
+                parallelism,
+                vnfd.getVdu(),
+                virtualDeploymentUnit -> {
+                  VirtualDeploymentUnit vduNew =
+                      copyVdu(virtualDeploymentUnit, virtualDeploymentUnit.getId(), false);
+
+                  setVimInstanceNames(
+                      vimInstances,
+                      virtualDeploymentUnit.getId(),
+                      virtualDeploymentUnit.getName(),
+                      vduNew);
+                  return vduNew;
+                }));
+  }
 
-      setVnfComponents(virtualDeploymentUnit, vduNew);
+  private static VirtualDeploymentUnit copyVdu(
+      VirtualDeploymentUnit virtualDeploymentUnit, String parentVdu, boolean share) {
+    VirtualDeploymentUnit vduNew = new VirtualDeploymentUnit();
+    vduNew.setMetadata(copyMap(virtualDeploymentUnit.getMetadata(), share));
+    vduNew.setParent_vdu(parentVdu);
+    vduNew.setName(virtualDeploymentUnit.getName());
+    vduNew.setVimInstanceName(virtualDeploymentUnit.getVimInstanceName());
+    vduNew.setHostname(virtualDeploymentUnit.getHostname());
+    vduNew.setComputation_requirement(virtualDeploymentUnit.getComputation_requirement());
+    vduNew.setScale_in_out(virtualDeploymentUnit.getScale_in_out());
+    vduNew.setVdu_constraint(virtualDeploymentUnit.getVdu_constraint());
+    vduNew.setVirtual_network_bandwidth_resource(
+        virtualDeploymentUnit.getVirtual_network_bandwidth_resource());
+    vduNew.setVirtual_memory_resource_element(
+        virtualDeploymentUnit.getVirtual_memory_resource_element());
 
-      setVduLifeCycleEvents(virtualDeploymentUnit, vduNew);
+    setVnfComponents(virtualDeploymentUnit, vduNew);
 
-      setMonitoringParameters(virtualDeploymentUnit, vduNew);
+    setVduLifeCycleEvents(virtualDeploymentUnit, vduNew, share);
 
-      setHighAvailability(virtualDeploymentUnit, vduNew);
+    setMonitoringParameters(virtualDeploymentUnit, vduNew, share);
 
-      setFaultManagementPolicies(virtualDeploymentUnit, vduNew);
+    setHighAvailability(virtualDeploymentUnit, vduNew);
 
-      setVmImages(virtualDeploymentUnit, vduNew);
+    setFaultManagementPolicies(virtualDeploymentUnit, vduNew);
 
-      setVimInstanceNames(vimInstances, virtualDeploymentUnit, vduNew);
+    setVmImages(virtualDeploymentUnit, vduNew, share);
 
-      virtualNetworkFunctionRecord.getVdu().add(vduNew);
-    }
+    return vduNew;
   }
 
   private static void setHighAvailability(
@@ -261,13 +468,11 @@ public class VNFRUtils {
 
   private static void setVimInstanceNames(
       Map<String, Collection<BaseVimInstance>> vimInstances,
-      VirtualDeploymentUnit virtualDeploymentUnit,
+      String vduId,
+      String vduName,
       VirtualDeploymentUnit vdu_new) {
     Collection<? extends BaseVimInstance> vimInstancesTmp =
-        vimInstances.get(virtualDeploymentUnit.getId());
-    if (vimInstancesTmp == null) {
-      vimInstancesTmp = vimInstances.get(virtualDeploymentUnit.getName());
-    }
+        getVimInstances(vimInstances, vduId, vduName);
 
     Set<String> names = new LinkedHashSet<>();
     for (BaseVimInstance vi : vimInstancesTmp) {
@@ -277,10 +482,8 @@ public class VNFRUtils {
   }
 
   private static void setVmImages(
-      VirtualDeploymentUnit virtualDeploymentUnit, VirtualDeploymentUnit vdu_new) {
-    HashSet<String> vmImages = new HashSet<>();
-    vmImages.addAll(virtualDeploymentUnit.getVm_image());
-    vdu_new.setVm_image(vmImages);
+      VirtualDeploymentUnit virtualDeploymentUnit, VirtualDeploymentUnit vdu_new, boolean share) {
+    vdu_new.setVm_image(copySet(virtualDeploymentUnit.getVm_image(), share));
   }
 
   private static void setFaultManagementPolicies(
@@ -316,20 +519,16 @@ public class VNFRUtils {
   }
 
   private static void setMonitoringParameters(
-      VirtualDeploymentUnit virtualDeploymentUnit, VirtualDeploymentUnit vdu_new) {
-    HashSet<String> monitoringParameters = new HashSet<>();
-    monitoringParameters.addAll(virtualDeploymentUnit.getMonitoring_parameter());
-    vdu_new.setMonitoring_parameter(monitoringParameters);
+      VirtualDeploymentUnit virtualDeploymentUnit, VirtualDeploymentUnit vdu_new, boolean share) {
+    vdu_new.setMonitoring_parameter(
+        copySet(virtualDeploymentUnit.getMonitoring_parameter(), share));
   }
 
   private static void setVduLifeCycleEvents(
-      VirtualDeploymentUnit virtualDeploymentUnit, VirtualDeploymentUnit vdu_new) {
+      VirtualDeploymentUnit virtualDeploymentUnit, VirtualDeploymentUnit vdu_new, boolean share) {
     HashSet<LifecycleEvent> lifecycleEvents = new HashSet<>();
     for (LifecycleEvent lifecycleEvent : virtualDeploymentUnit.getLifecycle_event()) {
-      LifecycleEvent lifecycleEvent_new = new LifecycleEvent();
-      lifecycleEvent_new.setEvent(lifecycleEvent.getEvent());
-      lifecycleEvent_new.setLifecycle_events(lifecycleEvent.getLifecycle_events());
-      lifecycleEvents.add(lifecycleEvent_new);
+      lifecycleEvents.add(copyLifecycleEvent(lifecycleEvent, share));
     }
     vdu_new.setLifecycle_event(lifecycleEvents);
   }
@@ -372,45 +571,52 @@ public class VNFRUtils {
       VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
     virtualNetworkFunctionRecord.setAuto_scale_policy(new HashSet<AutoScalePolicy>());
     for (AutoScalePolicy autoScalePolicy : vnfd.getAuto_scale_policy()) {
-      AutoScalePolicy newAutoScalePolicy = new AutoScalePolicy();
-      newAutoScalePolicy.setName(autoScalePolicy.getName());
-      newAutoScalePolicy.setType(autoScalePolicy.getType());
-      newAutoScalePolicy.setCooldown(autoScalePolicy.getCooldown());
-      newAutoScalePolicy.setPeriod(autoScalePolicy.getPeriod());
-      newAutoScalePolicy.setComparisonOperator(autoScalePolicy.getComparisonOperator());
-      newAutoScalePolicy.setThreshold(autoScalePolicy.getThreshold());
-      newAutoScalePolicy.setMode(autoScalePolicy.getMode());
-      newAutoScalePolicy.setActions(new HashSet<ScalingAction>());
-      for (ScalingAction action : autoScalePolicy.getActions()) {
-        ScalingAction newAction = new ScalingAction();
-        newAction.setValue(action.getValue());
-        newAction.setType(action.getType());
-        if (action.getTarget() == null || action.getTarget().equals("")) {
-          newAction.setTarget(vnfd.getType());
-        } else {
-          newAction.setTarget(action.getTarget());
-        }
-        newAutoScalePolicy.getActions().add(newAction);
-      }
-      newAutoScalePolicy.setAlarms(new HashSet<ScalingAlarm>());
-      for (ScalingAlarm alarm : autoScalePolicy.getAlarms()) {
-        ScalingAlarm newAlarm = new ScalingAlarm();
-        newAlarm.setComparisonOperator(alarm.getComparisonOperator());
-        newAlarm.setMetric(alarm.getMetric());
-        newAlarm.setStatistic(alarm.getStatistic());
-        newAlarm.setThreshold(alarm.getThreshold());
-        newAlarm.setWeight(alarm.getWeight());
-        newAutoScalePolicy.getAlarms().add(newAlarm);
+      virtualNetworkFunctionRecord
+          .getAuto_scale_policy()
+          .add(copyAutoScalePolicy(autoScalePolicy, vnfd.getType()));
+    }
+  }
+
+  private static AutoScalePolicy copyAutoScalePolicy(
+      AutoScalePolicy autoScalePolicy, String defaultTarget) {
+    AutoScalePolicy newAutoScalePolicy = new AutoScalePolicy();
+    newAutoScalePolicy.setName(autoScalePolicy.getName());
+    newAutoScalePolicy.setType(autoScalePolicy.getType());
+    newAutoScalePolicy.setCooldown(autoScalePolicy.getCooldown());
+    newAutoScalePolicy.setPeriod(autoScalePolicy.getPeriod());
+    newAutoScalePolicy.setComparisonOperator(autoScalePolicy.getComparisonOperator());
+    newAutoScalePolicy.setThreshold(autoScalePolicy.getThreshold());
+    newAutoScalePolicy.setMode(autoScalePolicy.getMode());
+    newAutoScalePolicy.setActions(new HashSet<ScalingAction>());
+    for (ScalingAction action : autoScalePolicy.getActions()) {
+      ScalingAction newAction = new ScalingAction();
+      newAction.setValue(action.getValue());
+      newAction.setType(action.getType());
+      if (action.getTarget() == null || action.getTarget().equals("")) {
+        newAction.setTarget(defaultTarget);
+      } else {
+        newAction.setTarget(action.getTarget());
       }
-      virtualNetworkFunctionRecord.getAuto_scale_policy().add(newAutoScalePolicy);
+      newAutoScalePolicy.getActions().add(newAction);
     }
+    newAutoScalePolicy.setAlarms(new HashSet<ScalingAlarm>());
+    for (ScalingAlarm alarm : autoScalePolicy.getAlarms()) {
+      ScalingAlarm newAlarm = new ScalingAlarm();
+      newAlarm.setComparisonOperator(alarm.getComparisonOperator());
+      newAlarm.setMetric(alarm.getMetric());
+      newAlarm.setStatistic(alarm.getStatistic());
+      newAlarm.setThreshold(alarm.getThreshold());
+      newAlarm.setWeight(alarm.getWeight());
+      newAutoScalePolicy.getAlarms().add(newAlarm);
+    }
+    return newAutoScalePolicy;
   }
 
   private static void setMonitoringParameters(
       VirtualNetworkFunctionDescriptor vnfd,
       VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
-    virtualNetworkFunctionRecord.setMonitoring_parameter(new HashSet<String>());
-    virtualNetworkFunctionRecord.getMonitoring_parameter().addAll(vnfd.getMonitoring_parameter());
+    virtualNetworkFunctionRecord.setMonitoring_parameter(
+        new HashSet<>(vnfd.getMonitoring_parameter()));
   }
 
   private static void setProvides(
@@ -478,17 +684,23 @@ public class VNFRUtils {
     virtualNetworkFunctionRecord.setConfigurations(configuration);
   }
 
+  private static Configuration copyConfiguration(Configuration configuration) {
+    Configuration configuration_new = new Configuration();
+    configuration_new.setName(configuration.getName());
+    configuration_new.setConfigurationParameters(new HashSet<ConfigurationParameter>());
+    for (ConfigurationParameter configurationParameter :
+        configuration.getConfigurationParameters()) {
+      ConfigurationParameter cp = new ConfigurationParameter();
+      cp.setConfKey(configurationParameter.getConfKey());
+      cp.setValue(configurationParameter.getValue());
+      configuration_new.getConfigurationParameters().add(cp);
+    }
+    return configuration_new;
+  }
+
   private static boolean existsDeploymentFlavor(String key, BaseVimInstance vimInstance) {
     if (vimInstance instanceof OpenstackVimInstance) {
-      OpenstackVimInstance openstackVimInstance = (OpenstackVimInstance) vimInstance;
-      for (DeploymentFlavour deploymentFlavour : openstackVimInstance.getFlavours()) {
-        if (deploymentFlavour.getFlavour_key().equals(key)
-            || deploymentFlavour.getExtId().equals(key)
-            || deploymentFlavour.getId().equals(key)) {
-          return true;
-        }
-      }
-      return false;
+      return DeploymentFlavourIndex.of((OpenstackVimInstance) vimInstance).contains(key);
     }
     return true;
   }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.openbaton.catalogue.mano.descriptor.VirtualDeploymentUnit;
+
+/**
+ * Builds the VDUs of large records concurrently, on a fork-join pool owned by the VNFM. Records
+ * with a single VDU, or with fewer VNF components in total than the threshold, are built
+ * sequentially on the calling thread, since below that the fork-join overhead costs more than it
+ * saves.
+ *
+ * <p>The threshold ("vnfr-parallel-vdu-threshold") depends on the number of cores of the host;
+ * measure it with the VduConstructionBenchmark of the benchmark module. On a single core the
+ * concurrent build was slower for every size measured, up to 128 VDUs of 64 VNF components each,
+ * which is why it is disabled by default.
+ */
+public class VduParallelism {
+
+  private final int threshold;
+  private final ForkJoinPool pool;
+
+  /**
+   * @param threshold the minimum number of VNF components for which the VDUs are built concurrently
+   * @param parallelism the number of threads of the pool
+   */
+  public VduParallelism(int threshold, int parallelism) {
+    this.threshold = threshold;
+    this.pool =
+        new ForkJoinPool(
+            parallelism,
+            pool -> {
+              ForkJoinWorkerThread thread =
+                  ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+              thread.setName("vnfr-vdu-builder-" + thread.getPoolIndex());
+              thread.setDaemon(true);
+              return thread;
+            },
+            null,
+            false);
+  }
+
+  public int getThreshold() {
+    return threshold;
+  }
+
+  public int getParallelism() {
+    return pool.getParallelism();
+  }
+
+  /**
+   * Applies the builder to all the source VDUs, concurrently if the threshold is reached. The
+   * builder must only read the source VDUs.
+   *
+   * @param parallelism null to always build sequentially
+   */
+  static List<VirtualDeploymentUnit> build(
+      VduParallelism parallelism,
+      Collection<VirtualDeploymentUnit> sources,
+      Function<VirtualDeploymentUnit, VirtualDeploymentUnit> builder) {
+    if (parallelism != null && sources.size() > 1) {
+      int components = 0;
+      for (VirtualDeploymentUnit virtualDeploymentUnit : sources) {
+        components += virtualDeploymentUnit.getVnfc().size();
+      }
+      if (components >= parallelism.threshold) {
+        return parallelism
+            .pool
+            .submit(() -> sources.parallelStream().map(builder).collect(Collectors.toList()))
+            .join();
+      }
+    }
+    List<VirtualDeploymentUnit> vdus = new ArrayList<>(sources.size());
+    for (VirtualDeploymentUnit virtualDeploymentUnit : sources) {
+      vdus.add(builder.apply(virtualDeploymentUnit));
+    }
+    return vdus;
+  }
+
+  public void shutdown() {
+    pool.shutdown();
+  }
+}
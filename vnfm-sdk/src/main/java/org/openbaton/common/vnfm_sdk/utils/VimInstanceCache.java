@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.openbaton.catalogue.nfvo.viminstances.BaseVimInstance;
+
+/**
+ * Resolves the VIM instances received with every message to one canonical instance per VIM id and
+ * version, so that the same VIM sent again and again (or several times in the same message) is only
+ * retained once.
+ *
+ * <p>Canonical instances are shared between messages, possibly handled concurrently, and must not
+ * be modified. An instance is only changed, by the {@link StringPool} if one is given, before it
+ * becomes canonical.
+ */
+public class VimInstanceCache {
+
+  private final Map<String, BaseVimInstance> vimInstances;
+
+  public VimInstanceCache(int maxSize) {
+    this.vimInstances =
+        new LinkedHashMap<String, BaseVimInstance>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, BaseVimInstance> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  public BaseVimInstance canonicalize(BaseVimInstance vimInstance) {
+    return canonicalize(vimInstance, null);
+  }
+
+  /**
+   * @param vimInstance a VIM instance as received
+   * @param stringPool the pool interning the strings of an instance that becomes canonical, may be
+   *     null
+   * @return the cached instance with the same id and version, or the given one which becomes the
+   *     cached instance
+   */
+  public BaseVimInstance canonicalize(BaseVimInstance vimInstance, StringPool stringPool) {
+    if (vimInstance == null || vimInstance.getId() == null || vimInstance.getHbVersion() == null) {
+      return stringPool == null ? vimInstance : stringPool.intern(vimInstance);
+    }
+    synchronized (vimInstances) {
+      BaseVimInstance cached = vimInstances.get(vimInstance.getId());
+      if (cached != null
+          && cached.getClass() == vimInstance.getClass()
+          && vimInstance.getHbVersion().equals(cached.getHbVersion())) {
+        return cached;
+      }
+      if (stringPool != null) {
+        // not shared yet, no other message can see it while it changes
+        stringPool.intern(vimInstance);
+      }
+      vimInstances.put(vimInstance.getId(), vimInstance);
+      return vimInstance;
+    }
+  }
+
+  /**
+   * Replaces, in place, the VIM instances of the map by their canonical instances.
+   *
+   * @param vimInstances the VIM instances per VDU id, as sent with INSTANTIATE
+   * @return the same map
+   */
+  public Map<String, Collection<BaseVimInstance>> canonicalize(
+      Map<String, Collection<BaseVimInstance>> vimInstances) {
+    return canonicalize(vimInstances, null);
+  }
+
+  /**
+   * Replaces, in place, the VIM instances of the map by their canonical instances.
+   *
+   * @param vimInstances the VIM instances per VDU id, as sent with INSTANTIATE
+   * @param stringPool the pool interning the strings of the instances that become canonical, may be
+   *     null
+   * @return the same map
+   */
+  public Map<String, Collection<BaseVimInstance>> canonicalize(
+      Map<String, Collection<BaseVimInstance>> vimInstances, StringPool stringPool) {
+    if (vimInstances == null) {
+      return null;
+    }
+    for (Map.Entry<String, Collection<BaseVimInstance>> entry : vimInstances.entrySet()) {
+      if (entry.getValue() != null) {
+        List<BaseVimInstance> canonical = new ArrayList<>(entry.getValue().size());
+        for (BaseVimInstance vimInstance : entry.getValue()) {
+          canonical.add(canonicalize(vimInstance, stringPool));
+        }
+        entry.setValue(canonical);
+      }
+    }
+    return vimInstances;
+  }
+
+  public void invalidate(String vimInstanceId) {
+    synchronized (vimInstances) {
+      vimInstances.remove(vimInstanceId);
+    }
+  }
+
+  public void clear() {
+    synchronized (vimInstances) {
+      vimInstances.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (vimInstances) {
+      return vimInstances.size();
+    }
+  }
+}
@@ -25,6 +25,15 @@ import org.openbaton.catalogue.mano.record.VNFCInstance;
 import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
 import org.openbaton.catalogue.nfvo.Action;
 import org.openbaton.catalogue.nfvo.messages.Interfaces.NFVMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmErrorMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmExecuteScriptMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmGenericMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmGrantLifecycleOperationMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmHealVNFRequestMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmInstantiateMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmScalingMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmStartStopMessage;
+import org.openbaton.catalogue.nfvo.messages.OrVnfmUpdateMessage;
 import org.openbaton.catalogue.nfvo.messages.VnfmOrAllocateResourcesMessage;
 import org.openbaton.catalogue.nfvo.messages.VnfmOrErrorMessage;
 import org.openbaton.catalogue.nfvo.messages.VnfmOrGenericMessage;
@@ -116,4 +125,49 @@ public class VnfmUtils {
     vnfmOrStartStopMessage.setAction(action);
     return vnfmOrStartStopMessage;
   }
+
+  /**
+   * Returns the VNFR carried by a message, in either direction.
+   *
+   * @param nfvMessage the message
+   * @return the VNFR, or null if the message does not carry one
+   */
+  public static VirtualNetworkFunctionRecord getVnfr(NFVMessage nfvMessage) {
+    if (nfvMessage instanceof OrVnfmGenericMessage) {
+      return ((OrVnfmGenericMessage) nfvMessage).getVnfr();
+    } else if (nfvMessage instanceof OrVnfmInstantiateMessage) {
+      return ((OrVnfmInstantiateMessage) nfvMessage).getVnfr();
+    } else if (nfvMessage instanceof OrVnfmErrorMessage) {
+      return ((OrVnfmErrorMessage) nfvMessage).getVnfr();
+    } else if (nfvMessage instanceof OrVnfmUpdateMessage) {
+      return ((OrVnfmUpdateMessage) nfvMessage).getVnfr();
+    } else if (nfvMessage instanceof OrVnfmExecuteScriptMessage) {
+      return ((OrVnfmExecuteScriptMessage) nfvMessage).getVnfr();
+    } else if (nfvMessage instanceof OrVnfmScalingMessage) {
+      return ((OrVnfmScalingMessage) nfvMessage).getVirtualNetworkFunctionRecord();
+    } else if (nfvMessage instanceof OrVnfmHealVNFRequestMessage) {
+      return ((OrVnfmHealVNFRequestMessage) nfvMessage).getVirtualNetworkFunctionRecord();
+    } else if (nfvMessage instanceof OrVnfmStartStopMessage) {
+      return ((OrVnfmStartStopMessage) nfvMessage).getVirtualNetworkFunctionRecord();
+    } else if (nfvMessage instanceof OrVnfmGrantLifecycleOperationMessage) {
+      return ((OrVnfmGrantLifecycleOperationMessage) nfvMessage).getVirtualNetworkFunctionRecord();
+    } else if (nfvMessage instanceof VnfmOrGenericMessage) {
+      return ((VnfmOrGenericMessage) nfvMessage).getVirtualNetworkFunctionRecord();
+    } else if (nfvMessage instanceof VnfmOrInstantiateMessage) {
+      return ((VnfmOrInstantiateMessage) nfvMessage).getVirtualNetworkFunctionRecord();
+    } else if (nfvMessage instanceof VnfmOrErrorMessage) {
+      return ((VnfmOrErrorMessage) nfvMessage).getVirtualNetworkFunctionRecord();
+    } else if (nfvMessage instanceof VnfmOrAllocateResourcesMessage) {
+      return ((VnfmOrAllocateResourcesMessage) nfvMessage).getVirtualNetworkFunctionRecord();
+    } else if (nfvMessage instanceof VnfmOrScaledMessage) {
+      return ((VnfmOrScaledMessage) nfvMessage).getVirtualNetworkFunctionRecord();
+    } else if (nfvMessage instanceof VnfmOrHealedMessage) {
+      return ((VnfmOrHealedMessage) nfvMessage).getVirtualNetworkFunctionRecord();
+    } else if (nfvMessage instanceof VnfmOrScalingMessage) {
+      return ((VnfmOrScalingMessage) nfvMessage).getVirtualNetworkFunctionRecord();
+    } else if (nfvMessage instanceof VnfmOrStartStopMessage) {
+      return ((VnfmOrStartStopMessage) nfvMessage).getVirtualNetworkFunctionRecord();
+    }
+    return null;
+  }
 }
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.openbaton.catalogue.mano.common.Ip;
+import org.openbaton.catalogue.mano.descriptor.VNFDConnectionPoint;
+import org.openbaton.catalogue.mano.descriptor.VirtualDeploymentUnit;
+import org.openbaton.catalogue.mano.record.VNFCInstance;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+
+/**
+ * Index over the VDUs and VNFC instances of a {@link VirtualNetworkFunctionRecord}, so that they
+ * can be looked up by id, component id, hostname, IP, VDU parent id or virtual link without
+ * scanning the whole record.
+ *
+ * <p>The index is built once and then kept up to date by adding and removing VNFC instances through
+ * it. Changes made to the record directly are not seen until {@link #rebuild()} is called. An index
+ * is not thread safe.
+ */
+public class VnfrIndex {
+
+  private final VirtualNetworkFunctionRecord record;
+
+  private final Map<String, VirtualDeploymentUnit> vdusById = new HashMap<>();
+  private final Map<String, VirtualDeploymentUnit> vdusByParent = new HashMap<>();
+  private final Map<String, VNFCInstance> vnfcInstancesById = new HashMap<>();
+  private final Map<String, VNFCInstance> vnfcInstancesByComponentId = new HashMap<>();
+  private final Map<String, VNFCInstance> vnfcInstancesByHostname = new HashMap<>();
+  private final Map<String, VNFCInstance> vnfcInstancesByIp = new HashMap<>();
+  private final Map<String, Set<VNFCInstance>> vnfcInstancesByVirtualLink = new HashMap<>();
+  // VNFC instances are compared by identity, their ids are null until the NFVO sets them
+  private final Map<VNFCInstance, Entry> entries = new IdentityHashMap<>();
+
+  public VnfrIndex(VirtualNetworkFunctionRecord record) {
+    this.record = record;
+    rebuild();
+  }
+
+  public VirtualNetworkFunctionRecord getRecord() {
+    return record;
+  }
+
+  /** Indexes the record again from scratch. */
+  public void rebuild() {
+    vdusById.clear();
+    vdusByParent.clear();
+    vnfcInstancesById.clear();
+    vnfcInstancesByComponentId.clear();
+    vnfcInstancesByHostname.clear();
+    vnfcInstancesByIp.clear();
+    vnfcInstancesByVirtualLink.clear();
+    entries.clear();
+    if (record.getVdu() == null) {
+      return;
+    }
+    for (VirtualDeploymentUnit virtualDeploymentUnit : record.getVdu()) {
+      putIfKey(vdusById, virtualDeploymentUnit.getId(), virtualDeploymentUnit);
+      putIfKey(vdusByParent, virtualDeploymentUnit.getParent_vdu(), virtualDeploymentUnit);
+      if (virtualDeploymentUnit.getVnfc_instance() != null) {
+        for (VNFCInstance vnfcInstance : virtualDeploymentUnit.getVnfc_instance()) {
+          index(virtualDeploymentUnit, vnfcInstance);
+        }
+      }
+    }
+  }
+
+  /** @return the number of indexed VNFC instances */
+  public int size() {
+    return entries.size();
+  }
+
+  public VirtualDeploymentUnit getVdu(String id) {
+    return vdusById.get(id);
+  }
+
+  public VirtualDeploymentUnit getVduByParent(String parentVduId) {
+    return vdusByParent.get(parentVduId);
+  }
+
+  /** @return the VDU the VNFC instance belongs to, or null if it is not in the record */
+  public VirtualDeploymentUnit getVdu(VNFCInstance vnfcInstance) {
+    Entry entry = entries.get(vnfcInstance);
+    return entry == null ? null : entry.virtualDeploymentUnit;
+  }
+
+  public VNFCInstance getVnfcInstance(String id) {
+    return vnfcInstancesById.get(id);
+  }
+
+  /** @return the VNFC instance created for the VNF component with this id */
+  public VNFCInstance getVnfcInstanceByComponentId(String componentId) {
+    return vnfcInstancesByComponentId.get(componentId);
+  }
+
+  public VNFCInstance getVnfcInstanceByHostname(String hostname) {
+    return vnfcInstancesByHostname.get(hostname);
+  }
+
+  /** @param ip a private or floating IP */
+  public VNFCInstance getVnfcInstanceByIp(String ip) {
+    return vnfcInstancesByIp.get(ip);
+  }
+
+  /**
+   * @param virtualLinkReference the name of a virtual link
+   * @return the VNFC instances having a connection point on the virtual link
+   */
+  public Collection<VNFCInstance> getVnfcInstancesByVirtualLink(String virtualLinkReference) {
+    Set<VNFCInstance> vnfcInstances = vnfcInstancesByVirtualLink.get(virtualLinkReference);
+    return vnfcInstances == null
+        ? Collections.emptySet()
+        : Collections.unmodifiableSet(vnfcInstances);
+  }
+
+  /** Adds the VNFC instance to the VDU of the record and to the index. */
+  public void addVnfcInstance(
+      VirtualDeploymentUnit virtualDeploymentUnit, VNFCInstance vnfcInstance) {
+    removeVnfcInstance(vnfcInstance);
+    if (virtualDeploymentUnit.getVnfc_instance() == null) {
+      virtualDeploymentUnit.setVnfc_instance(new HashSet<>());
+    }
+    virtualDeploymentUnit.getVnfc_instance().add(vnfcInstance);
+    index(virtualDeploymentUnit, vnfcInstance);
+  }
+
+  /**
+   * Removes the VNFC instance from its VDU and from the index.
+   *
+   * @return false if the VNFC instance is not in the record
+   */
+  public boolean removeVnfcInstance(VNFCInstance vnfcInstance) {
+    VirtualDeploymentUnit virtualDeploymentUnit = remove(vnfcInstance);
+    if (virtualDeploymentUnit == null) {
+      return false;
+    }
+    virtualDeploymentUnit.getVnfc_instance().remove(vnfcInstance);
+    return true;
+  }
+
+  /** Indexes again a VNFC instance whose hostname, IPs or connection points have changed. */
+  public void refresh(VNFCInstance vnfcInstance) {
+    VirtualDeploymentUnit virtualDeploymentUnit = remove(vnfcInstance);
+    if (virtualDeploymentUnit != null) {
+      index(virtualDeploymentUnit, vnfcInstance);
+    }
+  }
+
+  private void index(VirtualDeploymentUnit virtualDeploymentUnit, VNFCInstance vnfcInstance) {
+    Entry entry = new Entry(virtualDeploymentUnit, vnfcInstance);
+    entries.put(vnfcInstance, entry);
+    putIfKey(vnfcInstancesById, entry.id, vnfcInstance);
+    putIfKey(vnfcInstancesByComponentId, entry.componentId, vnfcInstance);
+    putIfKey(vnfcInstancesByHostname, entry.hostname, vnfcInstance);
+    for (String ip : entry.ips) {
+      vnfcInstancesByIp.put(ip, vnfcInstance);
+    }
+    for (String virtualLinkReference : entry.virtualLinks) {
+      vnfcInstancesByVirtualLink
+          .computeIfAbsent(
+              virtualLinkReference, key -> Collections.newSetFromMap(new IdentityHashMap<>()))
+          .add(vnfcInstance);
+    }
+  }
+
+  /** Removes the VNFC instance from the index, using the keys it was indexed with. */
+  private VirtualDeploymentUnit remove(VNFCInstance vnfcInstance) {
+    Entry entry = entries.remove(vnfcInstance);
+    if (entry == null) {
+      return null;
+    }
+    removeIfIndexed(vnfcInstancesById, entry.id, vnfcInstance);
+    removeIfIndexed(vnfcInstancesByComponentId, entry.componentId, vnfcInstance);
+    removeIfIndexed(vnfcInstancesByHostname, entry.hostname, vnfcInstance);
+    for (String ip : entry.ips) {
+      removeIfIndexed(vnfcInstancesByIp, ip, vnfcInstance);
+    }
+    for (String virtualLinkReference : entry.virtualLinks) {
+      Set<VNFCInstance> vnfcInstances = vnfcInstancesByVirtualLink.get(virtualLinkReference);
+      vnfcInstances.remove(vnfcInstance);
+      if (vnfcInstances.isEmpty()) {
+        vnfcInstancesByVirtualLink.remove(virtualLinkReference);
+      }
+    }
+    return entry.virtualDeploymentUnit;
+  }
+
+  private static void removeIfIndexed(
+      Map<String, VNFCInstance> map, String key, VNFCInstance vnfcInstance) {
+    if (key != null && map.get(key) == vnfcInstance) {
+      map.remove(key);
+    }
+  }
+
+  private static List<String> ips(VNFCInstance vnfcInstance) {
+    List<String> ips = new ArrayList<>();
+    if (vnfcInstance.getIps() != null) {
+      for (Ip ip : vnfcInstance.getIps()) {
+        if (ip.getIp() != null) {
+          ips.add(ip.getIp());
+        }
+      }
+    }
+    if (vnfcInstance.getFloatingIps() != null) {
+      for (Ip ip : vnfcInstance.getFloatingIps()) {
+        if (ip.getIp() != null) {
+          ips.add(ip.getIp());
+        }
+      }
+    }
+    return ips;
+  }
+
+  private static List<String> virtualLinks(VNFCInstance vnfcInstance) {
+    List<String> virtualLinks = new ArrayList<>();
+    if (vnfcInstance.getConnection_point() != null) {
+      for (VNFDConnectionPoint connectionPoint : vnfcInstance.getConnection_point()) {
+        if (connectionPoint.getVirtual_link_reference() != null
+            && !virtualLinks.contains(connectionPoint.getVirtual_link_reference())) {
+          virtualLinks.add(connectionPoint.getVirtual_link_reference());
+        }
+      }
+    }
+    return virtualLinks;
+  }
+
+  /** The VDU and the keys a VNFC instance is indexed with. */
+  private static class Entry {
+    private final VirtualDeploymentUnit virtualDeploymentUnit;
+    private final String id;
+    private final String componentId;
+    private final String hostname;
+    private final List<String> ips;
+    private final List<String> virtualLinks;
+
+    private Entry(VirtualDeploymentUnit virtualDeploymentUnit, VNFCInstance vnfcInstance) {
+      this.virtualDeploymentUnit = virtualDeploymentUnit;
+      this.id = vnfcInstance.getId();
+      this.componentId =
+          vnfcInstance.getVnfComponent() == null ? null : vnfcInstance.getVnfComponent().getId();
+      this.hostname = vnfcInstance.getHostname();
+      this.ips = ips(vnfcInstance);
+      this.virtualLinks = virtualLinks(vnfcInstance);
+    }
+  }
+
+  private static <V> void putIfKey(Map<String, V> map, String key, V value) {
+    if (key != null) {
+      map.put(key, value);
+    }
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.common.vnfm_sdk.storage.OffHeapVnfrStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the last known state of the most recently used VNFRs, keyed by id.
+ *
+ * <p>Records are versioned by their hbVersion: a record older than the cached one is rejected, a
+ * record with the same version replaces the cached one since the VNFM may have changed it while
+ * handling a message. Records without a version are always accepted.
+ *
+ * <p>Records are kept as JSON snapshots on the heap, or in an {@link OffHeapVnfrStore} if one is
+ * given. Either way the cache never holds a record that is also used by the VNFM, and {@link
+ * #get(String)} returns a new copy of the record every time, which the caller is free to modify. In
+ * both modes each {@link #update} serializes the record once.
+ */
+public class VnfrStateCache {
+
+  private static Logger log = LoggerFactory.getLogger(VnfrStateCache.class);
+
+  private final OffHeapVnfrStore store;
+  private final Gson gson = new GsonBuilder().create();
+  private final Map<String, String> snapshots = new HashMap<>();
+  // access ordered, the eldest entry is the least recently used record
+  private final LinkedHashMap<String, Integer> versions;
+
+  public VnfrStateCache(int maxSize) {
+    this(maxSize, null);
+  }
+
+  /**
+   * @param maxSize the maximum number of records
+   * @param store where to keep the records, null to keep them as JSON on the heap
+   */
+  public VnfrStateCache(int maxSize, OffHeapVnfrStore store) {
+    this.store = store;
+    this.versions =
+        new LinkedHashMap<String, Integer>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+            if (size() > maxSize) {
+              drop(eldest.getKey());
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  /**
+   * Stores the record unless a newer version of it is already cached.
+   *
+   * @param virtualNetworkFunctionRecord the record, ignored if null or without id
+   * @return false if the record was ignored or rejected as stale
+   */
+  public boolean update(VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
+    if (virtualNetworkFunctionRecord == null || virtualNetworkFunctionRecord.getId() == null) {
+      return false;
+    }
+    String id = virtualNetworkFunctionRecord.getId();
+    Integer hbVersion = virtualNetworkFunctionRecord.getHbVersion();
+    synchronized (versions) {
+      Integer cached = versions.get(id);
+      if (cached != null && hbVersion != null && hbVersion < cached) {
+        log.debug(
+            "Ignoring VNFR "
+                + id
+                + " with version "
+                + hbVersion
+                + ", version "
+                + cached
+                + " is cached");
+        return false;
+      }
+      if (store == null) {
+        snapshots.put(id, gson.toJson(virtualNetworkFunctionRecord));
+      } else if (!putInStore(virtualNetworkFunctionRecord)) {
+        versions.remove(id);
+        return false;
+      }
+      versions.put(id, hbVersion == null ? Integer.MIN_VALUE : hbVersion);
+      return true;
+    }
+  }
+
+  /** Stores the record off-heap, evicting the least recently used records to make room. */
+  private boolean putInStore(VirtualNetworkFunctionRecord virtualNetworkFunctionRecord) {
+    try {
+      Iterator<String> eldest = versions.keySet().iterator();
+      while (!store.put(virtualNetworkFunctionRecord)) {
+        if (!eldest.hasNext()) {
+          log.warn(
+              "VNFR "
+                  + virtualNetworkFunctionRecord.getId()
+                  + " does not fit in the off-heap store, not caching it");
+          return false;
+        }
+        String id = eldest.next();
+        if (!id.equals(virtualNetworkFunctionRecord.getId())) {
+          store.remove(id);
+          eldest.remove();
+        }
+      }
+      return true;
+    } catch (IOException e) {
+      log.warn("Not able to cache VNFR " + virtualNetworkFunctionRecord.getId(), e);
+      return false;
+    }
+  }
+
+  private void drop(String id) {
+    if (store == null) {
+      snapshots.remove(id);
+    } else {
+      store.remove(id);
+    }
+  }
+
+  /** @return a copy of the last known state of the record, or null if it is not cached */
+  public VirtualNetworkFunctionRecord get(String id) {
+    return read(id, true);
+  }
+
+  /** @param touch true to mark the record as the most recently used one */
+  private VirtualNetworkFunctionRecord read(String id, boolean touch) {
+    String snapshot = null;
+    synchronized (versions) {
+      if (touch ? versions.get(id) == null : !versions.containsKey(id)) {
+        return null;
+      }
+      if (store == null) {
+        snapshot = snapshots.get(id);
+      }
+    }
+    if (snapshot != null) {
+      return gson.fromJson(snapshot, VirtualNetworkFunctionRecord.class);
+    }
+    try {
+      return store.get(id);
+    } catch (IOException e) {
+      log.warn("Not able to read cached VNFR " + id, e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns copies of all the cached records, without changing which ones are the least recently
+   * used.
+   *
+   * @return the cached records, the least recently used first
+   */
+  public List<VirtualNetworkFunctionRecord> getAll() {
+    List<String> ids;
+    synchronized (versions) {
+      ids = new ArrayList<>(versions.keySet());
+    }
+    List<VirtualNetworkFunctionRecord> result = new ArrayList<>(ids.size());
+    for (String id : ids) {
+      VirtualNetworkFunctionRecord virtualNetworkFunctionRecord = read(id, false);
+      if (virtualNetworkFunctionRecord != null) {
+        result.add(virtualNetworkFunctionRecord);
+      }
+    }
+    return result;
+  }
+
+  public void invalidate(String id) {
+    synchronized (versions) {
+      if (versions.remove(id) != null) {
+        drop(id);
+      }
+    }
+  }
+
+  public void clear() {
+    synchronized (versions) {
+      for (String id : versions.keySet()) {
+        drop(id);
+      }
+      versions.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (versions) {
+      return versions.size();
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.utils;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.openbaton.catalogue.mano.descriptor.VirtualNetworkFunctionDescriptor;
+import org.openbaton.catalogue.mano.record.VirtualLinkRecord;
+import org.openbaton.catalogue.mano.record.VirtualNetworkFunctionRecord;
+import org.openbaton.catalogue.nfvo.viminstances.BaseVimInstance;
+import org.openbaton.common.vnfm_sdk.exception.BadFormatException;
+import org.openbaton.common.vnfm_sdk.exception.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the VNFR templates of the most recently instantiated VNFDs, keyed by descriptor id and
+ * version, so that a VNFD instantiated many times is only walked once.
+ *
+ * @see VNFRUtils#compileVirtualNetworkFunctionRecord(VirtualNetworkFunctionDescriptor)
+ */
+public class VnfrTemplateCache {
+
+  private static Logger log = LoggerFactory.getLogger(VnfrTemplateCache.class);
+
+  private final Map<String, VirtualNetworkFunctionRecord> templates;
+  private final boolean structuralSharing;
+  private final VduParallelism parallelism;
+
+  public VnfrTemplateCache(int maxSize) {
+    this(maxSize, false, null);
+  }
+
+  /**
+   * @param maxSize the maximum number of templates to keep
+   * @param structuralSharing true to let the records share the collections of their template, see
+   *     {@link VNFRUtils#stampVirtualNetworkFunctionRecord(VirtualNetworkFunctionRecord, String,
+   *     String, Set, Map, boolean, VduParallelism)}
+   * @param parallelism where to build the VDUs of large records concurrently, null to build them
+   *     sequentially
+   */
+  public VnfrTemplateCache(int maxSize, boolean structuralSharing, VduParallelism parallelism) {
+    this.structuralSharing = structuralSharing;
+    this.parallelism = parallelism;
+    this.templates =
+        new LinkedHashMap<String, VirtualNetworkFunctionRecord>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(
+              Map.Entry<String, VirtualNetworkFunctionRecord> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  /**
+   * Same as {@link VNFRUtils#createVirtualNetworkFunctionRecord(VirtualNetworkFunctionDescriptor,
+   * String, String, Set, Map)}, using the cached template of the descriptor if there is one.
+   */
+  public VirtualNetworkFunctionRecord createVirtualNetworkFunctionRecord(
+      VirtualNetworkFunctionDescriptor vnfd,
+      String flavourKey,
+      String nsr_id,
+      Set<VirtualLinkRecord> vlr,
+      Map<String, Collection<BaseVimInstance>> vimInstances)
+      throws NotFoundException, BadFormatException {
+    if (vnfd.getId() == null || vnfd.getHbVersion() == null) {
+      return VNFRUtils.createVirtualNetworkFunctionRecord(
+          vnfd, flavourKey, nsr_id, vlr, vimInstances, parallelism);
+    }
+    String key = vnfd.getId() + ":" + vnfd.getHbVersion();
+    VirtualNetworkFunctionRecord template;
+    synchronized (templates) {
+      template = templates.get(key);
+    }
+    if (template == null) {
+      log.debug("Compiling VNFR template for VNFD " + vnfd.getName() + " (" + key + ")");
+      template = VNFRUtils.compileVirtualNetworkFunctionRecord(vnfd);
+      synchronized (templates) {
+        templates.put(key, template);
+      }
+    }
+    return VNFRUtils.stampVirtualNetworkFunctionRecord(
+        template, flavourKey, nsr_id, vlr, vimInstances, structuralSharing, parallelism);
+  }
+
+  public void invalidate(String vnfdId) {
+    synchronized (templates) {
+      templates.keySet().removeIf(key -> key.startsWith(vnfdId + ":"));
+    }
+  }
+
+  public void clear() {
+    synchronized (templates) {
+      templates.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (templates) {
+      return templates.size();
+    }
+  }
+}
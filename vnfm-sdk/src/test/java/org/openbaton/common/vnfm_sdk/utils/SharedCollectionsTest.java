@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2015-2018 Open Baton (http://openbaton.org)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.openbaton.common.vnfm_sdk.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Test;
+
+public class SharedCollectionsTest {
+
+  private static Set<String> sharedSet() {
+    return new HashSet<>(Arrays.asList("a", "b", "c"));
+  }
+
+  @Test
+  public void setReadsFromTheSharedSetUntilModified() {
+    Set<String> shared = sharedSet();
+    Set<String> view = SharedCollections.set(shared);
+    assertTrue(SharedCollections.isShared(view));
+    assertEquals(shared, view);
+
+    assertFalse(view.add("a"));
+    assertFalse(view.remove("z"));
+    assertTrue(SharedCollections.isShared(view));
+
+    assertTrue(view.add("d"));
+    assertFalse(SharedCollections.isShared(view));
+    assertEquals(sharedSet(), shared);
+    assertEquals(new HashSet<>(Arrays.asList("a", "b", "c", "d")), view);
+  }
+
+  @Test
+  public void setRemoveCopiesTheSharedSet() {
+    Set<String> shared = sharedSet();
+    Set<String> view = SharedCollections.set(shared);
+    assertTrue(view.remove("b"));
+    assertFalse(SharedCollections.isShared(view));
+    assertEquals(new HashSet<>(Arrays.asList("a", "c")), view);
+    assertEquals(sharedSet(), shared);
+  }
+
+  @Test
+  public void setIteratorRemoveLeavesTheSharedSetUntouched() {
+    Set<String> shared = sharedSet();
+    Set<String> view = SharedCollections.set(shared);
+    Set<String> iterated = new HashSet<>();
+    for (Iterator<String> iterator = view.iterator(); iterator.hasNext(); ) {
+      String element = iterator.next();
+      iterated.add(element);
+      if (!element.equals("b")) iterator.remove();
+    }
+    assertEquals(sharedSet(), iterated);
+    assertEquals(new HashSet<>(Arrays.asList("b")), view);
+    assertEquals(sharedSet(), shared);
+  }
+
+  @Test
+  public void setClearDoesNotTouchTheSharedSet() {
+    Set<String> shared = sharedSet();
+    Set<String> view = SharedCollections.set(shared);
+    view.clear();
+    assertTrue(view.isEmpty());
+    assertEquals(sharedSet(), shared);
+  }
+
+  @Test
+  public void viewsOfViewsShareTheOriginalCollection() {
+    Set<String> shared = sharedSet();
+    Set<String> first = SharedCollections.set(shared);
+    Set<String> second = SharedCollections.set(first);
+    first.add("d");
+    assertTrue(SharedCollections.isShared(second));
+    assertEquals(sharedSet(), second);
+
+    Set<String> third = SharedCollections.set(first);
+    third.remove("d");
+    assertEquals(new HashSet<>(Arrays.asList("a", "b", "c", "d")), first);
+    assertEquals(sharedSet(), third);
+  }
+
+  @Test
+  public void listCopiesOnWrite() {
+    List<String> shared = new ArrayList<>(Arrays.asList("a", "b", "c"));
+    List<String> view = SharedCollections.list(shared);
+    assertEquals(shared, view);
+
+    view.set(0, "x");
+    view.add("d");
+    view.remove("b");
+    assertEquals(Arrays.asList("x", "c", "d"), view);
+    assertEquals(Arrays.asList("a", "b", "c"), shared);
+  }
+
+  @Test
+  public void listIteratorRemoveCopiesTheSharedList() {
+    List<String> shared = new ArrayList<>(Arrays.asList("a", "b", "c"));
+    List<String> view = SharedCollections.list(shared);
+    for (Iterator<String> iterator = view.iterator(); iterator.hasNext(); ) {
+      if (iterator.next().equals("b")) iterator.remove();
+    }
+    assertEquals(Arrays.asList("a", "c"), view);
+    assertEquals(Arrays.asList("a", "b", "c"), shared);
+  }
+
+  @Test
+  public void mapCopiesOnWrite() {
+    Map<String, String> shared = new HashMap<>();
+    shared.put("a", "1");
+    shared.put("b", "2");
+    Map<String, String> view = SharedCollections.map(shared);
+    assertEquals(shared, view);
+    assertEquals(null, view.remove("z"));
+    assertTrue(SharedCollections.isShared(view));
+
+    view.put("c", "3");
+    assertEquals("2", view.remove("b"));
+    assertEquals(2, view.size());
+    assertEquals(2, shared.size());
+    assertEquals("2", shared.get("b"));
+  }
+
+  @Test
+  public void mapEntryIteratorCopiesOnWrite() {
+    Map<String, String> shared = new HashMap<>();
+    shared.put("a", "1");
+    shared.put("b", "2");
+    Map<String, String> view = SharedCollections.map(shared);
+    for (Iterator<Map.Entry<String, String>> iterator = view.entrySet().iterator();
+        iterator.hasNext(); ) {
+      Map.Entry<String, String> entry = iterator.next();
+      if (entry.getKey().equals("a")) entry.setValue("10");
+      else iterator.remove();
+    }
+    assertEquals(1, view.size());
+    assertEquals("10", view.get("a"));
+    assertEquals("1", shared.get("a"));
+    assertEquals("2", shared.get("b"));
+  }
+
+  @Test
+  public void serializationWritesAPlainCollection() throws Exception {
+    Set<String> view = SharedCollections.set(sharedSet());
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(view);
+    }
+    try (ObjectInputStream in =
+        new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Object read = in.readObject();
+      assertEquals(HashSet.class, read.getClass());
+      assertEquals(sharedSet(), read);
+    }
+  }
+}